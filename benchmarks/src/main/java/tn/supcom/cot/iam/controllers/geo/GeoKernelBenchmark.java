@@ -0,0 +1,125 @@
+package tn.supcom.cot.iam.controllers.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trajectory length and one-to-many distances over a synthetic ride around Tunis, comparing the
+ * boxed per-call haversine GPSPointManager used to have with GeoKernel and its Vector API variant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "--add-modules", "jdk.incubator.vector"})
+public class GeoKernelBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int points;
+
+    private Float[] boxedLatitudes;
+    private Float[] boxedLongitudes;
+    private double[] latitudes;
+    private double[] longitudes;
+    private GeoPoints geoPoints;
+    private double[] out;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        boxedLatitudes = new Float[points];
+        boxedLongitudes = new Float[points];
+        latitudes = new double[points];
+        longitudes = new double[points];
+        // A random walk with steps of a few meters, like one fix every second or two
+        double lat = 36.8065;
+        double lon = 10.1815;
+        for (int i = 0; i < points; i++) {
+            lat += (random.nextDouble() - 0.5) * 1e-4;
+            lon += (random.nextDouble() - 0.5) * 1e-4;
+            latitudes[i] = (float) lat;
+            longitudes[i] = (float) lon;
+            boxedLatitudes[i] = (float) lat;
+            boxedLongitudes[i] = (float) lon;
+        }
+        geoPoints = GeoPoints.ofDegrees(latitudes, longitudes);
+        out = new double[points];
+    }
+
+    @Benchmark
+    public float trajectoryBoxed() {
+        float total = 0f;
+        for (int i = 0; i + 1 < points; i++) {
+            total += boxedDistanceKm(boxedLatitudes[i], boxedLongitudes[i], boxedLatitudes[i + 1], boxedLongitudes[i + 1]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double trajectoryKernel() {
+        return GeoKernel.trajectoryLengthKm(geoPoints);
+    }
+
+    @Benchmark
+    public double trajectoryVector() {
+        return VectorGeoKernel.trajectoryLengthKm(geoPoints);
+    }
+
+    @Benchmark
+    public void oneToManyBoxed(Blackhole blackhole) {
+        Float lat = boxedLatitudes[0];
+        Float lon = boxedLongitudes[0];
+        for (int i = 0; i < points; i++) {
+            out[i] = boxedDistanceKm(lat, lon, boxedLatitudes[i], boxedLongitudes[i]);
+        }
+        blackhole.consume(out);
+    }
+
+    @Benchmark
+    public void oneToManyKernel(Blackhole blackhole) {
+        GeoKernel.distancesKm(latitudes[0], longitudes[0], geoPoints, out);
+        blackhole.consume(out);
+    }
+
+    @Benchmark
+    public void oneToManyVector(Blackhole blackhole) {
+        VectorGeoKernel.distancesKm(latitudes[0], longitudes[0], geoPoints, out);
+        blackhole.consume(out);
+    }
+
+    // What the kernel pays up front, once per trace or station set
+    @Benchmark
+    public GeoPoints buildPoints() {
+        return GeoPoints.ofDegrees(latitudes, longitudes);
+    }
+
+    // GPSPointManager.calculateDistanceInKm as it was before GeoKernel
+    private static Float boxedDistanceKm(Float lat1, Float lon1, Float lat2, Float lon2) {
+        final int EARTH_RADIUS = 6371;
+
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return (float) (EARTH_RADIUS * c);
+    }
+}
@@ -0,0 +1,78 @@
+package tn.supcom.cot.iam.controllers.geo;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * GeoKernel written against the incubating Vector API, sqrt and asin included. It lives here
+ * rather than in the middleware because the application server does not enable incubator
+ * modules; the benchmark shows what enabling them would buy.
+ */
+public final class VectorGeoKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double DIAMETER_KM = 2 * GeoMath.EARTH_RADIUS_KM;
+
+    private VectorGeoKernel() {
+    }
+
+    public static double trajectoryLengthKm(GeoPoints points) {
+        double[] x = points.x;
+        double[] y = points.y;
+        double[] z = points.z;
+        int segments = Math.max(0, points.size() - 1);
+        int upper = SPECIES.loopBound(segments);
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i + 1).sub(DoubleVector.fromArray(SPECIES, x, i));
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, i + 1).sub(DoubleVector.fromArray(SPECIES, y, i));
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, z, i + 1).sub(DoubleVector.fromArray(SPECIES, z, i));
+            sum = sum.add(toKm(dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz))));
+        }
+        double total = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < segments; i++) {
+            double dx = x[i + 1] - x[i];
+            double dy = y[i + 1] - y[i];
+            double dz = z[i + 1] - z[i];
+            total += GeoKernel.chordToKm(dx * dx + dy * dy + dz * dz);
+        }
+        return total;
+    }
+
+    public static void distancesKm(double latitude, double longitude, GeoPoints points, double[] out) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        double px = cosLat * Math.cos(lon);
+        double py = cosLat * Math.sin(lon);
+        double pz = Math.sin(lat);
+        double[] x = points.x;
+        double[] y = points.y;
+        double[] z = points.z;
+        int n = points.size();
+        int upper = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i).sub(px);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, i).sub(py);
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, z, i).sub(pz);
+            toKm(dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz))).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            double dx = x[i] - px;
+            double dy = y[i] - py;
+            double dz = z[i] - pz;
+            out[i] = GeoKernel.chordToKm(dx * dx + dy * dy + dz * dz);
+        }
+    }
+
+    private static DoubleVector toKm(DoubleVector chordsSquared) {
+        return chordsSquared.lanewise(VectorOperators.SQRT)
+                .mul(0.5)
+                .min(1.0)
+                .lanewise(VectorOperators.ASIN)
+                .mul(DIAMETER_KM);
+    }
+}
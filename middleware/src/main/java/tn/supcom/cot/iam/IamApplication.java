@@ -1,5 +1,8 @@
 package tn.supcom.cot.iam.boundaries;
 
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.context.Dependent;
 import jakarta.enterprise.inject.Disposes;
@@ -22,6 +25,14 @@ public class IamApplication extends Application {
         @ConfigProperty(name = "jwt.realm")
         private String realm;
 
+        @Inject
+        @ConfigProperty(name = "jnosql.mongodb.url")
+        private String mongoUrl;
+
+        @Inject
+        @ConfigProperty(name = "jnosql.document.database", defaultValue = "bicycle_db")
+        private String database;
+
         @Produces
         @Named(value = "realm")
         public String getRealm(){
@@ -37,5 +48,23 @@ public class IamApplication extends Application {
         public void disposeLogger(@Disposes Logger logger){
             logger.info("logger disposed!");
         }
+
+        // One driver client for the conditional writes and change streams the repositories can't express
+        @Produces
+        @ApplicationScoped
+        public MongoClient getMongoClient(){
+            return MongoClients.create(mongoUrl);
+        }
+
+        public void closeMongoClient(@Disposes MongoClient client){
+            client.close();
+        }
+
+        // Same database JNoSQL maps the entities to; each entity's collection is named after its class
+        @Produces
+        @ApplicationScoped
+        public MongoDatabase getMongoDatabase(MongoClient client){
+            return client.getDatabase(database);
+        }
     }
 }
@@ -7,9 +7,13 @@ import jakarta.ws.rs.core.GenericType;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import tn.supcom.cot.iam.controllers.managers.BikeManager;
+import tn.supcom.cot.iam.controllers.managers.GpsAnomalyManager;
+import tn.supcom.cot.iam.controllers.telemetry.BikeMotionSnapshot;
+import tn.supcom.cot.iam.controllers.telemetry.BatteryReport;
 import tn.supcom.cot.iam.entities.Bike;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import java.util.HashSet;
@@ -20,6 +24,9 @@ public class BikeEndpoint {
     @EJB
     private BikeManager bikeManager;
 
+    @EJB
+    private GpsAnomalyManager gpsAnomalyManager;
+
     //-------GET Bike by ID-------
     @GET
     @Path("/{bikeId}")
@@ -106,6 +113,15 @@ public class BikeEndpoint {
         return Response.ok(ret).build();
     }
 
+    //-------GET Bike Counts by Status-------
+    @GET
+    @Path("/status/counts")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBikeCountsByStatus() {
+        var ret = new GenericEntity<>(bikeManager.countBikesByStatus()) {};
+        return Response.ok(ret).build();
+    }
+
     //-------PUT Update Bike Status-------
     @PUT
     @Path("/{bikeId}/status")
@@ -146,4 +162,71 @@ public class BikeEndpoint {
         var ret = new GenericEntity<>(bikeManager.getAvailableBikesByStation(stationId)) {};
         return Response.ok(ret).build();
     }
+
+    //-------PUT Report Battery Level-------
+    @PUT
+    @Path("/{bikeId}/battery")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response reportBatteryLevel(@PathParam("bikeId") String bikeId, @QueryParam("level") Integer level) {
+        if (level == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("level is required")
+                    .build();
+        }
+        if (!bikeManager.reportBatteryLevel(bikeId, level)) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Bike not found")
+                    .build();
+        }
+        return Response.accepted().build();
+    }
+
+    //-------POST Report Battery Levels (Batch)-------
+    @POST
+    @Path("/battery")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response reportBatteryLevels(List<BatteryReport> reports) {
+        if (reports == null || reports.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Battery reports are required")
+                    .build();
+        }
+        int accepted = bikeManager.reportBatteryLevels(reports);
+        return Response.status(Response.Status.ACCEPTED)
+                .entity("{\"accepted\": " + accepted + ", \"rejected\": " + (reports.size() - accepted) + "}")
+                .build();
+    }
+
+    //-------GET Live Motion State of a Bike-------
+    @GET
+    @Path("/{bikeId}/motion")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMotion(@PathParam("bikeId") String bikeId) {
+        BikeMotionSnapshot motion = gpsAnomalyManager.getMotion(bikeId);
+        if (motion == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("No GPS fix received for this bike")
+                    .build();
+        }
+        return Response.ok(motion).build();
+    }
+
+    //-------GET GPS Anomalies of a Bike-------
+    @GET
+    @Path("/{bikeId}/anomalies")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBikeAnomalies(@PathParam("bikeId") String bikeId) {
+        var ret = new GenericEntity<>(gpsAnomalyManager.getAnomalies(bikeId, null)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET GPS Anomalies of the Fleet-------
+    @GET
+    @Path("/anomalies")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAnomalies(@QueryParam("type") String anomalyType) {
+        var ret = new GenericEntity<>(gpsAnomalyManager.getAnomalies(null, anomalyType)) {};
+        return Response.ok(ret).build();
+    }
 }
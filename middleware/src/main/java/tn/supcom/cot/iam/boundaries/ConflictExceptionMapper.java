@@ -0,0 +1,20 @@
+package tn.supcom.cot.iam.boundaries;
+
+import jakarta.json.Json;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import tn.supcom.cot.iam.controllers.errors.ConflictException;
+
+@Provider
+public class ConflictExceptionMapper implements ExceptionMapper<ConflictException> {
+
+    @Override
+    public Response toResponse(ConflictException e) {
+        return Response.status(Response.Status.CONFLICT)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(Json.createObjectBuilder().add("error", String.valueOf(e.getMessage())).build().toString())
+                .build();
+    }
+}
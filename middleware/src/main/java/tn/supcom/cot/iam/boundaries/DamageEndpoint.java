@@ -5,6 +5,7 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.GenericEntity;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import tn.supcom.cot.iam.controllers.managers.DamageInferenceManager;
 import tn.supcom.cot.iam.controllers.managers.DamageManager;
 import tn.supcom.cot.iam.entities.Damage;
 
@@ -15,6 +16,9 @@ public class DamageEndpoint {
     @EJB
     private DamageManager damageManager;
 
+    @EJB
+    private DamageInferenceManager damageInferenceManager;
+
     //-------GET Damage by ID-------
     @GET
     @Path("/{damageId}")
@@ -64,6 +68,15 @@ public class DamageEndpoint {
         return Response.ok(ret).build();
     }
 
+    //-------GET Damage Counts by Status-------
+    @GET
+    @Path("/status/counts")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDamageCountsByStatus() {
+        var ret = new GenericEntity<>(damageManager.countDamagesByStatus()) {};
+        return Response.ok(ret).build();
+    }
+
     //-------POST Create Damage-------
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
@@ -207,4 +220,29 @@ public class DamageEndpoint {
                 .entity("{\"bikeId\": \"" + bikeId + "\", \"unrepairedCount\": " + count + "}")
                 .build();
     }
+
+    //-------GET Damage Summary by Bike-------
+    @GET
+    @Path("/bike/{bikeId}/summary")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDamageSummaryByBike(@PathParam("bikeId") String bikeId) {
+        return Response.ok(damageManager.getDamageSummaryByBike(bikeId)).build();
+    }
+
+    //-------GET Damage Summaries for the whole Fleet-------
+    @GET
+    @Path("/summaries")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAllDamageSummaries() {
+        var ret = new GenericEntity<>(damageManager.getAllDamageSummaries()) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Damage Inference Queue Metrics-------
+    @GET
+    @Path("/inference/metrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getInferenceMetrics() {
+        return Response.ok(damageInferenceManager.getMetrics()).build();
+    }
 }
\ No newline at end of file
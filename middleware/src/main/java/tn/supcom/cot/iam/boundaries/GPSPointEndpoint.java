@@ -7,7 +7,9 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import tn.supcom.cot.iam.controllers.managers.GPSPointManager;
 import tn.supcom.cot.iam.entities.GPSPoint;
+import tn.supcom.cot.iam.entities.RideTrace;
 
+import java.util.List;
 import java.util.Optional;
 
 @Path("/gps-points")
@@ -57,7 +59,9 @@ public class GPSPointEndpoint {
     @Produces(MediaType.APPLICATION_JSON)
     public Response createGPSPointWithCoordinates(
             @QueryParam("latitude") Float latitude,
-            @QueryParam("longitude") Float longitude) {
+            @QueryParam("longitude") Float longitude,
+            @QueryParam("rentalId") String rentalId,
+            @QueryParam("bikeId") String bikeId) {
 
         if (latitude == null || longitude == null) {
             return Response.status(Response.Status.BAD_REQUEST)
@@ -65,7 +69,7 @@ public class GPSPointEndpoint {
                     .build();
         }
 
-        GPSPoint saved = gpsPointManager.createGPSPointWithCoordinates(latitude, longitude);
+        GPSPoint saved = gpsPointManager.createGPSPointWithCoordinates(latitude, longitude, rentalId, bikeId);
         return Response.status(Response.Status.CREATED).entity(saved).build();
     }
 
@@ -123,4 +127,66 @@ public class GPSPointEndpoint {
                         "\", \"distanceKm\": " + distance + "}")
                 .build();
     }
-}
\ No newline at end of file
+
+    //-------POST Calculate Length of a Path through GPS Points-------
+    @POST
+    @Path("/path/distance")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response calculatePathDistance(List<String> gpsPointIds) {
+        if (gpsPointIds == null || gpsPointIds.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("A list of GPS point ids is required")
+                    .build();
+        }
+
+        Float distance = gpsPointManager.calculatePathDistance(gpsPointIds);
+        return Response.ok()
+                .entity("{\"points\": " + gpsPointIds.size() + ", \"distanceKm\": " + distance + "}")
+                .build();
+    }
+
+    //-------GET Simplified Trace of a Ride-------
+    @GET
+    @Path("/rental/{rentalId}/trace")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRideTrace(@PathParam("rentalId") String rentalId) {
+        Optional<RideTrace> trace = gpsPointManager.getRideTrace(rentalId);
+        if (trace.isPresent()) {
+            return Response.ok(trace.get()).build();
+        }
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity("No GPS points recorded for this rental")
+                .build();
+    }
+
+    //-------GET Raw GPS Points of a Ride-------
+    @GET
+    @Path("/rental/{rentalId}/trace/raw")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRawTrace(@PathParam("rentalId") String rentalId) {
+        var ret = new GenericEntity<>(gpsPointManager.getRawTrace(rentalId)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET GPS History of a Bike-------
+    @GET
+    @Path("/bike/{bikeId}/history")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBikeHistory(
+            @PathParam("bikeId") String bikeId,
+            @QueryParam("from") Long from,
+            @QueryParam("to") Long to) {
+        var ret = new GenericEntity<>(gpsPointManager.getBikeHistory(bikeId, from, to)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------POST Archive Old GPS Points-------
+    @POST
+    @Path("/archive")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response archiveGPSPoints() {
+        int archived = gpsPointManager.archiveGPSPoints();
+        return Response.ok("{\"archived\": " + archived + "}").build();
+    }
+}
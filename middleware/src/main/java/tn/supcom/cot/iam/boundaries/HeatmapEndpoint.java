@@ -0,0 +1,52 @@
+package tn.supcom.cot.iam.boundaries;
+
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import tn.supcom.cot.iam.controllers.managers.HeatmapManager;
+
+@Path("/heatmap")
+public class HeatmapEndpoint {
+    @EJB
+    private HeatmapManager heatmapManager;
+
+    //-------GET Heatmap Tile Counts-------
+    @GET
+    @Path("/{z}/{x}/{y}.json")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTile(
+            @PathParam("z") int z,
+            @PathParam("x") int x,
+            @PathParam("y") int y) {
+        if (!heatmapManager.isServed(z, x, y)) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Tile not found")
+                    .build();
+        }
+        return Response.ok(heatmapManager.getTile(z, x, y)).build();
+    }
+
+    //-------GET Heatmap Tile Image-------
+    @GET
+    @Path("/{z}/{x}/{y}.png")
+    @Produces("image/png")
+    public Response getTilePng(
+            @PathParam("z") int z,
+            @PathParam("x") int x,
+            @PathParam("y") int y) {
+        if (!heatmapManager.isServed(z, x, y)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(heatmapManager.getTilePng(z, x, y)).build();
+    }
+
+    //-------POST Rebuild Heatmap Tiles-------
+    @POST
+    @Path("/rebuild")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response rebuild() {
+        int tiles = heatmapManager.rebuild();
+        return Response.ok("{\"tiles\": " + tiles + "}").build();
+    }
+}
@@ -0,0 +1,155 @@
+package tn.supcom.cot.iam.boundaries;
+
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import tn.supcom.cot.iam.controllers.managers.IOTSensorManager;
+import tn.supcom.cot.iam.controllers.managers.SensorTelemetryManager;
+import tn.supcom.cot.iam.controllers.telemetry.SensorReading;
+import tn.supcom.cot.iam.entities.IOTSensor;
+
+import java.util.List;
+import java.util.Optional;
+
+@Path("/sensors")
+public class IOTSensorEndpoint {
+    @EJB
+    private IOTSensorManager sensorManager;
+
+    @EJB
+    private SensorTelemetryManager sensorTelemetryManager;
+
+    //-------GET Sensor by ID-------
+    @GET
+    @Path("/{sensorId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSensorById(@PathParam("sensorId") String sensorId) {
+        Optional<IOTSensor> sensor = sensorManager.getSensorById(sensorId);
+        if (sensor.isPresent()) {
+            return Response.ok(sensor.get()).build();
+        }
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity("Sensor not found")
+                .build();
+    }
+
+    //-------GET All Sensors-------
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAllSensors() {
+        var ret = new GenericEntity<>(sensorManager.getAllSensors()) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Sensors by Station-------
+    @GET
+    @Path("/station/{stationId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSensorsByStationId(@PathParam("stationId") String stationId) {
+        var ret = new GenericEntity<>(sensorManager.getSensorsByStationId(stationId)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Sensors by Type-------
+    @GET
+    @Path("/type/{sensorType}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSensorsByType(@PathParam("sensorType") String sensorType) {
+        var ret = new GenericEntity<>(sensorManager.getSensorsByType(sensorType)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------POST Create Sensor-------
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response createSensor(IOTSensor sensor) {
+        if (sensor == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Sensor data is required")
+                    .build();
+        }
+        IOTSensor saved = sensorManager.createSensor(sensor);
+        return Response.status(Response.Status.CREATED).entity(saved).build();
+    }
+
+    //-------PUT Update Sensor-------
+    @PUT
+    @Path("/{sensorId}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updateSensor(@PathParam("sensorId") String sensorId, IOTSensor sensor) {
+        if (sensor == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Sensor data is required")
+                    .build();
+        }
+        sensor.setSensorId(sensorId);
+        IOTSensor updated = sensorManager.updateSensor(sensor);
+        return Response.ok(updated).build();
+    }
+
+    //-------DELETE Sensor-------
+    @DELETE
+    @Path("/{sensorId}")
+    public Response deleteSensor(@PathParam("sensorId") String sensorId) {
+        boolean deleted = sensorManager.deleteSensor(sensorId);
+        if (!deleted) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Sensor not found")
+                    .build();
+        }
+        return Response.noContent().build();
+    }
+
+    //-------POST Ingest a Batch of Readings-------
+    @POST
+    @Path("/readings")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response ingestReadings(List<SensorReading> readings) {
+        if (readings == null || readings.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Readings are required")
+                    .build();
+        }
+        int accepted = sensorTelemetryManager.ingest(readings);
+        return Response.status(Response.Status.ACCEPTED)
+                .entity("{\"accepted\": " + accepted + ", \"rejected\": " + (readings.size() - accepted) + "}")
+                .build();
+    }
+
+    //-------GET Latest Readings of a Sensor-------
+    @GET
+    @Path("/{sensorId}/readings")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getLatestReadings(
+            @PathParam("sensorId") String sensorId,
+            @QueryParam("limit") @DefaultValue("50") int limit) {
+        var ret = new GenericEntity<>(sensorTelemetryManager.getLatestReadings(sensorId, limit)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Latest Reading of every Sensor of a Station-------
+    @GET
+    @Path("/station/{stationId}/latest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getLatestReadingsByStation(@PathParam("stationId") String stationId) {
+        var ret = new GenericEntity<>(sensorTelemetryManager.getLatestReadingsByStation(stationId)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Rollups of a Sensor-------
+    @GET
+    @Path("/{sensorId}/rollups")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRollups(
+            @PathParam("sensorId") String sensorId,
+            @QueryParam("from") Long from,
+            @QueryParam("to") Long to) {
+        var ret = new GenericEntity<>(sensorTelemetryManager.getRollups(sensorId, from, to)) {};
+        return Response.ok(ret).build();
+    }
+}
@@ -0,0 +1,23 @@
+package tn.supcom.cot.iam.boundaries;
+
+import jakarta.json.Json;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import tn.supcom.cot.iam.controllers.errors.IdempotencyMismatchException;
+
+@Provider
+public class IdempotencyMismatchExceptionMapper implements ExceptionMapper<IdempotencyMismatchException> {
+
+    // 422 Unprocessable Content, which Response.Status does not name
+    private static final int UNPROCESSABLE_CONTENT = 422;
+
+    @Override
+    public Response toResponse(IdempotencyMismatchException e) {
+        return Response.status(UNPROCESSABLE_CONTENT)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(Json.createObjectBuilder().add("error", String.valueOf(e.getMessage())).build().toString())
+                .build();
+    }
+}
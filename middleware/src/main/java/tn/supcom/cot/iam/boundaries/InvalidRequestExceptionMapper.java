@@ -0,0 +1,20 @@
+package tn.supcom.cot.iam.boundaries;
+
+import jakarta.json.Json;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import tn.supcom.cot.iam.controllers.errors.InvalidRequestException;
+
+@Provider
+public class InvalidRequestExceptionMapper implements ExceptionMapper<InvalidRequestException> {
+
+    @Override
+    public Response toResponse(InvalidRequestException e) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(Json.createObjectBuilder().add("error", String.valueOf(e.getMessage())).build().toString())
+                .build();
+    }
+}
@@ -0,0 +1,109 @@
+package tn.supcom.cot.iam.boundaries;
+
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import tn.supcom.cot.iam.controllers.managers.MaintenanceManager;
+import tn.supcom.cot.iam.entities.Maintenance;
+
+import java.util.Optional;
+
+@Path("/maintenances")
+public class MaintenanceEndpoint {
+    @EJB
+    private MaintenanceManager maintenanceManager;
+
+    //-------GET Maintenance by ID-------
+    @GET
+    @Path("/{maintenanceId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMaintenanceById(@PathParam("maintenanceId") String maintenanceId) {
+        Optional<Maintenance> maintenance = maintenanceManager.getMaintenanceById(maintenanceId);
+        if (maintenance.isPresent()) {
+            return Response.ok(maintenance.get()).build();
+        }
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity("Maintenance not found")
+                .build();
+    }
+
+    //-------GET All Maintenances-------
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAllMaintenances() {
+        var ret = new GenericEntity<>(maintenanceManager.getAllMaintenances()) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Maintenances by Bike-------
+    @GET
+    @Path("/bike/{bikeId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMaintenancesByBikeId(@PathParam("bikeId") String bikeId) {
+        var ret = new GenericEntity<>(maintenanceManager.getMaintenancesByBikeId(bikeId)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------POST Create Maintenance-------
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response createMaintenance(Maintenance maintenance) {
+        if (maintenance == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Maintenance data is required")
+                    .build();
+        }
+        Maintenance saved = maintenanceManager.createMaintenance(maintenance);
+        return Response.status(Response.Status.CREATED).entity(saved).build();
+    }
+
+    //-------PUT Update Maintenance-------
+    @PUT
+    @Path("/{maintenanceId}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updateMaintenance(@PathParam("maintenanceId") String maintenanceId, Maintenance maintenance) {
+        if (maintenance == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Maintenance data is required")
+                    .build();
+        }
+        maintenance.setMaintenanceId(maintenanceId);
+        Maintenance updated = maintenanceManager.updateMaintenance(maintenance);
+        return Response.ok(updated).build();
+    }
+
+    //-------DELETE Maintenance-------
+    @DELETE
+    @Path("/{maintenanceId}")
+    public Response deleteMaintenance(@PathParam("maintenanceId") String maintenanceId) {
+        boolean deleted = maintenanceManager.deleteMaintenance(maintenanceId);
+        if (!deleted) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Maintenance not found")
+                    .build();
+        }
+        return Response.noContent().build();
+    }
+
+    //-------GET Prioritized Maintenance Queue-------
+    @GET
+    @Path("/queue")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMaintenanceQueue(@QueryParam("limit") @DefaultValue("50") int limit) {
+        var ret = new GenericEntity<>(maintenanceManager.getMaintenanceQueue(limit)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------POST Re-rank Maintenance Queue now-------
+    @POST
+    @Path("/queue/refresh")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response refreshMaintenanceQueue(@QueryParam("limit") @DefaultValue("50") int limit) {
+        var ret = new GenericEntity<>(maintenanceManager.refreshMaintenanceQueue(limit)) {};
+        return Response.ok(ret).build();
+    }
+}
@@ -6,8 +6,13 @@ import jakarta.ws.rs.core.GenericEntity;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import tn.supcom.cot.iam.controllers.managers.PaymentManager;
+import tn.supcom.cot.iam.controllers.managers.SettlementManager;
+import tn.supcom.cot.iam.controllers.managers.SpendingAggregateManager;
 import tn.supcom.cot.iam.entities.Payment;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Optional;
 
 @Path("/payments")
@@ -15,6 +20,9 @@ public class PaymentEndpoint {
     @EJB
     private PaymentManager paymentManager;
 
+    @EJB
+    private SettlementManager settlementManager;
+
     //-------GET Payment by ID-------
     @GET
     @Path("/{paymentId}")
@@ -50,13 +58,13 @@ public class PaymentEndpoint {
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response createPayment(Payment payment) {
+    public Response createPayment(@HeaderParam("Idempotency-Key") String idempotencyKey, Payment payment) {
         if (payment == null) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .entity("Payment data is required")
                     .build();
         }
-        Payment saved = paymentManager.createPayment(payment);
+        Payment saved = paymentManager.createPayment(payment, idempotencyKey);
         return Response.status(Response.Status.CREATED).entity(saved).build();
     }
 
@@ -66,6 +74,7 @@ public class PaymentEndpoint {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public Response createPaymentForRental(
+            @HeaderParam("Idempotency-Key") String idempotencyKey,
             @PathParam("rentalId") String rentalId,
             @QueryParam("amount") Float amount,
             @QueryParam("paymentMethodId") String paymentMethodId,
@@ -77,7 +86,7 @@ public class PaymentEndpoint {
                     .build();
         }
 
-        Payment payment = paymentManager.createPaymentForRental(rentalId, amount, paymentMethodId, pricingId);
+        Payment payment = paymentManager.createPaymentForRental(rentalId, amount, paymentMethodId, pricingId, idempotencyKey);
         if (payment == null) {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity("Rental not found")
@@ -125,9 +134,43 @@ public class PaymentEndpoint {
     @Path("/payment-method/{paymentMethodId}/total")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getTotalAmountByPaymentMethod(@PathParam("paymentMethodId") String paymentMethodId) {
-        Float total = paymentManager.getTotalAmountByPaymentMethod(paymentMethodId);
+        BigDecimal total = paymentManager.getTotalAmountByPaymentMethod(paymentMethodId);
+        return Response.ok()
+                .entity("{\"paymentMethodId\": \"" + paymentMethodId + "\", \"totalAmount\": " + total.toPlainString() + "}")
+                .build();
+    }
+
+    //-------GET Spending by User-------
+    @GET
+    @Path("/user/{userId}/spending")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSpendingByUser(@PathParam("userId") String userId) {
+        return Response.ok(paymentManager.getSpending(SpendingAggregateManager.USER, userId)).build();
+    }
+
+    //-------GET Spending by Day-------
+    @GET
+    @Path("/day/{date}/spending")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSpendingByDay(@PathParam("date") String date) {
+        try {
+            LocalDate day = LocalDate.parse(date);
+            return Response.ok(paymentManager.getSpending(SpendingAggregateManager.DAY, day.toString())).build();
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("date must be formatted as yyyy-MM-dd")
+                    .build();
+        }
+    }
+
+    //-------POST Run Settlement-------
+    @POST
+    @Path("/settlement/run")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response runSettlement() {
+        int settled = settlementManager.settlePending();
         return Response.ok()
-                .entity("{\"paymentMethodId\": \"" + paymentMethodId + "\", \"totalAmount\": " + total + "}")
+                .entity("{\"settled\": " + settled + "}")
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -146,4 +146,31 @@ public class PricingEndpoint {
                         ", \"distance\": " + distance + ", \"totalCost\": " + cost + "}")
                 .build();
     }
-}
\ No newline at end of file
+
+    //-------GET Estimate Trip Cost between Stations-------
+    @GET
+    @Path("/{pricingId}/estimate")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response estimateTripCost(
+            @PathParam("pricingId") String pricingId,
+            @QueryParam("from") String fromStationId,
+            @QueryParam("to") String toStationId) {
+
+        if (fromStationId == null || toStationId == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("from and to are required")
+                    .build();
+        }
+
+        Float cost = pricingManager.estimateTripCost(pricingId, fromStationId, toStationId);
+        if (cost == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Station not found")
+                    .build();
+        }
+        return Response.ok()
+                .entity("{\"pricingId\": \"" + pricingId + "\", \"from\": \"" + fromStationId +
+                        "\", \"to\": \"" + toStationId + "\", \"estimatedCost\": " + cost + "}")
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package tn.supcom.cot.iam.boundaries;
+
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import tn.supcom.cot.iam.controllers.managers.RebalancingManager;
+
+@Path("/rebalancing")
+public class RebalancingEndpoint {
+    @EJB
+    private RebalancingManager rebalancingManager;
+
+    //-------GET Rebalancing Plan-------
+    @GET
+    @Path("/plan")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRebalancingPlan(@QueryParam("trucks") Integer trucks) {
+        return Response.ok(rebalancingManager.planRebalancing(trucks)).build();
+    }
+}
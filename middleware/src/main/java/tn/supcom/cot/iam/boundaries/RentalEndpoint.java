@@ -1,11 +1,15 @@
 package tn.supcom.cot.iam.boundaries;
 
 import jakarta.ejb.EJB;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.GenericEntity;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import tn.supcom.cot.iam.controllers.managers.BikeManager;
+import tn.supcom.cot.iam.controllers.events.RentalActivityProjection;
+import tn.supcom.cot.iam.controllers.managers.CloudinaryManager;
+import tn.supcom.cot.iam.controllers.managers.RentalEventManager;
 import tn.supcom.cot.iam.controllers.managers.RentalManager;
 import tn.supcom.cot.iam.controllers.managers.StationManager;
 import tn.supcom.cot.iam.entities.Rental;
@@ -19,6 +23,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Set;
 
 @Path("/rentals")
@@ -32,6 +38,12 @@ public class RentalEndpoint {
     @EJB
     private StationManager stationManager;
 
+    @EJB
+    private RentalEventManager rentalEventManager;
+
+    @Inject
+    private RentalActivityProjection rentalActivityProjection;
+
     //-------GET Rental by ID-------
     @GET
     @Path("/{rentalId}")
@@ -58,6 +70,14 @@ public class RentalEndpoint {
         return Response.ok(ret).build();
     }
 
+    //-------GET Rider View by User ID-------
+    @GET
+    @Path("/user/{userId}/view")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRiderView(@PathParam("userId") String userId) {
+        return Response.ok(rentalManager.getRiderView(userId)).build();
+    }
+
     //-------GET Rentals by Bike ID-------
     @GET
     @Path("/bike/{bikeId}")
@@ -76,6 +96,15 @@ public class RentalEndpoint {
         return Response.ok(ret).build();
     }
 
+    //-------GET Rental Counts by Status-------
+    @GET
+    @Path("/status/counts")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRentalCountsByStatus() {
+        var ret = new GenericEntity<>(rentalManager.countRentalsByStatus()) {};
+        return Response.ok(ret).build();
+    }
+
     //-------POST Create Rental-------
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
@@ -257,17 +286,20 @@ public class RentalEndpoint {
 
             File tempFile = File.createTempFile("rental-initial-", fileDetail.getFileName());
 
-
-            try (FileOutputStream out = new FileOutputStream(tempFile)) {
-                byte[] buffer = new byte[1024];
+            // Hash the bytes while they are received so duplicate uploads can be short-circuited
+            MessageDigest digest = CloudinaryManager.newContentDigest();
+            try (InputStream in = new DigestInputStream(fileInputStream, digest);
+                 FileOutputStream out = new FileOutputStream(tempFile)) {
+                byte[] buffer = new byte[8192];
                 int bytesRead;
-                while ((bytesRead = fileInputStream.read(buffer)) != -1) {
+                while ((bytesRead = in.read(buffer)) != -1) {
                     out.write(buffer, 0, bytesRead);
                 }
             }
+            String contentHash = CloudinaryManager.toHex(digest);
 
             // Upload vers Cloudinary via le manager
-            Rental rental = rentalManager.addInitialPhotoFile(rentalId, tempFile);
+            Rental rental = rentalManager.addInitialPhotoFile(rentalId, tempFile, contentHash);
 
             tempFile.delete();
 
@@ -306,17 +338,20 @@ public class RentalEndpoint {
 
             File tempFile = File.createTempFile("rental-final-", fileDetail.getFileName());
 
-
-            try (FileOutputStream out = new FileOutputStream(tempFile)) {
-                byte[] buffer = new byte[1024];
+            // Hash the bytes while they are received so duplicate uploads can be short-circuited
+            MessageDigest digest = CloudinaryManager.newContentDigest();
+            try (InputStream in = new DigestInputStream(fileInputStream, digest);
+                 FileOutputStream out = new FileOutputStream(tempFile)) {
+                byte[] buffer = new byte[8192];
                 int bytesRead;
-                while ((bytesRead = fileInputStream.read(buffer)) != -1) {
+                while ((bytesRead = in.read(buffer)) != -1) {
                     out.write(buffer, 0, bytesRead);
                 }
             }
+            String contentHash = CloudinaryManager.toHex(digest);
 
             // Upload vers Cloudinary via le manager
-            Rental rental = rentalManager.addFinalPhotoFile(rentalId, tempFile);
+            Rental rental = rentalManager.addFinalPhotoFile(rentalId, tempFile, contentHash);
 
 
             tempFile.delete();
@@ -396,4 +431,23 @@ public class RentalEndpoint {
         }
     }
 
+    //-------GET Rental Events from the Log-------
+    @GET
+    @Path("/events")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRentalEvents(
+            @QueryParam("from") @DefaultValue("0") long from,
+            @QueryParam("limit") @DefaultValue("100") int limit) {
+        var ret = new GenericEntity<>(rentalEventManager.readEvents(from, Math.min(limit, 1000))) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Live Rental Activity (Event Projection)-------
+    @GET
+    @Path("/events/activity")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRentalActivity() {
+        return Response.ok(rentalActivityProjection.snapshot()).build();
+    }
+
 }
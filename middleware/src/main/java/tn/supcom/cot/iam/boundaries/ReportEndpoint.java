@@ -0,0 +1,70 @@
+package tn.supcom.cot.iam.boundaries;
+
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import tn.supcom.cot.iam.controllers.managers.UsageRollupManager;
+import tn.supcom.cot.iam.entities.RollupCheckpoint;
+
+@Path("/reports")
+public class ReportEndpoint {
+    @EJB
+    private UsageRollupManager usageRollupManager;
+
+    //-------GET Station Usage Rollups-------
+    @GET
+    @Path("/stations/{stationId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStationRollups(
+            @PathParam("stationId") String stationId,
+            @QueryParam("from") Long from,
+            @QueryParam("to") Long to) {
+        var ret = new GenericEntity<>(usageRollupManager.getRollups(UsageRollupManager.STATION, stationId, from, to)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Bike Usage Rollups-------
+    @GET
+    @Path("/bikes/{bikeId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBikeRollups(
+            @PathParam("bikeId") String bikeId,
+            @QueryParam("from") Long from,
+            @QueryParam("to") Long to) {
+        var ret = new GenericEntity<>(usageRollupManager.getRollups(UsageRollupManager.BIKE, bikeId, from, to)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Fleet Usage Rollups-------
+    @GET
+    @Path("/fleet")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getFleetRollups(@QueryParam("from") Long from, @QueryParam("to") Long to) {
+        var ret = new GenericEntity<>(usageRollupManager.getRollups(UsageRollupManager.FLEET, "ALL", from, to)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Rollup Checkpoint-------
+    @GET
+    @Path("/checkpoint")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getCheckpoint() {
+        RollupCheckpoint checkpoint = usageRollupManager.getCheckpoint();
+        if (checkpoint == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Rollup has not run yet")
+                    .build();
+        }
+        return Response.ok(checkpoint).build();
+    }
+
+    //-------POST Run Rollup-------
+    @POST
+    @Path("/rollup/run")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response runRollup() {
+        return Response.ok(usageRollupManager.run()).build();
+    }
+}
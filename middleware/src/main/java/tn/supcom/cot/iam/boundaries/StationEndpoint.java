@@ -5,10 +5,15 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.GenericEntity;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import tn.supcom.cot.iam.controllers.forecasting.StationForecast;
+import tn.supcom.cot.iam.controllers.geo.StationDistance;
+import tn.supcom.cot.iam.controllers.managers.DemandForecastManager;
+import tn.supcom.cot.iam.controllers.managers.StationDistanceManager;
 import tn.supcom.cot.iam.controllers.managers.StationManager;
 import tn.supcom.cot.iam.entities.Station;
 
 import java.util.HashSet;
+import java.util.Optional;
 import java.util.Set;
 
 @Path("/stations")
@@ -16,6 +21,12 @@ public class StationEndpoint {
     @EJB
     private StationManager stationManager;
 
+    @EJB
+    private DemandForecastManager demandForecastManager;
+
+    @EJB
+    private StationDistanceManager stationDistanceManager;
+
     //-------GET Station by ID-------
     @GET
     @Path("/{stationId}")
@@ -96,4 +107,99 @@ public class StationEndpoint {
 
 
 
+
+    //-------GET Demand Forecast of all Stations-------
+    @GET
+    @Path("/forecast")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getForecasts() {
+        var ret = new GenericEntity<>(demandForecastManager.getForecasts()) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Predicted Shortages-------
+    @GET
+    @Path("/forecast/shortages")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getShortages() {
+        var ret = new GenericEntity<>(demandForecastManager.getShortages()) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Predicted Overflows-------
+    @GET
+    @Path("/forecast/overflows")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getOverflows() {
+        var ret = new GenericEntity<>(demandForecastManager.getOverflows()) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Demand Forecast by Station-------
+    @GET
+    @Path("/{stationId}/forecast")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getForecast(@PathParam("stationId") String stationId) {
+        Optional<StationForecast> forecast = demandForecastManager.getForecast(stationId);
+        if (forecast.isPresent()) {
+            return Response.ok(forecast.get()).build();
+        }
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity("No forecast for this station")
+                .build();
+    }
+
+    //-------GET Nearest Stations to a Station-------
+    @GET
+    @Path("/{stationId}/nearest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getNearestStations(
+            @PathParam("stationId") String stationId,
+            @QueryParam("k") @DefaultValue("5") int k) {
+        if (k < 1) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("k must be at least 1")
+                    .build();
+        }
+        var ret = new GenericEntity<>(stationDistanceManager.getNearestStations(stationId, k)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Nearest Stations to a Position-------
+    @GET
+    @Path("/nearest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getNearestStationsToPosition(
+            @QueryParam("latitude") Float latitude,
+            @QueryParam("longitude") Float longitude,
+            @QueryParam("k") @DefaultValue("5") int k) {
+        if (latitude == null || longitude == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("latitude and longitude are required")
+                    .build();
+        }
+        if (k < 1) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("k must be at least 1")
+                    .build();
+        }
+        var ret = new GenericEntity<>(stationDistanceManager.getNearestStations(latitude, longitude, k)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Distance between Stations-------
+    @GET
+    @Path("/{stationId}/distance/{otherStationId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDistance(
+            @PathParam("stationId") String stationId,
+            @PathParam("otherStationId") String otherStationId) {
+        StationDistance distance = stationDistanceManager.getDistance(stationId, otherStationId);
+        if (distance == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Station not found")
+                    .build();
+        }
+        return Response.ok(distance).build();
+    }
 }
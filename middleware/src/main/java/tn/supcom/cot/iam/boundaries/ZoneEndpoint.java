@@ -0,0 +1,111 @@
+package tn.supcom.cot.iam.boundaries;
+
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import tn.supcom.cot.iam.controllers.managers.GeofenceManager;
+import tn.supcom.cot.iam.entities.Zone;
+
+import java.util.Optional;
+
+@Path("/zones")
+public class ZoneEndpoint {
+    @EJB
+    private GeofenceManager geofenceManager;
+
+    //-------GET All Zones-------
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAllZones() {
+        var ret = new GenericEntity<>(geofenceManager.getZones()) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Zone by ID-------
+    @GET
+    @Path("/{zoneId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getZoneById(@PathParam("zoneId") String zoneId) {
+        Optional<Zone> zone = geofenceManager.getZone(zoneId);
+        if (zone.isPresent()) {
+            return Response.ok(zone.get()).build();
+        }
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity("Zone not found")
+                .build();
+    }
+
+    //-------POST Create Zone-------
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response createZone(Zone zone) {
+        if (zone == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Zone data is required")
+                    .build();
+        }
+        Zone saved = geofenceManager.createZone(zone);
+        return Response.status(Response.Status.CREATED).entity(saved).build();
+    }
+
+    //-------PUT Update Zone-------
+    @PUT
+    @Path("/{zoneId}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updateZone(@PathParam("zoneId") String zoneId, Zone zone) {
+        if (zone == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Zone data is required")
+                    .build();
+        }
+        zone.setZoneId(zoneId);
+        Zone updated = geofenceManager.updateZone(zone);
+        if (updated == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Zone not found")
+                    .build();
+        }
+        return Response.ok(updated).build();
+    }
+
+    //-------DELETE Zone-------
+    @DELETE
+    @Path("/{zoneId}")
+    public Response deleteZone(@PathParam("zoneId") String zoneId) {
+        if (!geofenceManager.deleteZone(zoneId)) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Zone not found")
+                    .build();
+        }
+        return Response.noContent().build();
+    }
+
+    //-------GET Zones containing a Point-------
+    @GET
+    @Path("/at")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getZonesAt(
+            @QueryParam("latitude") Double latitude,
+            @QueryParam("longitude") Double longitude) {
+        if (latitude == null || longitude == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("latitude and longitude are required")
+                    .build();
+        }
+        var ret = new GenericEntity<>(geofenceManager.getZonesAt(latitude, longitude)) {};
+        return Response.ok(ret).build();
+    }
+
+    //-------GET Zone Enter/Exit Events of a Rental-------
+    @GET
+    @Path("/events/rental/{rentalId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRentalEvents(@PathParam("rentalId") String rentalId) {
+        var ret = new GenericEntity<>(geofenceManager.getEvents(rentalId)) {};
+        return Response.ok(ret).build();
+    }
+}
@@ -0,0 +1,370 @@
+package tn.supcom.cot.iam.controllers.archive;
+
+import tn.supcom.cot.iam.entities.GPSPoint;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archived GPS fixes of one day in one region, stored column by column. Times are kept as
+ * varint deltas of epoch nanoseconds, coordinates as zig-zag varint deltas of their float bits
+ * (lossless), and ids as a dictionary plus one code per row. Each column is deflated on its own,
+ * so a lookup inflates only the columns it filters on before touching the others. Files are
+ * written once and replaced atomically when late fixes are merged in; reads go through a
+ * read-only mapping of the file.
+ *
+ * Layout: [int magic][int rows][long firstNanos][long lastNanos]
+ *         6 x [int offset][int deflatedLength][int rawLength], then the deflated columns.
+ */
+public final class GpsSegmentFile {
+
+    public static final int TIME = 0;
+    public static final int LATITUDE = 1;
+    public static final int LONGITUDE = 2;
+    public static final int POINT_ID = 3;
+    public static final int RENTAL_ID = 4;
+    public static final int BIKE_ID = 5;
+
+    private static final int COLUMNS = 6;
+    private static final int MAGIC = 0x56474131; // "VGA1"
+    private static final int HEADER_BYTES = 24 + COLUMNS * 12;
+
+    // Decoded dictionary column: distinct values and, per row, the index of its value or -1
+    private record Dictionary(String[] values, int[] codes) {
+        int codeOf(String value) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i].equals(value)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String get(int row) {
+            return codes[row] < 0 ? null : values[codes[row]];
+        }
+    }
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int rows;
+    private final long firstNanos;
+    private final long lastNanos;
+
+    private GpsSegmentFile(Path path, MappedByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a GPS archive segment: " + path);
+        }
+        this.path = path;
+        this.buffer = buffer;
+        this.rows = buffer.getInt(4);
+        this.firstNanos = buffer.getLong(8);
+        this.lastNanos = buffer.getLong(16);
+    }
+
+    public static GpsSegmentFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new GpsSegmentFile(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Points must have a timestamp; they are stored in time order
+    public static void write(Path path, List<GPSPoint> points) throws IOException {
+        List<GPSPoint> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparing(GPSPoint::getTimestamp));
+
+        byte[][] raw = new byte[COLUMNS][];
+        ByteArrayOutputStream column = new ByteArrayOutputStream(sorted.size() * 4);
+        long previousTime = 0;
+        for (GPSPoint point : sorted) {
+            long nanos = toNanos(point.getTimestamp());
+            writeVarLong(column, nanos - previousTime);
+            previousTime = nanos;
+        }
+        raw[TIME] = column.toByteArray();
+        raw[LATITUDE] = encodeFloats(sorted, true);
+        raw[LONGITUDE] = encodeFloats(sorted, false);
+        raw[POINT_ID] = encodeStrings(sorted, POINT_ID);
+        raw[RENTAL_ID] = encodeStrings(sorted, RENTAL_ID);
+        raw[BIKE_ID] = encodeStrings(sorted, BIKE_ID);
+
+        byte[][] deflated = new byte[COLUMNS][];
+        int size = HEADER_BYTES;
+        for (int c = 0; c < COLUMNS; c++) {
+            deflated[c] = deflate(raw[c]);
+            size += deflated[c].length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putInt(sorted.size())
+                .putLong(sorted.isEmpty() ? 0 : toNanos(sorted.get(0).getTimestamp()))
+                .putLong(sorted.isEmpty() ? 0 : previousTime);
+        int offset = HEADER_BYTES;
+        for (int c = 0; c < COLUMNS; c++) {
+            out.putInt(offset).putInt(deflated[c].length).putInt(raw[c].length);
+            offset += deflated[c].length;
+        }
+        for (byte[] bytes : deflated) {
+            out.put(bytes);
+        }
+        out.flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public LocalDateTime getFirst() {
+        return fromNanos(firstNanos);
+    }
+
+    public LocalDateTime getLast() {
+        return fromNanos(lastNanos);
+    }
+
+    public boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return rows > 0 && (from == null || !getLast().isBefore(from)) && (to == null || !getFirst().isAfter(to));
+    }
+
+    // Distinct non-null values of an id column, without decoding the other columns
+    public Set<String> distinct(int column) {
+        return new LinkedHashSet<>(List.of(dictionary(column).values()));
+    }
+
+    // Rows whose id column equals value; the remaining columns are decoded only if any row matches
+    public List<GPSPoint> select(int column, String value) {
+        Dictionary dictionary = dictionary(column);
+        int code = dictionary.codeOf(value);
+        if (code < 0) {
+            return List.of();
+        }
+        int[] matches = new int[rows];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (dictionary.codes()[row] == code) {
+                matches[count++] = row;
+            }
+        }
+        return points(matches, count);
+    }
+
+    public List<GPSPoint> selectAll() {
+        int[] all = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            all[row] = row;
+        }
+        return points(all, rows);
+    }
+
+    private List<GPSPoint> points(int[] selected, int count) {
+        List<GPSPoint> points = new ArrayList<>(count);
+        if (count == 0) {
+            return points;
+        }
+        long[] times = times();
+        Float[] latitudes = floats(LATITUDE);
+        Float[] longitudes = floats(LONGITUDE);
+        Dictionary ids = dictionary(POINT_ID);
+        Dictionary rentals = dictionary(RENTAL_ID);
+        Dictionary bikes = dictionary(BIKE_ID);
+        for (int i = 0; i < count; i++) {
+            int row = selected[i];
+            points.add(GPSPoint.builder()
+                    .gpsPointId(ids.get(row))
+                    .timestamp(fromNanos(times[row]))
+                    .latitude(latitudes[row])
+                    .longitude(longitudes[row])
+                    .rentalId(rentals.get(row))
+                    .bikeId(bikes.get(row))
+                    .build());
+        }
+        return points;
+    }
+
+    private long[] times() {
+        ByteBuffer in = ByteBuffer.wrap(inflate(TIME));
+        long[] times = new long[rows];
+        long time = 0;
+        for (int row = 0; row < rows; row++) {
+            time += readVarLong(in);
+            times[row] = time;
+        }
+        return times;
+    }
+
+    // Missing coordinates are stored as NaN and come back as null
+    private Float[] floats(int column) {
+        ByteBuffer in = ByteBuffer.wrap(inflate(column));
+        Float[] values = new Float[rows];
+        int bits = 0;
+        for (int row = 0; row < rows; row++) {
+            int zigzag = (int) readVarLong(in);
+            bits += (zigzag >>> 1) ^ -(zigzag & 1);
+            float value = Float.intBitsToFloat(bits);
+            values[row] = Float.isNaN(value) ? null : value;
+        }
+        return values;
+    }
+
+    private Dictionary dictionary(int column) {
+        ByteBuffer in = ByteBuffer.wrap(inflate(column));
+        String[] values = new String[(int) readVarLong(in)];
+        for (int i = 0; i < values.length; i++) {
+            byte[] utf8 = new byte[(int) readVarLong(in)];
+            in.get(utf8);
+            values[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+        int[] codes = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            codes[row] = (int) readVarLong(in) - 1;
+        }
+        return new Dictionary(values, codes);
+    }
+
+    private byte[] inflate(int column) {
+        int entry = 24 + column * 12;
+        int offset = buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        byte[] raw = new byte[buffer.getInt(entry + 8)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice(offset, length));
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, raw.length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != raw.length) {
+                throw new IllegalStateException("Truncated column " + column + " in " + path);
+            }
+            return raw;
+        } catch (DataFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalStateException("Corrupt column " + column + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] encodeFloats(List<GPSPoint> points, boolean latitude) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(points.size() * 2);
+        int previous = 0;
+        for (GPSPoint point : points) {
+            Float value = latitude ? point.getLatitude() : point.getLongitude();
+            int bits = Float.floatToIntBits(value != null ? value : Float.NaN);
+            int delta = bits - previous;
+            writeVarLong(out, ((delta << 1) ^ (delta >> 31)) & 0xFFFFFFFFL);
+            previous = bits;
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeStrings(List<GPSPoint> points, int column) {
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        int[] rowCodes = new int[points.size()];
+        for (int row = 0; row < rowCodes.length; row++) {
+            GPSPoint point = points.get(row);
+            String value = column == POINT_ID ? point.getGpsPointId()
+                    : column == RENTAL_ID ? point.getRentalId()
+                    : point.getBikeId();
+            rowCodes[row] = value == null ? 0 : 1 + codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarLong(out, values.size());
+        for (String value : values) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, utf8.length);
+            out.writeBytes(utf8);
+        }
+        for (int code : rowCodes) {
+            writeVarLong(out, code);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    // Timestamps carry no zone; UTC only serves as a fixed reference so they round-trip exactly
+    private static long toNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    private static LocalDateTime fromNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,60 @@
+package tn.supcom.cot.iam.controllers.archive;
+
+import java.util.Collection;
+
+/**
+ * Bloom filter over the point ids of one archive segment, so a lookup by id skips the segments
+ * that cannot hold it without inflating their id column. At least 8 bits per id and 5 probes give
+ * at most about 2% false positives and never a false negative.
+ */
+public final class PointIdFilter {
+
+    private static final int BITS_PER_ID = 8;
+    private static final int PROBES = 5;
+
+    private final long[] words;
+    private final int mask;
+
+    public PointIdFilter(Collection<String> ids) {
+        int bits = Integer.highestOneBit(Math.max(64, ids.size() * BITS_PER_ID - 1)) << 1;
+        words = new long[bits >>> 6];
+        mask = bits - 1;
+        for (String id : ids) {
+            long hash = hash(id);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < PROBES; i++) {
+                int bit = (h1 + i * h2) & mask;
+                words[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    public boolean mightContain(String id) {
+        long hash = hash(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 64-bit mix of the string's characters (FNV-1a followed by a murmur finalizer)
+    private static long hash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
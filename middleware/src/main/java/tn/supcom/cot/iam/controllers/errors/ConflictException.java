@@ -0,0 +1,13 @@
+package tn.supcom.cot.iam.controllers.errors;
+
+import jakarta.ejb.ApplicationException;
+
+// The request is valid but clashes with the current state of a record; reaches the client as 409.
+// As an application exception it leaves the EJB container unwrapped.
+@ApplicationException
+public class ConflictException extends IllegalStateException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
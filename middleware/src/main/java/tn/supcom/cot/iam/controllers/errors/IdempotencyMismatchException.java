@@ -0,0 +1,13 @@
+package tn.supcom.cot.iam.controllers.errors;
+
+import jakarta.ejb.ApplicationException;
+
+// An Idempotency-Key or payment id is reused with a different request body; reaches the client as 422.
+// As an application exception it leaves the EJB container unwrapped.
+@ApplicationException
+public class IdempotencyMismatchException extends IllegalStateException {
+
+    public IdempotencyMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package tn.supcom.cot.iam.controllers.errors;
+
+import jakarta.ejb.ApplicationException;
+
+// The request carries a value the server can never accept; reaches the client as 400.
+// As an application exception it leaves the EJB container unwrapped.
+@ApplicationException
+public class InvalidRequestException extends IllegalArgumentException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,68 @@
+package tn.supcom.cot.iam.controllers.events;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Live rental activity built from the event log: transition counts, rides in progress and station flows
+@ApplicationScoped
+public class RentalActivityProjection implements RentalEventConsumer {
+
+    private final Map<RentalEventType, Long> eventCounts = new EnumMap<>(RentalEventType.class);
+    private final Set<String> activeRentals = new HashSet<>();
+    private final Set<String> reservedRentals = new HashSet<>();
+    private final Map<String, Long> pickupsByStation = new HashMap<>();
+    private final Map<String, Long> returnsByStation = new HashMap<>();
+    private long lastOffset = -1;
+
+    @Override
+    public String getName() {
+        return "rental-activity";
+    }
+
+    @Override
+    public synchronized void onEvent(RentalEvent event) {
+        if (event.getOffset() != null && event.getOffset() <= lastOffset) {
+            return;
+        }
+        eventCounts.merge(event.getType(), 1L, Long::sum);
+        switch (event.getType()) {
+            case RESERVED -> reservedRentals.add(event.getRentalId());
+            case STARTED -> {
+                reservedRentals.remove(event.getRentalId());
+                activeRentals.add(event.getRentalId());
+                if (event.getStartStationId() != null) {
+                    pickupsByStation.merge(event.getStartStationId(), 1L, Long::sum);
+                }
+            }
+            case ENDED, COMPLETED -> {
+                activeRentals.remove(event.getRentalId());
+                if (event.getEndStationId() != null) {
+                    returnsByStation.merge(event.getEndStationId(), 1L, Long::sum);
+                }
+            }
+            case EXPIRED -> reservedRentals.remove(event.getRentalId());
+            default -> {
+            }
+        }
+        if (event.getOffset() != null) {
+            lastOffset = event.getOffset();
+        }
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("lastOffset", lastOffset);
+        snapshot.put("activeRentals", activeRentals.size());
+        snapshot.put("reservedRentals", reservedRentals.size());
+        snapshot.put("eventCounts", new EnumMap<>(eventCounts));
+        snapshot.put("pickupsByStation", new HashMap<>(pickupsByStation));
+        snapshot.put("returnsByStation", new HashMap<>(returnsByStation));
+        return snapshot;
+    }
+}
@@ -0,0 +1,57 @@
+package tn.supcom.cot.iam.controllers.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tn.supcom.cot.iam.controllers.status.RentalStatus;
+import tn.supcom.cot.iam.entities.Rental;
+
+import java.time.ZoneId;
+
+// Snapshot of a rental right after one lifecycle transition, as stored in the rental event log
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RentalEvent {
+    private Long offset; // position in the log, filled in when read back
+    private RentalEventType type;
+    private Long timestamp; // epoch millis
+    private String rentalId;
+    private String userId;
+    private String bikeId;
+    private String startStationId;
+    private String endStationId;
+    private String rentalStatus;
+    private Long startDateTime; // epoch millis
+    private Long endDateTime; // epoch millis
+    private Integer duration;
+    private Float distanceTraveled;
+    private Float totalPrice;
+    private String paymentId;
+    private String photoUrl;
+
+    public static RentalEvent of(RentalEventType type, Rental rental) {
+        return RentalEvent.builder()
+                .type(type)
+                .timestamp(System.currentTimeMillis())
+                .rentalId(rental.getRentalId())
+                .userId(rental.getUserId())
+                .bikeId(rental.getBikeId())
+                .startStationId(rental.getStartStationId())
+                .endStationId(rental.getEndStationId())
+                .rentalStatus(rental.getRentalStatus())
+                .startDateTime(rental.getStartDateTime() != null
+                        ? rental.getStartDateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null)
+                .endDateTime(rental.getEndDateTime() != null
+                        ? rental.getEndDateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null)
+                .duration(rental.getDuration())
+                .distanceTraveled(rental.getDistanceTraveled())
+                .totalPrice(rental.getTotalPrice())
+                .paymentId(rental.getPaymentId())
+                .photoUrl(type == RentalEventType.INITIAL_PHOTO_ADDED ? rental.getInitialPhoto()
+                        : type == RentalEventType.FINAL_PHOTO_ADDED ? rental.getFinalPhoto() : null)
+                .build();
+    }
+}
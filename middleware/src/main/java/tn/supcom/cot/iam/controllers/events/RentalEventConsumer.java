@@ -0,0 +1,19 @@
+package tn.supcom.cot.iam.controllers.events;
+
+/**
+ * Downstream reader of the rental event log. Implementations are CDI beans discovered by
+ * RentalEventManager and fed events in log order, at least once.
+ */
+public interface RentalEventConsumer {
+
+    // Identifies the consumer's stored position in the log
+    String getName();
+
+    void onEvent(RentalEvent event);
+
+    // In-memory projections replay the log from the start on every boot;
+    // durable consumers resume from their last stored position
+    default boolean isDurable() {
+        return false;
+    }
+}
@@ -0,0 +1,12 @@
+package tn.supcom.cot.iam.controllers.events;
+
+public enum RentalEventType {
+    RESERVED,
+    STARTED,
+    ENDED,
+    COMPLETED,
+    EXPIRED,
+    INITIAL_PHOTO_ADDED,
+    FINAL_PHOTO_ADDED,
+    PAID
+}
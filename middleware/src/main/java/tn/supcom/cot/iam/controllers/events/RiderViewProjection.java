@@ -0,0 +1,267 @@
+package tn.supcom.cot.iam.controllers.events;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
+import tn.supcom.cot.iam.controllers.repositories.RiderViewRepository;
+import tn.supcom.cot.iam.controllers.status.RentalStatus;
+import tn.supcom.cot.iam.entities.Rental;
+import tn.supcom.cot.iam.entities.RideSummary;
+import tn.supcom.cot.iam.entities.RiderView;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps one RiderView document per user up to date from the rental event log, so the profile,
+ * billing and ride-details pages render from a single lookup instead of joining rentals and
+ * payments on every request. A rider seen for the first time is built from their rental documents,
+ * so history older than the log is kept. Events are delivered at least once and each view skips
+ * offsets it has already applied; after replacing the log, delete the RiderView documents so they
+ * are rebuilt against the new offsets.
+ */
+@ApplicationScoped
+public class RiderViewProjection implements RentalEventConsumer {
+
+    public static final int RECENT_RIDES = 20;
+
+    @Inject
+    private RiderViewRepository riderViewRepository;
+
+    @Inject
+    private RentalRepository rentalRepository;
+
+    @Override
+    public String getName() {
+        return "rider-view";
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public synchronized void onEvent(RentalEvent event) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        Optional<RiderView> stored = riderViewRepository.findById(event.getUserId());
+        if (stored.isEmpty()) {
+            // The rental documents are written before the event is published, so they already reflect it
+            riderViewRepository.save(build(event.getUserId(), event.getOffset() != null ? event.getOffset() : -1L));
+            return;
+        }
+        RiderView view = stored.get();
+        if (isApplied(view, event)) {
+            return;
+        }
+        switch (event.getType()) {
+            case RESERVED -> setActive(view, event, toDateTime(event.getTimestamp()));
+            case STARTED -> setActive(view, event, toDateTime(event.getStartDateTime()));
+            case EXPIRED -> clearActive(view, event.getRentalId());
+            case ENDED, COMPLETED -> {
+                clearActive(view, event.getRentalId());
+                recordRide(view, event);
+            }
+            case PAID -> recordPayment(view, event);
+            default -> {
+            }
+        }
+        markApplied(view, event);
+        view.setUpdatedAt(LocalDateTime.now());
+        riderViewRepository.save(view);
+    }
+
+    // Offsets are applied in log order, anything at or below the last one was already counted
+    private static boolean isApplied(RiderView view, RentalEvent event) {
+        return event.getOffset() != null && view.getLastOffset() != null && event.getOffset() <= view.getLastOffset();
+    }
+
+    private static void markApplied(RiderView view, RentalEvent event) {
+        if (event.getOffset() != null) {
+            view.setLastOffset(event.getOffset());
+        }
+        view.setLastEventTime(event.getTimestamp());
+    }
+
+    public Optional<RiderView> getView(String userId) {
+        return riderViewRepository.findById(userId);
+    }
+
+    // Builds the view from the rental documents, for riders whose history predates the event log.
+    // Events up to lastOffset are treated as already reflected in those documents.
+    public synchronized RiderView rebuild(String userId, long lastOffset) {
+        return riderViewRepository.save(build(userId, lastOffset));
+    }
+
+    private RiderView build(String userId, long lastOffset) {
+        List<Rental> rentals = rentalRepository.findByUserId(userId).collect(Collectors.toList());
+        RiderView view = empty(userId);
+        List<Rental> finished = new ArrayList<>();
+        Rental active = null;
+        for (Rental rental : rentals) {
+            if (rental.getEndDateTime() != null) {
+                finished.add(rental);
+            } else if (RentalStatus.of(rental.getRentalStatus()) == RentalStatus.ACTIVE
+                    || (RentalStatus.of(rental.getRentalStatus()) == RentalStatus.RESERVED && active == null)) {
+                active = rental;
+            }
+        }
+        finished.sort(Comparator.comparing(Rental::getEndDateTime));
+        for (Rental rental : finished) {
+            recordRide(view, RentalEvent.of(RentalEventType.COMPLETED, rental));
+        }
+        if (active != null) {
+            RentalEvent event = RentalEvent.of(RentalEventType.STARTED, active);
+            setActive(view, event, active.getStartDateTime() != null
+                    ? active.getStartDateTime() : active.getReservationDateTime());
+        }
+        view.setLastOffset(lastOffset);
+        view.setLastEventTime(System.currentTimeMillis());
+        view.setUpdatedAt(LocalDateTime.now());
+        return view;
+    }
+
+    private static RiderView empty(String userId) {
+        return RiderView.builder()
+                .userId(userId)
+                .rideCount(0L)
+                .totalMinutes(0L)
+                .totalDistance(0f)
+                .totalSpent(0f)
+                .recentRides(new ArrayList<>())
+                .countedPrices(new HashMap<>())
+                .build();
+    }
+
+    private static void setActive(RiderView view, RentalEvent event, LocalDateTime since) {
+        view.setActiveRentalId(event.getRentalId());
+        view.setActiveRentalStatus(event.getRentalStatus());
+        view.setActiveBikeId(event.getBikeId());
+        view.setActiveStationId(event.getStartStationId());
+        view.setActiveSince(since);
+    }
+
+    private static void clearActive(RiderView view, String rentalId) {
+        if (rentalId != null && rentalId.equals(view.getActiveRentalId())) {
+            view.setActiveRentalId(null);
+            view.setActiveRentalStatus(null);
+            view.setActiveBikeId(null);
+            view.setActiveStationId(null);
+            view.setActiveSince(null);
+        }
+    }
+
+    // A ride already counted (ended, then completed or re-priced) only contributes its difference.
+    // The price counted is kept for every ride, not only the recent ones, so a ride that left the
+    // recent list is never counted again; its duration and distance no longer change by then.
+    private static void recordRide(RiderView view, RentalEvent event) {
+        List<RideSummary> rides = rides(view);
+        RideSummary previous = find(rides, event.getRentalId());
+        Float counted = countedPrices(view).get(event.getRentalId());
+        RideSummary ride = RideSummary.builder()
+                .rentalId(event.getRentalId())
+                .bikeId(event.getBikeId())
+                .startStationId(event.getStartStationId())
+                .endStationId(event.getEndStationId())
+                .startDateTime(toDateTime(event.getStartDateTime()))
+                .endDateTime(toDateTime(event.getEndDateTime()))
+                .duration(event.getDuration())
+                .distanceTraveled(event.getDistanceTraveled())
+                .totalPrice(event.getTotalPrice())
+                .paymentId(event.getPaymentId())
+                .build();
+        if (previous != null) {
+            rides.remove(previous);
+        }
+        if (previous == null && counted == null) {
+            view.setRideCount(view.getRideCount() + 1);
+            view.setTotalMinutes(view.getTotalMinutes() + value(ride.getDuration()));
+            view.setTotalDistance(view.getTotalDistance() + value(ride.getDistanceTraveled()));
+        } else if (previous != null) {
+            view.setTotalMinutes(view.getTotalMinutes() + value(ride.getDuration()) - value(previous.getDuration()));
+            view.setTotalDistance(view.getTotalDistance() + value(ride.getDistanceTraveled())
+                    - value(previous.getDistanceTraveled()));
+        }
+        countPrice(view, event.getRentalId(), ride.getTotalPrice());
+        rides.add(0, ride);
+        while (rides.size() > RECENT_RIDES) {
+            rides.remove(rides.size() - 1);
+        }
+    }
+
+    private static void recordPayment(RiderView view, RentalEvent event) {
+        if (event.getRentalId() == null || !countedPrices(view).containsKey(event.getRentalId())) {
+            // Not finished yet, counted once the ride finishes, with its final price
+            return;
+        }
+        countPrice(view, event.getRentalId(), event.getTotalPrice());
+        RideSummary ride = find(rides(view), event.getRentalId());
+        if (ride != null) {
+            ride.setTotalPrice(event.getTotalPrice());
+            ride.setPaymentId(event.getPaymentId());
+        }
+    }
+
+    // Moves totalSpent by the difference with the price already counted for the rental, if any
+    private static void countPrice(RiderView view, String rentalId, Float price) {
+        Map<String, Float> counted = countedPrices(view);
+        Float previous = rentalId != null ? counted.get(rentalId) : null;
+        view.setTotalSpent(view.getTotalSpent() + value(price) - value(previous));
+        if (rentalId != null) {
+            counted.put(rentalId, value(price));
+        }
+    }
+
+    // Views stored before prices were tracked per rental start from their recent rides
+    private static Map<String, Float> countedPrices(RiderView view) {
+        if (view.getCountedPrices() == null) {
+            Map<String, Float> counted = new HashMap<>();
+            for (RideSummary ride : rides(view)) {
+                if (ride.getRentalId() != null) {
+                    counted.put(ride.getRentalId(), value(ride.getTotalPrice()));
+                }
+            }
+            view.setCountedPrices(counted);
+        }
+        return view.getCountedPrices();
+    }
+
+    private static List<RideSummary> rides(RiderView view) {
+        if (view.getRecentRides() == null) {
+            view.setRecentRides(new ArrayList<>());
+        }
+        return view.getRecentRides();
+    }
+
+    private static RideSummary find(List<RideSummary> rides, String rentalId) {
+        for (RideSummary ride : rides) {
+            if (ride.getRentalId() != null && ride.getRentalId().equals(rentalId)) {
+                return ride;
+            }
+        }
+        return null;
+    }
+
+    private static LocalDateTime toDateTime(Long epochMillis) {
+        return epochMillis != null
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()) : null;
+    }
+
+    private static long value(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static float value(Float value) {
+        return value != null ? value : 0f;
+    }
+}
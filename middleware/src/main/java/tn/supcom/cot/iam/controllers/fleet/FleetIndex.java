@@ -0,0 +1,176 @@
+package tn.supcom.cot.iam.controllers.fleet;
+
+import tn.supcom.cot.iam.controllers.status.BikeStatus;
+import tn.supcom.cot.iam.entities.Bike;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every bike of the fleet in one slot each. Status and station are kept as small integer codes
+ * with one BitSet of slots per status and per station, and battery levels in a byte array, so
+ * "available bikes at a station with enough battery" is a BitSet intersection and a scan of the
+ * matching slots. Bikes are copied in and out, callers never share the stored instances.
+ * Not thread-safe; FleetStateManager serialises access.
+ */
+public class FleetIndex {
+
+    private static final byte NO_BATTERY = -1;
+    private static final int NO_STATION = -1;
+    private static final int ANY_BATTERY = Integer.MIN_VALUE;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private Bike[] bikes = new Bike[64];
+    private byte[] statuses = new byte[64];
+    private int[] stations = new int[64];
+    private byte[] batteries = new byte[64];
+
+    private final BitSet[] byStatus = new BitSet[BikeStatus.values().length];
+    private final Map<String, Integer> stationCodes = new HashMap<>();
+    private final List<BitSet> byStation = new ArrayList<>();
+
+    public FleetIndex() {
+        for (int i = 0; i < byStatus.length; i++) {
+            byStatus[i] = new BitSet();
+        }
+    }
+
+    public void put(Bike bike) {
+        Integer slot = slots.get(bike.getBikeId());
+        if (slot != null) {
+            unindex(slot);
+        } else {
+            slot = live.nextClearBit(0);
+            grow(slot + 1);
+            slots.put(bike.getBikeId(), slot);
+            live.set(slot);
+        }
+        bikes[slot] = copy(bike);
+        statuses[slot] = (byte) BikeStatus.of(bike.getStatus()).ordinal();
+        stations[slot] = bike.getStationId() != null ? stationCode(bike.getStationId()) : NO_STATION;
+        batteries[slot] = bike.getBatteryLevel() != null
+                ? (byte) Math.max(0, Math.min(100, bike.getBatteryLevel())) : NO_BATTERY;
+        byStatus[statuses[slot]].set(slot);
+        if (stations[slot] != NO_STATION) {
+            byStation.get(stations[slot]).set(slot);
+        }
+    }
+
+    public boolean remove(String bikeId) {
+        Integer slot = slots.remove(bikeId);
+        if (slot == null) {
+            return false;
+        }
+        unindex(slot);
+        bikes[slot] = null;
+        live.clear(slot);
+        return true;
+    }
+
+    private void unindex(int slot) {
+        byStatus[statuses[slot]].clear(slot);
+        if (stations[slot] != NO_STATION) {
+            byStation.get(stations[slot]).clear(slot);
+        }
+    }
+
+    public Bike get(String bikeId) {
+        Integer slot = slots.get(bikeId);
+        return slot != null ? copy(bikes[slot]) : null;
+    }
+
+    public boolean contains(String bikeId) {
+        return slots.containsKey(bikeId);
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    public List<Bike> all() {
+        return collect(live, ANY_BATTERY);
+    }
+
+    public List<Bike> byStatus(BikeStatus status) {
+        return collect(byStatus[status.ordinal()], ANY_BATTERY);
+    }
+
+    public List<Bike> byStation(String stationId) {
+        return collect(stationSlots(stationId), ANY_BATTERY);
+    }
+
+    // Bikes of the station in the given status whose battery is above minBattery
+    public List<Bike> byStationAndStatus(String stationId, BikeStatus status, int minBattery) {
+        return collect(intersect(stationId, status), minBattery);
+    }
+
+    public int countByStationAndStatus(String stationId, BikeStatus status, int minBattery) {
+        BitSet matches = intersect(stationId, status);
+        int count = 0;
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            if (batteries[slot] > minBattery) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public Map<BikeStatus, Integer> countByStatus() {
+        Map<BikeStatus, Integer> counts = new EnumMap<>(BikeStatus.class);
+        for (BikeStatus status : BikeStatus.values()) {
+            counts.put(status, byStatus[status.ordinal()].cardinality());
+        }
+        return counts;
+    }
+
+    private BitSet intersect(String stationId, BikeStatus status) {
+        BitSet matches = (BitSet) stationSlots(stationId).clone();
+        matches.and(byStatus[status.ordinal()]);
+        return matches;
+    }
+
+    private BitSet stationSlots(String stationId) {
+        Integer code = stationId != null ? stationCodes.get(stationId) : null;
+        return code != null ? byStation.get(code) : new BitSet();
+    }
+
+    // Bikes with no reported level only pass ANY_BATTERY
+    private List<Bike> collect(BitSet selected, int minBattery) {
+        List<Bike> found = new ArrayList<>(selected.cardinality());
+        for (int slot = selected.nextSetBit(0); slot >= 0; slot = selected.nextSetBit(slot + 1)) {
+            if (batteries[slot] > minBattery) {
+                found.add(copy(bikes[slot]));
+            }
+        }
+        return found;
+    }
+
+    // Station codes are never recycled, the set of stations only grows
+    private int stationCode(String stationId) {
+        return stationCodes.computeIfAbsent(stationId, id -> {
+            byStation.add(new BitSet());
+            return byStation.size() - 1;
+        });
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= bikes.length) {
+            return;
+        }
+        int length = Math.max(capacity, bikes.length * 2);
+        bikes = Arrays.copyOf(bikes, length);
+        statuses = Arrays.copyOf(statuses, length);
+        stations = Arrays.copyOf(stations, length);
+        batteries = Arrays.copyOf(batteries, length);
+    }
+
+    private static Bike copy(Bike bike) {
+        return bike.toBuilder().build();
+    }
+}
@@ -0,0 +1,125 @@
+package tn.supcom.cot.iam.controllers.forecasting;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hourly pickup and return rates per station, one exponentially smoothed rate per hour of the
+ * week (168 slots), so Saturday 15:00 at the beach learns from past Saturdays at 15:00 only.
+ * Counts accumulate for the current hour; when the hour closes every known station's slot is
+ * smoothed with its count, zero included. Not thread-safe, callers synchronize.
+ */
+public class StationDemandModel {
+
+    public static final int SLOTS = 7 * 24;
+
+    // Beyond this gap (server down for weeks) the oldest empty hours carry no information
+    private static final int MAX_CATCH_UP_HOURS = 4 * SLOTS;
+
+    private final double alpha;
+    private final ZoneId zone;
+    private final Map<String, double[]> pickupRates = new HashMap<>();
+    private final Map<String, double[]> returnRates = new HashMap<>();
+    private final Map<String, int[]> counts = new HashMap<>(); // [pickups, returns] in the current hour
+    private long currentHour = -1; // hours since the epoch
+
+    public StationDemandModel(double alpha, ZoneId zone) {
+        this.alpha = alpha;
+        this.zone = zone;
+    }
+
+    public void recordPickup(String stationId, long epochMillis) {
+        record(stationId, epochMillis, 0);
+    }
+
+    public void recordReturn(String stationId, long epochMillis) {
+        record(stationId, epochMillis, 1);
+    }
+
+    private void record(String stationId, long epochMillis, int index) {
+        if (stationId == null) {
+            return;
+        }
+        long hour = Math.floorDiv(epochMillis, 3_600_000L);
+        advanceTo(hour);
+        if (hour < currentHour) {
+            // The hour is already folded into the rates
+            return;
+        }
+        track(stationId);
+        counts.get(stationId)[index]++;
+    }
+
+    public void track(String stationId) {
+        if (!pickupRates.containsKey(stationId)) {
+            double[] pickups = new double[SLOTS];
+            double[] returns = new double[SLOTS];
+            Arrays.fill(pickups, Double.NaN);
+            Arrays.fill(returns, Double.NaN);
+            pickupRates.put(stationId, pickups);
+            returnRates.put(stationId, returns);
+            counts.put(stationId, new int[2]);
+        }
+    }
+
+    public Set<String> getStations() {
+        return pickupRates.keySet();
+    }
+
+    // Closes every hour before the given one
+    public void advanceTo(long hour) {
+        if (currentHour < 0 || hour - currentHour > MAX_CATCH_UP_HOURS) {
+            if (currentHour >= 0) {
+                close(currentHour);
+            }
+            currentHour = hour;
+            return;
+        }
+        while (currentHour < hour) {
+            close(currentHour);
+            currentHour++;
+        }
+    }
+
+    private void close(long hour) {
+        int slot = slotOf(hour);
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            int[] count = entry.getValue();
+            smooth(pickupRates.get(entry.getKey()), slot, count[0]);
+            smooth(returnRates.get(entry.getKey()), slot, count[1]);
+            count[0] = 0;
+            count[1] = 0;
+        }
+    }
+
+    private void smooth(double[] rates, int slot, int observed) {
+        rates[slot] = Double.isNaN(rates[slot]) ? observed : alpha * observed + (1 - alpha) * rates[slot];
+    }
+
+    public double expectedPickups(String stationId, long hour) {
+        return rate(pickupRates.get(stationId), hour);
+    }
+
+    public double expectedReturns(String stationId, long hour) {
+        return rate(returnRates.get(stationId), hour);
+    }
+
+    private double rate(double[] rates, long hour) {
+        if (rates == null) {
+            return 0;
+        }
+        double rate = rates[slotOf(hour)];
+        return Double.isNaN(rate) ? 0 : rate;
+    }
+
+    // Monday 00:00 is slot 0, in the stations' local time
+    public int slotOf(long hour) {
+        LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochSecond(hour * 3600L), zone);
+        return (start.getDayOfWeek().getValue() - 1) * 24 + start.getHour();
+    }
+}
@@ -0,0 +1,143 @@
+package tn.supcom.cot.iam.controllers.forecasting;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.events.RentalEvent;
+import tn.supcom.cot.iam.controllers.events.RentalEventConsumer;
+import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
+import tn.supcom.cot.iam.entities.Station;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Feeds StationDemandModel: at startup from the last weeks of rental history, then from pickups
+ * and returns on the rental event log. Events older than startup are skipped because the history
+ * load already counted them.
+ */
+@ApplicationScoped
+public class StationDemandTracker implements RentalEventConsumer {
+
+    @Inject
+    private RentalRepository rentalRepository;
+
+    @Inject
+    @ConfigProperty(name = "forecast.alpha", defaultValue = "0.3")
+    private Double alpha;
+
+    @Inject
+    @ConfigProperty(name = "forecast.history.weeks", defaultValue = "8")
+    private Integer historyWeeks;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private StationDemandModel model;
+    private long startedAt;
+
+    private record Observation(String stationId, long epochMillis, boolean pickup) {
+    }
+
+    @PostConstruct
+    public void init() {
+        model = new StationDemandModel(alpha, zone);
+        startedAt = System.currentTimeMillis();
+
+        List<Observation> history = new ArrayList<>();
+        rentalRepository.findByStartDateTimeGreaterThanEqual(LocalDateTime.now().minusWeeks(historyWeeks))
+                .forEach(rental -> {
+                    addObservation(history, rental.getStartStationId(), rental.getStartDateTime(), true);
+                    addObservation(history, rental.getEndStationId(), rental.getEndDateTime(), false);
+                });
+        history.sort(Comparator.comparingLong(Observation::epochMillis));
+        for (Observation observation : history) {
+            if (observation.pickup()) {
+                model.recordPickup(observation.stationId(), observation.epochMillis());
+            } else {
+                model.recordReturn(observation.stationId(), observation.epochMillis());
+            }
+        }
+        model.advanceTo(Math.floorDiv(startedAt, 3_600_000L));
+    }
+
+    private void addObservation(List<Observation> history, String stationId, LocalDateTime at, boolean pickup) {
+        if (stationId != null && at != null) {
+            long millis = at.atZone(zone).toInstant().toEpochMilli();
+            if (millis < startedAt) {
+                history.add(new Observation(stationId, millis, pickup));
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "station-demand";
+    }
+
+    @Override
+    public synchronized void onEvent(RentalEvent event) {
+        if (event.getTimestamp() == null || event.getTimestamp() < startedAt) {
+            return;
+        }
+        switch (event.getType()) {
+            case STARTED -> model.recordPickup(event.getStartStationId(), event.getTimestamp());
+            case ENDED, COMPLETED -> model.recordReturn(event.getEndStationId(), event.getTimestamp());
+            default -> {
+            }
+        }
+    }
+
+    // Closes finished hours and projects each station's bike count over the coming hours
+    public synchronized List<StationForecast> forecast(List<Station> stations, long nowMillis, int horizonHours,
+                                                       double shortageThreshold) {
+        long hour = Math.floorDiv(nowMillis, 3_600_000L);
+        model.advanceTo(hour);
+        double remaining = 1.0 - (double) Math.floorMod(nowMillis, 3_600_000L) / 3_600_000L;
+
+        List<StationForecast> forecasts = new ArrayList<>(stations.size());
+        for (Station station : stations) {
+            String stationId = station.getStationId();
+            model.track(stationId);
+            double bikes = station.getAvailableBikes() != null ? station.getAvailableBikes() : 0;
+            double pickups = 0;
+            double returns = 0;
+            double minimum = bikes;
+            Integer shortage = null;
+            Integer overflow = null;
+            List<Double> projected = new ArrayList<>(horizonHours);
+            for (int h = 0; h < horizonHours; h++) {
+                // Only the rest of the current hour is still to come
+                double share = h == 0 ? remaining : 1.0;
+                double out = share * model.expectedPickups(stationId, hour + h);
+                double in = share * model.expectedReturns(stationId, hour + h);
+                pickups += out;
+                returns += in;
+                bikes = Math.max(0, bikes + in - out);
+                projected.add(bikes);
+                minimum = Math.min(minimum, bikes);
+                if (shortage == null && bikes < shortageThreshold) {
+                    shortage = h;
+                }
+                if (overflow == null && station.getTotalCapacity() != null && bikes > station.getTotalCapacity()) {
+                    overflow = h;
+                }
+            }
+            forecasts.add(StationForecast.builder()
+                    .stationId(stationId)
+                    .name(station.getName())
+                    .availableBikes(station.getAvailableBikes())
+                    .totalCapacity(station.getTotalCapacity())
+                    .expectedPickups(pickups)
+                    .expectedReturns(returns)
+                    .projectedBikes(projected)
+                    .minimumBikes(minimum)
+                    .hoursUntilShortage(shortage)
+                    .hoursUntilOverflow(overflow)
+                    .build());
+        }
+        return forecasts;
+    }
+}
@@ -0,0 +1,26 @@
+package tn.supcom.cot.iam.controllers.forecasting;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Projected bike count of one station over the next hours
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationForecast {
+    private String stationId;
+    private String name;
+    private Integer availableBikes;
+    private Integer totalCapacity;
+    private Double expectedPickups;
+    private Double expectedReturns;
+    private List<Double> projectedBikes; // at the end of each forecast hour, the first one partial
+    private Double minimumBikes;
+    private Integer hoursUntilShortage; // first hour under the shortage threshold, null if none
+    private Integer hoursUntilOverflow; // first hour over capacity, null if none
+}
@@ -0,0 +1,183 @@
+package tn.supcom.cot.iam.controllers.geo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Symmetric station-to-station distances in km, stored row-major in one float[] with a stride
+ * equal to the allocated capacity. Adding or moving a station recomputes only its row and column;
+ * removing one moves the last station into its slot. Rows are filled by GeoKernel from the
+ * stations' precomputed unit vectors. Not thread-safe, callers synchronize.
+ */
+public class DistanceMatrix {
+
+    private final Map<String, Integer> index = new HashMap<>();
+    private String[] ids;
+    private float[] latitudes;
+    private float[] longitudes;
+    private final GeoPoints points;
+    private double[] row;
+    private float[] distances;
+    private int capacity;
+    private int size;
+
+    public DistanceMatrix(int initialCapacity) {
+        capacity = Math.max(1, initialCapacity);
+        ids = new String[capacity];
+        latitudes = new float[capacity];
+        longitudes = new float[capacity];
+        points = new GeoPoints(capacity);
+        row = new double[capacity];
+        distances = new float[capacity * capacity];
+    }
+
+    // Returns false when the station is already known at these coordinates
+    public boolean put(String stationId, float latitude, float longitude) {
+        Integer slot = index.get(stationId);
+        if (slot != null) {
+            if (latitudes[slot] == latitude && longitudes[slot] == longitude) {
+                return false;
+            }
+            points.set(slot, latitude, longitude);
+        } else {
+            ensureCapacity(size + 1);
+            slot = size++;
+            points.add(latitude, longitude);
+            ids[slot] = stationId;
+            index.put(stationId, slot);
+        }
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        GeoKernel.distancesKm(points, slot, row);
+        for (int j = 0; j < size; j++) {
+            float km = j == slot ? 0f : (float) row[j];
+            distances[slot * capacity + j] = km;
+            distances[j * capacity + slot] = km;
+        }
+        return true;
+    }
+
+    public boolean remove(String stationId) {
+        Integer slot = index.remove(stationId);
+        if (slot == null) {
+            return false;
+        }
+        int last = --size;
+        if (slot != last) {
+            ids[slot] = ids[last];
+            latitudes[slot] = latitudes[last];
+            longitudes[slot] = longitudes[last];
+            points.copy(last, slot);
+            index.put(ids[slot], slot);
+            for (int j = 0; j < size; j++) {
+                float km = j == slot ? 0f : distances[last * capacity + j];
+                distances[slot * capacity + j] = km;
+                distances[j * capacity + slot] = km;
+            }
+        }
+        points.removeLast();
+        ids[last] = null;
+        return true;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= capacity) {
+            return;
+        }
+        int grown = Math.max(needed, capacity * 2);
+        float[] resized = new float[grown * grown];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(distances, i * capacity, resized, i * grown, size);
+        }
+        distances = resized;
+        ids = Arrays.copyOf(ids, grown);
+        latitudes = Arrays.copyOf(latitudes, grown);
+        longitudes = Arrays.copyOf(longitudes, grown);
+        row = new double[grown];
+        capacity = grown;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int indexOf(String stationId) {
+        Integer slot = index.get(stationId);
+        return slot != null ? slot : -1;
+    }
+
+    public String idAt(int slot) {
+        return ids[slot];
+    }
+
+    public float distance(int from, int to) {
+        return distances[from * capacity + to];
+    }
+
+    public float distanceFrom(float latitude, float longitude, int slot) {
+        return (float) GeoMath.haversineKm(latitude, longitude, latitudes[slot], longitudes[slot]);
+    }
+
+    // NaN when either station is unknown
+    public float distance(String from, String to) {
+        int i = indexOf(from);
+        int j = indexOf(to);
+        return i < 0 || j < 0 ? Float.NaN : distance(i, j);
+    }
+
+    // Dense n x n copy for the given stations, in that order; unknown stations get NaN rows
+    public float[] submatrix(String[] stationIds) {
+        int n = stationIds.length;
+        int[] slots = new int[n];
+        for (int i = 0; i < n; i++) {
+            slots[i] = indexOf(stationIds[i]);
+        }
+        float[] result = new float[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                result[i * n + j] = slots[i] < 0 || slots[j] < 0 ? Float.NaN
+                        : distances[slots[i] * capacity + slots[j]];
+            }
+        }
+        return result;
+    }
+
+    // The k closest other stations, closest first, read from the station's row
+    public int[] nearest(int slot, int k) {
+        double[] stored = new double[size];
+        for (int j = 0; j < size; j++) {
+            stored[j] = distances[slot * capacity + j];
+        }
+        return closest(stored, slot, k);
+    }
+
+    // The k closest stations to an arbitrary point, ranked by chord length which orders them like distance
+    public int[] nearest(float latitude, float longitude, int k) {
+        double[] chords = new double[size];
+        GeoKernel.chordsSquared(latitude, longitude, points, chords);
+        return closest(chords, -1, k);
+    }
+
+    // Bounded max-heap keeps the k smallest distances seen so far
+    private static int[] closest(double[] row, int exclude, int k) {
+        PriorityQueue<Integer> heap = new PriorityQueue<>((a, b) -> Double.compare(row[b], row[a]));
+        for (int j = 0; j < row.length; j++) {
+            if (j == exclude) {
+                continue;
+            }
+            if (heap.size() < k) {
+                heap.add(j);
+            } else if (k > 0 && row[j] < row[heap.peek()]) {
+                heap.poll();
+                heap.add(j);
+            }
+        }
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll();
+        }
+        return result;
+    }
+}
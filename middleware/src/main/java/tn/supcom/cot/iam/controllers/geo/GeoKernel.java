@@ -0,0 +1,96 @@
+package tn.supcom.cot.iam.controllers.geo;
+
+/**
+ * Bulk great-circle distances over GeoPoints. With both ends stored as unit vectors the haversine
+ * term is a quarter of the squared chord between them, so a distance costs a few multiply-adds,
+ * one sqrt and one asin. Every loop first fills chords into a primitive array with straight-line
+ * arithmetic the JIT can vectorize, then converts them to km in a second pass.
+ */
+public final class GeoKernel {
+
+    private static final int BLOCK = 1024;
+
+    private GeoKernel() {
+    }
+
+    // Great-circle km for a squared chord between unit vectors; clamped against rounding past antipodes
+    public static double chordToKm(double chordSquared) {
+        return 2 * GeoMath.EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(chordSquared) * 0.5));
+    }
+
+    public static double trajectoryLengthKm(GeoPoints points) {
+        return trajectoryLengthKm(points, 0, points.size());
+    }
+
+    // Sum of the segments between consecutive points in [from, to)
+    public static double trajectoryLengthKm(GeoPoints points, int from, int to) {
+        double[] x = points.x;
+        double[] y = points.y;
+        double[] z = points.z;
+        double[] chords = new double[Math.min(BLOCK, Math.max(0, to - from - 1))];
+        double total = 0;
+        for (int start = from; start + 1 < to; start += BLOCK) {
+            int count = Math.min(BLOCK, to - 1 - start);
+            for (int i = 0; i < count; i++) {
+                int a = start + i;
+                double dx = x[a + 1] - x[a];
+                double dy = y[a + 1] - y[a];
+                double dz = z[a + 1] - z[a];
+                chords[i] = dx * dx + dy * dy + dz * dz;
+            }
+            for (int i = 0; i < count; i++) {
+                total += chordToKm(chords[i]);
+            }
+        }
+        return total;
+    }
+
+    // Squared chords from one point to every point; same order as the distances, without the asin
+    public static void chordsSquared(double latitude, double longitude, GeoPoints points, double[] out) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        double px = cosLat * Math.cos(lon);
+        double py = cosLat * Math.sin(lon);
+        double pz = Math.sin(lat);
+        double[] x = points.x;
+        double[] y = points.y;
+        double[] z = points.z;
+        int n = points.size();
+        for (int i = 0; i < n; i++) {
+            double dx = x[i] - px;
+            double dy = y[i] - py;
+            double dz = z[i] - pz;
+            out[i] = dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    // One-to-many distances in km; out must hold at least points.size() values
+    public static void distancesKm(double latitude, double longitude, GeoPoints points, double[] out) {
+        chordsSquared(latitude, longitude, points, out);
+        int n = points.size();
+        for (int i = 0; i < n; i++) {
+            out[i] = chordToKm(out[i]);
+        }
+    }
+
+    // Distances from the point at one index to every point, e.g. a matrix row
+    public static void distancesKm(GeoPoints points, int from, double[] out) {
+        double[] x = points.x;
+        double[] y = points.y;
+        double[] z = points.z;
+        double px = x[from];
+        double py = y[from];
+        double pz = z[from];
+        int n = points.size();
+        for (int i = 0; i < n; i++) {
+            double dx = x[i] - px;
+            double dy = y[i] - py;
+            double dz = z[i] - pz;
+            out[i] = dx * dx + dy * dy + dz * dz;
+        }
+        for (int i = 0; i < n; i++) {
+            out[i] = chordToKm(out[i]);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package tn.supcom.cot.iam.controllers.geo;
+
+import java.util.Arrays;
+
+/**
+ * Coordinates in structure-of-arrays form for GeoKernel. Each point is kept as its unit vector
+ * on the sphere (x = cos(lat)cos(lon), y = cos(lat)sin(lon), z = sin(lat)), so the trigonometry
+ * is paid once when a point is added and never again per distance. Not thread-safe.
+ */
+public class GeoPoints {
+
+    double[] x;
+    double[] y;
+    double[] z;
+    private int size;
+
+    public GeoPoints(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+    }
+
+    public static GeoPoints ofDegrees(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Latitudes and longitudes differ in length");
+        }
+        GeoPoints points = new GeoPoints(latitudes.length);
+        for (int i = 0; i < latitudes.length; i++) {
+            points.add(latitudes[i], longitudes[i]);
+        }
+        return points;
+    }
+
+    public int add(double latitude, double longitude) {
+        ensureCapacity(size + 1);
+        set(size, latitude, longitude);
+        return size++;
+    }
+
+    public void set(int i, double latitude, double longitude) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        x[i] = cosLat * Math.cos(lon);
+        y[i] = cosLat * Math.sin(lon);
+        z[i] = Math.sin(lat);
+    }
+
+    public void copy(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        z[to] = z[from];
+    }
+
+    // Drops the last point; callers that remove from the middle copy the last point over first
+    public void removeLast() {
+        if (size > 0) {
+            size--;
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > x.length) {
+            int grown = Math.max(needed, x.length * 2);
+            x = Arrays.copyOf(x, grown);
+            y = Arrays.copyOf(y, grown);
+            z = Arrays.copyOf(z, grown);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package tn.supcom.cot.iam.controllers.geo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationDistance {
+    private String stationId;
+    private Float distanceKm;
+    private Float travelMinutes;
+}
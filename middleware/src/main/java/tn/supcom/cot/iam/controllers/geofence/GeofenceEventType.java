@@ -0,0 +1,6 @@
+package tn.supcom.cot.iam.controllers.geofence;
+
+public enum GeofenceEventType {
+    ENTER,
+    EXIT
+}
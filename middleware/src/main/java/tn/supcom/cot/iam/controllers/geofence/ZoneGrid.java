@@ -0,0 +1,115 @@
+package tn.supcom.cot.iam.controllers.geofence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index of zone polygons. Each polygon is registered in every grid cell its bounding box
+ * overlaps, so a point only looks at the polygons of its own cell: a bounding box test, then an
+ * even-odd ray cast. Polygons are added while building; once handed to readers the grid is only
+ * read, and changes are made by building a new one.
+ */
+public class ZoneGrid {
+
+    private static final int[] NONE = new int[0];
+
+    private final double cellDegrees;
+    private final List<double[]> latitudes = new ArrayList<>();
+    private final List<double[]> longitudes = new ArrayList<>();
+    private final List<double[]> boxes = new ArrayList<>(); // minLat, minLon, maxLat, maxLon
+    private final Map<Long, List<Integer>> building = new HashMap<>();
+    private Map<Long, int[]> cells;
+
+    public ZoneGrid(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+    }
+
+    // Returns the polygon's index, which containing() reports
+    public int add(double[] polygonLatitudes, double[] polygonLongitudes) {
+        if (cells != null) {
+            throw new IllegalStateException("Grid already built");
+        }
+        if (polygonLatitudes.length < 3 || polygonLatitudes.length != polygonLongitudes.length) {
+            throw new IllegalArgumentException("A zone needs at least 3 vertices");
+        }
+        double[] box = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = 0; i < polygonLatitudes.length; i++) {
+            box[0] = Math.min(box[0], polygonLatitudes[i]);
+            box[1] = Math.min(box[1], polygonLongitudes[i]);
+            box[2] = Math.max(box[2], polygonLatitudes[i]);
+            box[3] = Math.max(box[3], polygonLongitudes[i]);
+        }
+        int polygon = latitudes.size();
+        latitudes.add(polygonLatitudes.clone());
+        longitudes.add(polygonLongitudes.clone());
+        boxes.add(box);
+        for (long row = cell(box[0]); row <= cell(box[2]); row++) {
+            for (long column = cell(box[1]); column <= cell(box[3]); column++) {
+                building.computeIfAbsent(key(row, column), k -> new ArrayList<>()).add(polygon);
+            }
+        }
+        return polygon;
+    }
+
+    // Number of cells add() would register the polygon in, to reject oversized zones beforehand
+    public long cellCount(double[] polygonLatitudes, double[] polygonLongitudes) {
+        double minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = 0; i < polygonLatitudes.length; i++) {
+            minLat = Math.min(minLat, polygonLatitudes[i]);
+            minLon = Math.min(minLon, polygonLongitudes[i]);
+            maxLat = Math.max(maxLat, polygonLatitudes[i]);
+            maxLon = Math.max(maxLon, polygonLongitudes[i]);
+        }
+        return (cell(maxLat) - cell(minLat) + 1) * (cell(maxLon) - cell(minLon) + 1);
+    }
+
+    public ZoneGrid build() {
+        cells = new HashMap<>(building.size() * 2);
+        building.forEach((key, polygons) -> cells.put(key, polygons.stream().mapToInt(Integer::intValue).toArray()));
+        building.clear();
+        return this;
+    }
+
+    public int size() {
+        return latitudes.size();
+    }
+
+    // Indexes of the polygons the point lies in
+    public int[] containing(double latitude, double longitude) {
+        int[] candidates = cells.getOrDefault(key(cell(latitude), cell(longitude)), NONE);
+        int[] inside = new int[candidates.length];
+        int count = 0;
+        for (int polygon : candidates) {
+            double[] box = boxes.get(polygon);
+            if (latitude >= box[0] && latitude <= box[2] && longitude >= box[1] && longitude <= box[3]
+                    && contains(latitudes.get(polygon), longitudes.get(polygon), latitude, longitude)) {
+                inside[count++] = polygon;
+            }
+        }
+        return count == inside.length ? inside : Arrays.copyOf(inside, count);
+    }
+
+    // Even-odd rule: a ray going east from the point crosses the border an odd number of times
+    private static boolean contains(double[] lats, double[] lons, double latitude, double longitude) {
+        boolean inside = false;
+        for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+            if ((lats[i] > latitude) != (lats[j] > latitude)
+                    && longitude < (lons[j] - lons[i]) * (latitude - lats[i]) / (lats[j] - lats[i]) + lons[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private long cell(double degrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long key(long row, long column) {
+        return (row << 32) ^ (column & 0xFFFFFFFFL);
+    }
+}
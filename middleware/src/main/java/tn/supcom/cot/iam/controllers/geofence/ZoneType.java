@@ -0,0 +1,17 @@
+package tn.supcom.cot.iam.controllers.geofence;
+
+public enum ZoneType {
+    NO_RIDE,    // riding in is logged as a violation
+    SLOW_RIDE,  // riding allowed at reduced speed
+    NO_PARKING; // rides may not end inside
+
+    // Null for a missing or unrecognised type
+    public static ZoneType of(String zoneType) {
+        for (ZoneType type : values()) {
+            if (type.name().equals(zoneType)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
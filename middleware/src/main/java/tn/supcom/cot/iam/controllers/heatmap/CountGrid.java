@@ -0,0 +1,98 @@
+package tn.supcom.cot.iam.controllers.heatmap;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Point counts of one tile on a square grid of bins. Stored deflated and base64-encoded: a sparse
+ * grid of mostly zeros shrinks to a few hundred bytes.
+ */
+public class CountGrid {
+
+    private final int bins;
+    private final int[] counts;
+
+    public CountGrid(int bins) {
+        this.bins = bins;
+        this.counts = new int[bins * bins];
+    }
+
+    public int getBins() {
+        return bins;
+    }
+
+    public int[] getCounts() {
+        return counts;
+    }
+
+    public void add(int column, int row, int count) {
+        counts[row * bins + column] += count;
+    }
+
+    public void addAll(CountGrid other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    public int max() {
+        int max = 0;
+        for (int count : counts) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    public long total() {
+        long total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public String encode() {
+        ByteBuffer raw = ByteBuffer.allocate(counts.length * 4);
+        raw.asIntBuffer().put(counts);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(raw.array());
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    public static CountGrid decode(String encoded, int bins) {
+        CountGrid grid = new CountGrid(bins);
+        if (encoded == null || encoded.isEmpty()) {
+            return grid;
+        }
+        byte[] raw = new byte[grid.counts.length * 4];
+        Inflater inflater = new Inflater();
+        inflater.setInput(Base64.getDecoder().decode(encoded));
+        try {
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, read, raw.length - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated heatmap tile");
+                }
+                read += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt heatmap tile", e);
+        } finally {
+            inflater.end();
+        }
+        ByteBuffer.wrap(raw).asIntBuffer().get(grid.counts);
+        return grid;
+    }
+}
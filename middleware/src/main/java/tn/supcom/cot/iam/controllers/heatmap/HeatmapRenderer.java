@@ -0,0 +1,49 @@
+package tn.supcom.cot.iam.controllers.heatmap;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Paints a CountGrid as a transparent 256 px PNG, blue for sparse bins through red for the busiest.
+ * Counts are scaled logarithmically against one maximum per zoom level so neighbouring tiles match.
+ */
+public final class HeatmapRenderer {
+
+    private HeatmapRenderer() {
+    }
+
+    public static byte[] toPng(CountGrid grid, int scaleMax) {
+        int bins = grid.getBins();
+        int cell = TileMath.TILE_SIZE / bins;
+        int[] counts = grid.getCounts();
+        double logMax = Math.log1p(Math.max(1, scaleMax));
+        BufferedImage image = new BufferedImage(TileMath.TILE_SIZE, TileMath.TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        for (int row = 0; row < bins; row++) {
+            for (int column = 0; column < bins; column++) {
+                int count = counts[row * bins + column];
+                if (count == 0) {
+                    continue;
+                }
+                double intensity = Math.min(1.0, Math.log1p(count) / logMax);
+                int rgb = Color.HSBtoRGB((float) (0.66 * (1 - intensity)), 1f, 1f) & 0xFFFFFF;
+                int argb = ((int) (80 + 160 * intensity) << 24) | rgb;
+                for (int dy = 0; dy < cell; dy++) {
+                    for (int dx = 0; dx < cell; dx++) {
+                        image.setRGB(column * cell + dx, row * cell + dy, argb);
+                    }
+                }
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
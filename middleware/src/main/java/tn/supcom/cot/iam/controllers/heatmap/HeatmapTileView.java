@@ -0,0 +1,22 @@
+package tn.supcom.cot.iam.controllers.heatmap;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// JSON form of a tile: counts are row-major, bins x bins, each bin covering 256 / bins pixels
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapTileView {
+    private Integer z;
+    private Integer x;
+    private Integer y;
+    private Integer bins;
+    private Long total;
+    private Integer max;
+    private Integer zoomMax;
+    private int[] counts;
+}
@@ -0,0 +1,36 @@
+package tn.supcom.cot.iam.controllers.heatmap;
+
+// Web Mercator tile arithmetic, as used by slippy maps: 256 px tiles, 2^z tiles per axis
+public final class TileMath {
+
+    public static final int TILE_SIZE = 256;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private TileMath() {
+    }
+
+    // World pixel coordinates at the given zoom
+    public static double pixelX(double longitude, int zoom) {
+        return (longitude + 180) / 360 * TILE_SIZE * (1L << zoom);
+    }
+
+    public static double pixelY(double latitude, int zoom) {
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+        return (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * TILE_SIZE * (1L << zoom);
+    }
+
+    // Interleaves the bits of x and y, one base-4 digit per zoom level
+    public static String quadkey(int zoom, int x, int y) {
+        StringBuilder key = new StringBuilder(zoom);
+        for (int level = zoom; level > 0; level--) {
+            int mask = 1 << (level - 1);
+            int digit = ((x & mask) != 0 ? 1 : 0) + ((y & mask) != 0 ? 2 : 0);
+            key.append((char) ('0' + digit));
+        }
+        return key.toString();
+    }
+
+    public static boolean isValid(int zoom, int x, int y) {
+        return zoom >= 0 && zoom <= 30 && x >= 0 && y >= 0 && x < (1L << zoom) && y < (1L << zoom);
+    }
+}
@@ -0,0 +1,25 @@
+package tn.supcom.cot.iam.controllers.inference;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchMetrics {
+    private int maxBatchSize;
+    private int queued;
+    private long batches;
+    private long items;
+    private long failedBatches;
+    private long retriedItems;
+    private long failedItems; // given up after the last attempt
+    private double averageBatchSize;
+    private double fillRatio; // items / (batches * maxBatchSize)
+    private double averageQueueLatencyMs;
+    private double maxQueueLatencyMs;
+    private double averageBatchDurationMs;
+}
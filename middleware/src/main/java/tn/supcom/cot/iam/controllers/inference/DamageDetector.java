@@ -0,0 +1,10 @@
+package tn.supcom.cot.iam.controllers.inference;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface DamageDetector {
+
+    // Runs one inference batch; the result list is aligned with the requests list
+    List<List<PartDetection>> detect(List<DamageInferenceRequest> requests) throws IOException;
+}
@@ -0,0 +1,17 @@
+package tn.supcom.cot.iam.controllers.inference;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DamageInferenceRequest {
+    private String rentalId;
+    private String bikeId;
+    private String initialPhotoUrl;
+    private String finalPhotoUrl;
+}
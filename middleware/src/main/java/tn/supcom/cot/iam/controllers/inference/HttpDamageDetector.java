@@ -0,0 +1,98 @@
+package tn.supcom.cot.iam.controllers.inference;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calls the local model server (ONNX Runtime / TorchServe on CPU) hosting the ai-service model.
+ * Request:  {"images": ["https://...", ...]}
+ * Response: {"predictions": [[{"part": "saddle", "state": "damaged", "score": 0.93}, ...], ...]}
+ */
+@ApplicationScoped
+public class HttpDamageDetector implements DamageDetector {
+
+    @Inject
+    @ConfigProperty(name = "damage.inference.url", defaultValue = "http://localhost:8081/predict")
+    private String inferenceUrl;
+
+    @Inject
+    @ConfigProperty(name = "damage.inference.timeout.ms", defaultValue = "3000")
+    private Long timeoutMs;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    @Override
+    public List<List<PartDetection>> detect(List<DamageInferenceRequest> requests) throws IOException {
+        JsonArrayBuilder images = Json.createArrayBuilder();
+        for (DamageInferenceRequest request : requests) {
+            images.add(request.getFinalPhotoUrl());
+        }
+        String body = Json.createObjectBuilder().add("images", images).build().toString();
+
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(inferenceUrl))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Inference request interrupted", e);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Inference server returned HTTP " + response.statusCode());
+        }
+
+        JsonArray predictions;
+        try (var reader = Json.createReader(new StringReader(response.body()))) {
+            predictions = reader.readObject().getJsonArray("predictions");
+        }
+        if (predictions == null || predictions.size() != requests.size()) {
+            throw new IOException("Inference server returned a batch of unexpected size");
+        }
+
+        List<List<PartDetection>> results = new ArrayList<>(predictions.size());
+        for (JsonValue image : predictions) {
+            List<PartDetection> detections = new ArrayList<>();
+            if (image instanceof JsonArray values) {
+                for (JsonValue value : values) {
+                    // A malformed detection is dropped, it must not fail the other images of the batch
+                    if (!(value instanceof JsonObject detection) || !(detection.get("score") instanceof JsonNumber score)) {
+                        continue;
+                    }
+                    JsonValue state = detection.get("state");
+                    detections.add(PartDetection.builder()
+                            .part(detection.getString("part", "unknown"))
+                            .state(PartState.parse(state instanceof JsonString s ? s.getString() : String.valueOf(state)))
+                            .score((float) score.doubleValue())
+                            .build());
+                }
+            }
+            results.add(detections);
+        }
+        return results;
+    }
+}
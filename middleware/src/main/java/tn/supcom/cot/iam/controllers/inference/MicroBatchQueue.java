@@ -0,0 +1,219 @@
+package tn.supcom.cot.iam.controllers.inference;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates items until maxBatchSize is reached or the oldest item has waited maxWaitMs,
+ * hands the whole batch to the handler in one call and completes each caller's future
+ * with its own result. When the handler fails, each item of the batch is retried after a delay
+ * that doubles with every attempt, starting at retryBackoffMs, until it has been tried maxAttempts
+ * times; only then is its future failed. Queue latency is measured from the first submission.
+ */
+public class MicroBatchQueue<T, R> {
+
+    @FunctionalInterface
+    public interface BatchHandler<T, R> {
+        // Must return one result per item, in the same order
+        List<R> handle(List<T> items) throws Exception;
+    }
+
+    // enqueuedAt is the first submission, readyAt when this attempt may run
+    private record Entry<T, R>(T item, CompletableFuture<R> future, long enqueuedAt, long readyAt, int attempt) {
+    }
+
+    private final BlockingQueue<Entry<T, R>> queue;
+    // Items waiting out their backoff, soonest first; only the worker thread adds and takes
+    private final PriorityBlockingQueue<Entry<T, R>> retries =
+            new PriorityBlockingQueue<>(11, Comparator.<Entry<T, R>>comparingLong(Entry::readyAt));
+    private final int capacity;
+    private final long retryBackoffNanos;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final int maxAttempts;
+    private final BatchHandler<T, R> handler;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong retriedItems = new AtomicLong();
+    private final AtomicLong failedItems = new AtomicLong();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+    private final AtomicLong totalHandleNanos = new AtomicLong();
+
+    public MicroBatchQueue(int maxBatchSize, long maxWaitMs, int capacity, int maxAttempts, long retryBackoffMs,
+                           BatchHandler<T, R> handler, ThreadFactory threadFactory) {
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, retryBackoffMs));
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.handler = handler;
+        this.worker = threadFactory.newThread(this::run);
+        this.worker.setName("micro-batch-worker");
+        this.worker.start();
+    }
+
+    public CompletableFuture<R> submit(T item) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        long now = System.nanoTime();
+        if (!running || !queue.offer(new Entry<>(item, future, now, now, 1))) {
+            future.completeExceptionally(new IllegalStateException("Batch queue is full or stopped"));
+        }
+        return future;
+    }
+
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+        Entry<T, R> entry;
+        while ((entry = queue.poll()) != null) {
+            entry.future().completeExceptionally(new IllegalStateException("Batch queue stopped"));
+        }
+    }
+
+    private void run() {
+        List<Entry<T, R>> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running) {
+                try {
+                    Entry<T, R> first = next();
+                    batch.add(first);
+                    long deadline = first.readyAt() + maxWaitNanos;
+                    while (batch.size() < maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        // Take whatever is already due, then wait for stragglers until the deadline
+                        if (drainRetries(batch) > 0 || queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                            continue;
+                        }
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        Entry<T, R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    process(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    for (Entry<T, R> entry : batch) {
+                        entry.future().completeExceptionally(e);
+                    }
+                    return;
+                } finally {
+                    batch.clear();
+                }
+            }
+        } finally {
+            Entry<T, R> entry;
+            while ((entry = retries.poll()) != null) {
+                entry.future().completeExceptionally(new IllegalStateException("Batch queue stopped"));
+            }
+        }
+    }
+
+    // The next new item, or the next retry once its backoff is over, whichever comes first
+    private Entry<T, R> next() throws InterruptedException {
+        while (true) {
+            Entry<T, R> retry = retries.peek();
+            if (retry == null) {
+                return queue.take();
+            }
+            long wait = retry.readyAt() - System.nanoTime();
+            if (wait <= 0) {
+                return retries.poll();
+            }
+            Entry<T, R> fresh = queue.poll(wait, TimeUnit.NANOSECONDS);
+            if (fresh != null) {
+                return fresh;
+            }
+        }
+    }
+
+    private int drainRetries(List<Entry<T, R>> batch) {
+        int drained = 0;
+        long now = System.nanoTime();
+        while (batch.size() < maxBatchSize && !retries.isEmpty() && retries.peek().readyAt() - now <= 0) {
+            batch.add(retries.poll());
+            drained++;
+        }
+        return drained;
+    }
+
+    private void process(List<Entry<T, R>> batch) {
+        long start = System.nanoTime();
+        List<T> input = new ArrayList<>(batch.size());
+        for (Entry<T, R> entry : batch) {
+            input.add(entry.item());
+            long waited = start - entry.enqueuedAt();
+            totalQueueNanos.addAndGet(waited);
+            maxQueueNanos.accumulateAndGet(waited, Math::max);
+        }
+        batches.incrementAndGet();
+        items.addAndGet(batch.size());
+
+        try {
+            List<R> results = handler.handle(input);
+            if (results == null || results.size() != batch.size()) {
+                throw new IllegalStateException("Batch handler returned "
+                        + (results == null ? 0 : results.size()) + " results for " + batch.size() + " items");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(results.get(i));
+            }
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            for (Entry<T, R> entry : batch) {
+                retryOrFail(entry, e);
+            }
+        } finally {
+            totalHandleNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    // Waits retryBackoffMs, doubled per earlier attempt, so a service that is down does not use up every attempt at once
+    private void retryOrFail(Entry<T, R> entry, Exception cause) {
+        if (running && entry.attempt() < maxAttempts && retries.size() < capacity) {
+            long delay = retryBackoffNanos << Math.min(entry.attempt() - 1, 20);
+            retries.add(new Entry<>(entry.item(), entry.future(), entry.enqueuedAt(),
+                    System.nanoTime() + delay, entry.attempt() + 1));
+            retriedItems.incrementAndGet();
+            return;
+        }
+        failedItems.incrementAndGet();
+        entry.future().completeExceptionally(cause);
+    }
+
+    public BatchMetrics getMetrics() {
+        long b = batches.get();
+        long n = items.get();
+        return BatchMetrics.builder()
+                .maxBatchSize(maxBatchSize)
+                .queued(queue.size() + retries.size())
+                .batches(b)
+                .items(n)
+                .failedBatches(failedBatches.get())
+                .retriedItems(retriedItems.get())
+                .failedItems(failedItems.get())
+                .averageBatchSize(b == 0 ? 0 : (double) n / b)
+                .fillRatio(b == 0 ? 0 : (double) n / (b * (long) maxBatchSize))
+                .averageQueueLatencyMs(n == 0 ? 0 : totalQueueNanos.get() / 1e6 / n)
+                .maxQueueLatencyMs(maxQueueNanos.get() / 1e6)
+                .averageBatchDurationMs(b == 0 ? 0 : totalHandleNanos.get() / 1e6 / b)
+                .build();
+    }
+}
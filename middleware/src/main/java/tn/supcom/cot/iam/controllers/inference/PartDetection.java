@@ -0,0 +1,16 @@
+package tn.supcom.cot.iam.controllers.inference;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PartDetection {
+    private String part;
+    private PartState state;
+    private Float score;
+}
@@ -0,0 +1,30 @@
+package tn.supcom.cot.iam.controllers.inference;
+
+// State head of the multi-task Faster R-CNN (see ai-service/src/train/MODEL_TRAIN.md)
+public enum PartState {
+    INTACT,
+    DAMAGED,
+    ABSENT,
+    OCCLUDED;
+
+    public boolean isDamage() {
+        return this == DAMAGED || this == ABSENT;
+    }
+
+    // The model server may report either the class index (0..3) or its name
+    public static PartState parse(String value) {
+        if (value == null) {
+            return OCCLUDED;
+        }
+        String v = value.trim();
+        if (!v.isEmpty() && Character.isDigit(v.charAt(0))) {
+            int index = Integer.parseInt(v);
+            return index >= 0 && index < values().length ? values()[index] : OCCLUDED;
+        }
+        try {
+            return valueOf(v.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return OCCLUDED;
+        }
+    }
+}
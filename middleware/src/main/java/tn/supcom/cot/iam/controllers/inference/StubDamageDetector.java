@@ -0,0 +1,25 @@
+package tn.supcom.cot.iam.controllers.inference;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detector that reports no damage, for environments without a model server.
+ * Enable it as an alternative in beans.xml to replace HttpDamageDetector.
+ */
+@Alternative
+@ApplicationScoped
+public class StubDamageDetector implements DamageDetector {
+
+    @Override
+    public List<List<PartDetection>> detect(List<DamageInferenceRequest> requests) {
+        List<List<PartDetection>> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            results.add(List.of());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,203 @@
+package tn.supcom.cot.iam.controllers.maintenance;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact wear model of the fleet: one slot per bike in parallel primitive arrays, holding the
+ * usage accumulated since the bike's last maintenance. Counters are updated incrementally as
+ * rides, battery reports and damages come in; rank() re-scores the whole fleet in one pass.
+ */
+public class FleetWearModel {
+
+    // Usage that, on its own, makes a bike due for service (wear score contribution of 1.0)
+    private final float serviceDistanceKm;
+    private final int serviceRides;
+    private final float serviceBatteryCycles;
+    private final float damageWeight;
+    private final float repairCostWeight;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] bikeIds = new String[256];
+    private float[] distanceKm = new float[256];
+    private int[] rides = new int[256];
+    private float[] dischargedPercent = new float[256];
+    private int[] lastBatteryLevel = new int[256];
+    private int[] unrepairedDamages = new int[256];
+    private float[] repairCost = new float[256];
+    private LocalDateTime[] lastMaintenance = new LocalDateTime[256];
+    private int size;
+
+    public FleetWearModel(float serviceDistanceKm, int serviceRides, float serviceBatteryCycles,
+                          float damageWeight, float repairCostWeight) {
+        this.serviceDistanceKm = serviceDistanceKm;
+        this.serviceRides = serviceRides;
+        this.serviceBatteryCycles = serviceBatteryCycles;
+        this.damageWeight = damageWeight;
+        this.repairCostWeight = repairCostWeight;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void track(String bikeId) {
+        slot(bikeId);
+    }
+
+    public synchronized void recordRide(String bikeId, float rideDistanceKm) {
+        int slot = slot(bikeId);
+        rides[slot]++;
+        distanceKm[slot] += Math.max(0f, rideDistanceKm);
+    }
+
+    // Battery cycles are derived from discharge: every 100 points lost count as one full cycle
+    public synchronized void recordBatteryLevel(String bikeId, int level) {
+        int slot = slot(bikeId);
+        int previous = lastBatteryLevel[slot];
+        if (previous >= 0 && level < previous) {
+            dischargedPercent[slot] += previous - level;
+        }
+        lastBatteryLevel[slot] = level;
+    }
+
+    // Damage summaries may outlive a bike, so only bikes already in the model are updated
+    public synchronized void setDamageState(String bikeId, int unrepaired, float totalRepairCost) {
+        Integer slot = slots.get(bikeId);
+        if (slot == null) {
+            return;
+        }
+        unrepairedDamages[slot] = unrepaired;
+        repairCost[slot] = totalRepairCost;
+    }
+
+    // Service resets the usage counters; damage state is owned by the damage summaries
+    public synchronized void recordMaintenance(String bikeId, LocalDateTime date) {
+        int slot = slot(bikeId);
+        if (lastMaintenance[slot] != null && date != null && date.isBefore(lastMaintenance[slot])) {
+            return;
+        }
+        rides[slot] = 0;
+        distanceKm[slot] = 0f;
+        dischargedPercent[slot] = 0f;
+        lastMaintenance[slot] = date;
+    }
+
+    // Unlike recordMaintenance, also moves the service date back when a maintenance was edited or deleted
+    public synchronized void resetMaintenance(String bikeId, LocalDateTime date) {
+        int slot = slot(bikeId);
+        rides[slot] = 0;
+        distanceKm[slot] = 0f;
+        dischargedPercent[slot] = 0f;
+        lastMaintenance[slot] = date;
+    }
+
+    public synchronized LocalDateTime getLastMaintenance(String bikeId) {
+        Integer slot = slots.get(bikeId);
+        return slot == null ? null : lastMaintenance[slot];
+    }
+
+    public synchronized void remove(String bikeId) {
+        Integer slot = slots.remove(bikeId);
+        if (slot == null) {
+            return;
+        }
+        // Move the last slot into the hole to keep the arrays dense
+        int last = --size;
+        if (slot != last) {
+            bikeIds[slot] = bikeIds[last];
+            distanceKm[slot] = distanceKm[last];
+            rides[slot] = rides[last];
+            dischargedPercent[slot] = dischargedPercent[last];
+            lastBatteryLevel[slot] = lastBatteryLevel[last];
+            unrepairedDamages[slot] = unrepairedDamages[last];
+            repairCost[slot] = repairCost[last];
+            lastMaintenance[slot] = lastMaintenance[last];
+            slots.put(bikeIds[slot], slot);
+        }
+        bikeIds[last] = null;
+        lastMaintenance[last] = null;
+    }
+
+    /**
+     * Scores every bike and returns the ones whose wear score is at least minScore,
+     * highest first, at most limit entries.
+     */
+    public synchronized List<MaintenancePriority> rank(float minScore, int limit) {
+        // Non-negative float bits sort like the floats themselves, so score and slot
+        // are packed into one long and the fleet is ordered with a primitive sort
+        long[] keys = new long[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            float score = score(i);
+            if (score >= minScore) {
+                keys[n++] = ((long) Float.floatToIntBits(score) << 32) | i;
+            }
+        }
+        Arrays.sort(keys, 0, n);
+
+        int count = Math.min(n, limit);
+        List<MaintenancePriority> ranked = new ArrayList<>(count);
+        for (int r = 0; r < count; r++) {
+            int i = (int) keys[n - 1 - r];
+            ranked.add(MaintenancePriority.builder()
+                    .rank(r + 1)
+                    .bikeId(bikeIds[i])
+                    .wearScore(score(i))
+                    .distanceKm(distanceKm[i])
+                    .rides(rides[i])
+                    .batteryCycles(dischargedPercent[i] / 100f)
+                    .unrepairedDamages(unrepairedDamages[i])
+                    .repairCost(repairCost[i])
+                    .lastMaintenanceDate(lastMaintenance[i])
+                    .build());
+        }
+        return ranked;
+    }
+
+    private float score(int i) {
+        return distanceKm[i] / serviceDistanceKm
+                + (float) rides[i] / serviceRides
+                + (dischargedPercent[i] / 100f) / serviceBatteryCycles
+                + unrepairedDamages[i] * damageWeight
+                + repairCost[i] * repairCostWeight;
+    }
+
+    private int slot(String bikeId) {
+        Integer slot = slots.get(bikeId);
+        if (slot != null) {
+            return slot;
+        }
+        if (size == bikeIds.length) {
+            grow();
+        }
+        // A slot may have been vacated by remove(), so every counter starts from scratch
+        int s = size++;
+        bikeIds[s] = bikeId;
+        distanceKm[s] = 0f;
+        rides[s] = 0;
+        dischargedPercent[s] = 0f;
+        lastBatteryLevel[s] = -1;
+        unrepairedDamages[s] = 0;
+        repairCost[s] = 0f;
+        lastMaintenance[s] = null;
+        slots.put(bikeId, s);
+        return s;
+    }
+
+    private void grow() {
+        int capacity = bikeIds.length * 2;
+        bikeIds = Arrays.copyOf(bikeIds, capacity);
+        distanceKm = Arrays.copyOf(distanceKm, capacity);
+        rides = Arrays.copyOf(rides, capacity);
+        dischargedPercent = Arrays.copyOf(dischargedPercent, capacity);
+        lastBatteryLevel = Arrays.copyOf(lastBatteryLevel, capacity);
+        unrepairedDamages = Arrays.copyOf(unrepairedDamages, capacity);
+        repairCost = Arrays.copyOf(repairCost, capacity);
+        lastMaintenance = Arrays.copyOf(lastMaintenance, capacity);
+    }
+}
@@ -0,0 +1,24 @@
+package tn.supcom.cot.iam.controllers.maintenance;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MaintenancePriority {
+    private int rank;
+    private String bikeId;
+    private float wearScore; // >= 1.0 means the bike is due for maintenance
+    private float distanceKm;
+    private int rides;
+    private float batteryCycles;
+    private int unrepairedDamages;
+    private float repairCost;
+    private LocalDateTime lastMaintenanceDate;
+}
@@ -0,0 +1,165 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import tn.supcom.cot.iam.controllers.repositories.BikeRepository;
+import tn.supcom.cot.iam.controllers.status.BikeStatus;
+import tn.supcom.cot.iam.controllers.telemetry.BatteryReport;
+import tn.supcom.cot.iam.entities.Bike;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hot battery state of the fleet. Reports update memory only and are written to MongoDB by a
+ * periodic flush, one write per bike whatever the number of reports. A report that crosses the
+ * availability threshold is written through at once and the bike's station is recounted, so
+ * availability queries never see a stale side of the threshold. Both write only the batteryLevel
+ * field, so a status or station change written meanwhile by BikeManager or the rental outbox is
+ * never overwritten with the copy read before it.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class BatteryTelemetryManager {
+
+    public static final int AVAILABILITY_THRESHOLD = 20;
+
+    @Inject
+    private BikeRepository bikeRepository;
+
+    @Inject
+    private StationManager stationManager;
+
+    @Inject
+    private MaintenanceScheduler maintenanceScheduler;
+
+    @Inject
+    private FleetStateManager fleetStateManager;
+
+    @Inject
+    private MongoDatabase database;
+
+    private final Map<String, Integer> levels = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pending = new ConcurrentHashMap<>();
+    private MongoCollection<Document> bikes;
+
+    @PostConstruct
+    public void init() {
+        // Collection and field names JNoSQL maps the Bike entity to
+        bikes = database.getCollection(Bike.class.getSimpleName());
+        bikeRepository.findAll().forEach(this::onBikeSaved);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // A full bike write carries the latest reported level instead of the stale stored one
+    public void beforeBikeSaved(Bike bike) {
+        Integer hot = pending.remove(bike.getBikeId());
+        if (hot != null) {
+            bike.setBatteryLevel(hot);
+        }
+    }
+
+    public void onBikeSaved(Bike bike) {
+        if (bike.getBatteryLevel() != null) {
+            levels.put(bike.getBikeId(), bike.getBatteryLevel());
+        } else {
+            levels.remove(bike.getBikeId());
+        }
+    }
+
+    public void onBikeDeleted(String bikeId) {
+        levels.remove(bikeId);
+        pending.remove(bikeId);
+    }
+
+    public Optional<Integer> getBatteryLevel(String bikeId) {
+        return Optional.ofNullable(levels.get(bikeId));
+    }
+
+    // Returns false when the bike is unknown
+    public boolean report(String bikeId, int batteryLevel) {
+        if (bikeId == null) {
+            return false;
+        }
+        if (!levels.containsKey(bikeId) && !bikeRepository.findById(bikeId).isPresent()) {
+            return false;
+        }
+        int level = Math.max(0, Math.min(100, batteryLevel));
+        Integer previous = levels.put(bikeId, level);
+        maintenanceScheduler.recordBatteryLevel(bikeId, level);
+
+        boolean wasUsable = previous != null && previous > AVAILABILITY_THRESHOLD;
+        boolean isUsable = level > AVAILABILITY_THRESHOLD;
+        if (previous == null || wasUsable != isUsable) {
+            pending.remove(bikeId);
+            writeThrough(bikeId, level);
+        } else {
+            pending.put(bikeId, level);
+        }
+        return true;
+    }
+
+    public int report(List<BatteryReport> reports) {
+        int accepted = 0;
+        for (BatteryReport report : reports) {
+            if (report != null && report.getBatteryLevel() != null
+                    && report(report.getBikeId(), report.getBatteryLevel())) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    private void writeThrough(String bikeId, int level) {
+        Optional<Bike> bike = writeLevel(bikeId, level);
+        if (bike.isPresent() && BikeStatus.of(bike.get().getStatus()) == BikeStatus.AVAILABLE
+                && bike.get().getStationId() != null) {
+            stationManager.updateAvailableBikes(null, bike.get().getStationId());
+        }
+    }
+
+    // Sets only the stored level, then applies it to the fleet's current copy of the bike
+    private Optional<Bike> writeLevel(String bikeId, int level) {
+        if (bikes.updateOne(Filters.eq("_id", bikeId), Updates.set("batteryLevel", level)).getMatchedCount() == 0) {
+            return Optional.empty();
+        }
+        Optional<Bike> bike = fleetStateManager.getBike(bikeId).or(() -> bikeRepository.findById(bikeId));
+        bike.ifPresent(current -> {
+            current.setBatteryLevel(level);
+            fleetStateManager.onBikeSaved(current);
+        });
+        return bike;
+    }
+
+    @Schedule(hour = "*", minute = "*", second = "*/30", persistent = false)
+    public void flush() {
+        for (String bikeId : new ArrayList<>(pending.keySet())) {
+            Integer level = pending.remove(bikeId);
+            if (level == null) {
+                continue;
+            }
+            writeLevel(bikeId, level);
+        }
+    }
+}
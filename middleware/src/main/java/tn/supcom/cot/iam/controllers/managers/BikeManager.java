@@ -3,60 +3,103 @@ package tn.supcom.cot.iam.controllers.managers;
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
 import tn.supcom.cot.iam.controllers.repositories.BikeRepository;
+import tn.supcom.cot.iam.controllers.status.BikeStatus;
+import tn.supcom.cot.iam.controllers.telemetry.BatteryReport;
 import tn.supcom.cot.iam.entities.Bike;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Stateless
 public class BikeManager {
     @Inject
     private BikeRepository bikeRepository;
 
+    @Inject
+    private MaintenanceScheduler maintenanceScheduler;
+
+    @Inject
+    private BatteryTelemetryManager batteryTelemetryManager;
+
+    @Inject
+    private FleetStateManager fleetStateManager;
+
     public Set<Bike> getBikeByBikeId(String bikeId) {
-        return bikeRepository.findById(bikeId)
+        return fleetStateManager.getBike(bikeId)
                 .map(Set::of)
                 .orElse(Set.of());
     }
 
 
     public Set<Bike> getBikeByStationId(String stationId) {
-        return bikeRepository.findByStationId(stationId).collect(Collectors.toSet());
+        return new HashSet<>(fleetStateManager.getBikesByStation(stationId));
     }
     public Set<Bike> getAllBikes() {
-        return bikeRepository.findAll()
-                .collect(Collectors.toSet());
+        return new HashSet<>(fleetStateManager.getAllBikes());
     }
 
     public Set<Bike> getBikeByStatus(String status){
-        return bikeRepository.findByStatus(status).collect(Collectors.toSet());
+        return new HashSet<>(fleetStateManager.getBikesByStatus(status));
+    }
+
+    public Map<BikeStatus, Integer> countBikesByStatus() {
+        return fleetStateManager.countByStatus();
     }
 
     public Bike createBike(Bike bike){
+        BikeStatus.checkTransition(null, bike.getStatus());
         bike.generateId();
-        return bikeRepository.save(bike);
+        Bike saved = bikeRepository.save(bike);
+        fleetStateManager.onBikeSaved(saved);
+        maintenanceScheduler.trackBike(saved.getBikeId());
+        maintenanceScheduler.recordBatteryLevel(saved.getBikeId(), saved.getBatteryLevel());
+        batteryTelemetryManager.onBikeSaved(saved);
+        return saved;
     }
 
     public Bike updateBike(Bike bike){
-        return bikeRepository.save(bike);
+        String previous = bike.getBikeId() == null ? null
+                : fleetStateManager.getBike(bike.getBikeId()).map(Bike::getStatus).orElse(null);
+        BikeStatus.checkTransition(previous, bike.getStatus());
+        batteryTelemetryManager.beforeBikeSaved(bike);
+        Bike saved = bikeRepository.save(bike);
+        fleetStateManager.onBikeSaved(saved);
+        // An update of an unknown id creates the bike
+        maintenanceScheduler.trackBike(saved.getBikeId());
+        maintenanceScheduler.recordBatteryLevel(saved.getBikeId(), saved.getBatteryLevel());
+        batteryTelemetryManager.onBikeSaved(saved);
+        return saved;
     }
 
     public Bike updateBikeStatus(String bikeId, String status){
         Optional<Bike> optBike = bikeRepository.findById(bikeId);
         if (optBike.isPresent()){
             Bike bike=optBike.get();
+            BikeStatus.checkTransition(bike.getStatus(), status);
             bike.setStatus(status);
-            return bikeRepository.save(bike);
+            Bike saved = bikeRepository.save(bike);
+            fleetStateManager.onBikeSaved(saved);
+            return saved;
         }
         return null;
     }
 
+    public boolean reportBatteryLevel(String bikeId, int batteryLevel) {
+        return batteryTelemetryManager.report(bikeId, batteryLevel);
+    }
+
+    public int reportBatteryLevels(List<BatteryReport> reports) {
+        return batteryTelemetryManager.report(reports);
+    }
+
     public boolean checkAvailability(String bikeId){
-        Optional<Bike> optBike = bikeRepository.findById(bikeId);
+        Optional<Bike> optBike = fleetStateManager.getBike(bikeId);
         if (optBike.isPresent()){
             Bike bike=optBike.get();
-            return "AVAILABLE".equals(bike.getStatus()) &&
+            return BikeStatus.of(bike.getStatus()) == BikeStatus.AVAILABLE &&
                     bike.getBatteryLevel()!= null &&
                     bike.getBatteryLevel() > 20;
         }
@@ -64,23 +107,20 @@ public class BikeManager {
     }
 
     public Set<Bike> getAvailableBikesByStation(String stationId){
-        return bikeRepository.findByStationId(stationId)
-                .filter(bike -> "AVAILABLE".equals(bike.getStatus()))
-                .filter(bike -> bike.getBatteryLevel() != null && bike.getBatteryLevel() > 20)
-                .collect(Collectors.toSet());
+        return new HashSet<>(fleetStateManager.getAvailableBikes(stationId, BatteryTelemetryManager.AVAILABILITY_THRESHOLD));
     }
 
     public long countAvailableBikesByStation(String stationId){
-        return bikeRepository.findByStationId(stationId)
-                .filter(bike -> "AVAILABLE".equals(bike.getStatus()))
-                .filter(bike -> bike.getBatteryLevel() != null && bike.getBatteryLevel() > 20)
-                .count();
+        return fleetStateManager.countAvailableBikes(stationId, BatteryTelemetryManager.AVAILABILITY_THRESHOLD);
     }
 
     public boolean deleteBike(String bikeId) {
         Optional<Bike> optBike = bikeRepository.findById(bikeId);
         if (optBike.isPresent()) {
             bikeRepository.deleteById(bikeId);
+            fleetStateManager.onBikeDeleted(bikeId);
+            maintenanceScheduler.removeBike(bikeId);
+            batteryTelemetryManager.onBikeDeleted(bikeId);
             return true;
         }
         return false;
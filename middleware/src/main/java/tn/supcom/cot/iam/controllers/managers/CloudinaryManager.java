@@ -3,10 +3,22 @@ package tn.supcom.cot.iam.controllers.managers;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.repositories.PhotoUploadRepository;
+import tn.supcom.cot.iam.entities.PhotoUpload;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 
 @Stateless
@@ -14,6 +26,9 @@ public class CloudinaryManager {
 
     private final Cloudinary cloudinary;
 
+    @Inject
+    private PhotoUploadRepository photoUploadRepository;
+
     public CloudinaryManager() {
         try {
 
@@ -81,6 +96,53 @@ public class CloudinaryManager {
         return url;
     }
 
+    // Uploads the file unless the same bytes were already stored in this folder; retries resolve to the existing URL
+    public String uploadImageOnce(File file, String folder, String contentHash) throws IOException {
+        if (contentHash == null || contentHash.isEmpty()) {
+            contentHash = sha256(file);
+        }
+
+        String uploadKey = folder + "/" + contentHash;
+        Optional<PhotoUpload> existing = photoUploadRepository.findById(uploadKey);
+        if (existing.isPresent() && existing.get().getUrl() != null) {
+            System.out.println("Duplicate upload skipped, reusing: " + existing.get().getUrl());
+            return existing.get().getUrl();
+        }
+
+        String url = uploadImage(file, folder);
+
+        photoUploadRepository.save(PhotoUpload.builder()
+                .uploadKey(uploadKey)
+                .contentHash(contentHash)
+                .url(url)
+                .folder(folder)
+                .size(file.length())
+                .uploadDate(LocalDateTime.now())
+                .build());
+
+        return url;
+    }
+
+    public static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String sha256(File file) throws IOException {
+        MessageDigest digest = newContentDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return toHex(digest);
+    }
+
     public String uploadBase64Image(String base64Data, String folder) throws IOException {
         Map uploadResult = cloudinary.uploader().upload(base64Data,
                 ObjectUtils.asMap(
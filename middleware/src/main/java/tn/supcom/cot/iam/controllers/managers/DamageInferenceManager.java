@@ -0,0 +1,144 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.inference.BatchMetrics;
+import tn.supcom.cot.iam.controllers.inference.DamageDetector;
+import tn.supcom.cot.iam.controllers.inference.DamageInferenceRequest;
+import tn.supcom.cot.iam.controllers.inference.MicroBatchQueue;
+import tn.supcom.cot.iam.controllers.inference.PartDetection;
+import tn.supcom.cot.iam.entities.Damage;
+import tn.supcom.cot.iam.entities.Rental;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Automatic check-out damage assessment: final photos are queued when uploaded and
+ * sent to the damage detection model in micro-batches that span several rentals, so
+ * bursts of evening returns are served by a few CPU inference calls instead of one per photo.
+ * A failed batch is retried a bounded number of times. Detected damages are recorded on the
+ * managed executor, so MongoDB writes never hold up the batch worker.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class DamageInferenceManager {
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private DamageDetector damageDetector;
+
+    @Inject
+    private DamageManager damageManager;
+
+    @Inject
+    @ConfigProperty(name = "damage.inference.batch.size", defaultValue = "16")
+    private Integer maxBatchSize;
+
+    @Inject
+    @ConfigProperty(name = "damage.inference.max.wait.ms", defaultValue = "200")
+    private Long maxWaitMs;
+
+    @Inject
+    @ConfigProperty(name = "damage.inference.queue.capacity", defaultValue = "1000")
+    private Integer queueCapacity;
+
+    @Inject
+    @ConfigProperty(name = "damage.inference.min.confidence", defaultValue = "0.5")
+    private Float minConfidence;
+
+    @Inject
+    @ConfigProperty(name = "damage.inference.max.attempts", defaultValue = "3")
+    private Integer maxAttempts;
+
+    @Inject
+    @ConfigProperty(name = "damage.inference.retry.backoff.ms", defaultValue = "500")
+    private Long retryBackoffMs;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    @Resource
+    private ManagedExecutorService recordExecutor;
+
+    private MicroBatchQueue<DamageInferenceRequest, List<PartDetection>> queue;
+
+    @PostConstruct
+    public void init() {
+        queue = new MicroBatchQueue<>(maxBatchSize, maxWaitMs, queueCapacity, maxAttempts, retryBackoffMs,
+                damageDetector::detect, threadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queue.shutdown();
+    }
+
+    public CompletableFuture<List<Damage>> submit(Rental rental) {
+        if (rental.getFinalPhoto() == null || rental.getFinalPhoto().isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        DamageInferenceRequest request = DamageInferenceRequest.builder()
+                .rentalId(rental.getRentalId())
+                .bikeId(rental.getBikeId())
+                .initialPhotoUrl(rental.getInitialPhoto())
+                .finalPhotoUrl(rental.getFinalPhoto())
+                .build();
+
+        return queue.submit(request)
+                .thenApplyAsync(detections -> recordDetections(request, detections), recordExecutor)
+                .exceptionally(e -> {
+                    // Photos stay on the rental, an operator can still assess them manually
+                    logger.log(Level.WARNING, "Damage inference failed for rental " + request.getRentalId(), e);
+                    return List.of();
+                });
+    }
+
+    public BatchMetrics getMetrics() {
+        return queue.getMetrics();
+    }
+
+    public List<Damage> recordDetections(DamageInferenceRequest request, List<PartDetection> detections) {
+        // A re-submitted photo (upload retry) must not duplicate the damages already recorded for it
+        boolean alreadyAssessed = damageManager.getDamagesByRentalId(request.getRentalId()).stream()
+                .anyMatch(damage -> request.getFinalPhotoUrl().equals(damage.getAfterPhoto()));
+        if (alreadyAssessed) {
+            return List.of();
+        }
+
+        List<Damage> created = new ArrayList<>();
+        for (PartDetection detection : detections) {
+            if (detection.getState() == null || !detection.getState().isDamage()
+                    || detection.getScore() == null || detection.getScore() < minConfidence) {
+                continue;
+            }
+            Damage damage = Damage.builder()
+                    .description(detection.getPart() + ": " + detection.getState().name().toLowerCase())
+                    .confidenceScore(detection.getScore())
+                    .bikeId(request.getBikeId())
+                    .rentalId(request.getRentalId())
+                    .beforePhoto(request.getInitialPhotoUrl())
+                    .afterPhoto(request.getFinalPhotoUrl())
+                    .build();
+            created.add(damageManager.createDamage(damage));
+        }
+        return created;
+    }
+}
@@ -3,9 +3,13 @@ package tn.supcom.cot.iam.controllers.managers;
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
 import tn.supcom.cot.iam.controllers.repositories.DamageRepository;
+import tn.supcom.cot.iam.controllers.status.DamageStatus;
+import tn.supcom.cot.iam.entities.BikeDamageSummary;
 import tn.supcom.cot.iam.entities.Damage;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -15,6 +19,12 @@ public class DamageManager {
     @Inject
     private DamageRepository damageRepository;
 
+    @Inject
+    private DamageSummaryManager damageSummaryManager;
+
+    @Inject
+    private StatusCountManager statusCountManager;
+
 
     public Optional<Damage> getDamageById(String damageId) {
         return damageRepository.findById(damageId);
@@ -37,7 +47,16 @@ public class DamageManager {
 
 
     public Set<Damage> getDamagesByStatus(String status) {
-        return damageRepository.findByDamageStatus(status).collect(Collectors.toSet());
+        DamageStatus damageStatus = DamageStatus.of(status);
+        if (damageStatus == DamageStatus.OTHER) {
+            return Set.of(); // no damage is ever written with an unknown status
+        }
+        return damageRepository.findByDamageStatus(damageStatus.name()).collect(Collectors.toSet());
+    }
+
+
+    public Map<DamageStatus, Long> countDamagesByStatus() {
+        return statusCountManager.getDamageCounts();
     }
 
 
@@ -47,82 +66,111 @@ public class DamageManager {
             damage.setDetectionDate(LocalDateTime.now());
         }
         if (damage.getDamageStatus() == null) {
-            damage.setDamageStatus("DETECTED");
+            damage.setDamageStatus(DamageStatus.DETECTED.name());
         }
-        return damageRepository.save(damage);
+        DamageStatus.checkTransition(null, damage.getDamageStatus());
+        Damage saved = damageRepository.save(damage);
+        damageSummaryManager.onDamageChanged(null, saved);
+        statusCountManager.onDamageStatusChanged(null, DamageStatus.of(saved.getDamageStatus()));
+        return saved;
     }
 
 
     public Damage updateDamage(Damage damage) {
-        return damageRepository.save(damage);
+        DamageSummaryManager.DamageWrite write = damageSummaryManager.write(damage.getDamageId(), before -> {
+            DamageStatus.checkTransition(before != null ? before.getDamageStatus() : null, damage.getDamageStatus());
+            return damage;
+        });
+        countStatusChange(write);
+        return write.after();
     }
 
 
     public boolean deleteDamage(String damageId) {
-        Optional<Damage> optDamage = damageRepository.findById(damageId);
-        if (optDamage.isPresent()) {
-            damageRepository.deleteById(damageId);
+        Damage deleted = damageSummaryManager.delete(damageId);
+        if (deleted != null) {
+            statusCountManager.onDamageStatusChanged(DamageStatus.of(deleted.getDamageStatus()), null);
             return true;
         }
         return false;
     }
 
     public Damage confirmDamage(String damageId) {
-        Optional<Damage> optDamage = damageRepository.findById(damageId);
-        if (optDamage.isPresent()) {
-            Damage damage = optDamage.get();
-            damage.setDamageStatus("CONFIRMED");
-            return damageRepository.save(damage);
-        }
-        return null;
+        DamageSummaryManager.DamageWrite write = damageSummaryManager.write(damageId, damage -> {
+            if (damage == null) {
+                return null;
+            }
+            DamageStatus.checkTransition(damage.getDamageStatus(), DamageStatus.CONFIRMED.name());
+            damage.setDamageStatus(DamageStatus.CONFIRMED.name());
+            return damage;
+        });
+        countStatusChange(write);
+        return write != null ? write.after() : null;
     }
 
 
     public Damage markAsRepaired(String damageId) {
-        Optional<Damage> optDamage = damageRepository.findById(damageId);
-        if (optDamage.isPresent()) {
-            Damage damage = optDamage.get();
-            damage.setDamageStatus("REPAIRED");
+        DamageSummaryManager.DamageWrite write = damageSummaryManager.write(damageId, damage -> {
+            if (damage == null) {
+                return null;
+            }
+            DamageStatus.checkTransition(damage.getDamageStatus(), DamageStatus.REPAIRED.name());
+            damage.setDamageStatus(DamageStatus.REPAIRED.name());
             damage.setRepairDate(LocalDateTime.now());
-            return damageRepository.save(damage);
-        }
-        return null;
+            return damage;
+        });
+        countStatusChange(write);
+        return write != null ? write.after() : null;
     }
 
 
+    // Photos go through the same locked write so they never save over a concurrent status change
     public Damage addBeforePhoto(String damageId, String photoUrl) {
-        Optional<Damage> optDamage = damageRepository.findById(damageId);
-        if (optDamage.isPresent()) {
-            Damage damage = optDamage.get();
-            damage.setBeforePhoto(photoUrl);
-            return damageRepository.save(damage);
-        }
-        return null;
+        DamageSummaryManager.DamageWrite write = damageSummaryManager.write(damageId, damage -> {
+            if (damage != null) {
+                damage.setBeforePhoto(photoUrl);
+            }
+            return damage;
+        });
+        return write != null ? write.after() : null;
     }
 
 
     public Damage addAfterPhoto(String damageId, String photoUrl) {
-        Optional<Damage> optDamage = damageRepository.findById(damageId);
-        if (optDamage.isPresent()) {
-            Damage damage = optDamage.get();
-            damage.setAfterPhoto(photoUrl);
-            return damageRepository.save(damage);
-        }
-        return null;
+        DamageSummaryManager.DamageWrite write = damageSummaryManager.write(damageId, damage -> {
+            if (damage != null) {
+                damage.setAfterPhoto(photoUrl);
+            }
+            return damage;
+        });
+        return write != null ? write.after() : null;
     }
 
 
     public Float getTotalRepairCostByBike(String bikeId) {
-        return damageRepository.findByBikeId(bikeId)
-                .map(Damage::getRepairCost)
-                .filter(cost -> cost != null)
-                .reduce(0f, Float::sum);
+        return damageSummaryManager.getSummary(bikeId).getTotalRepairCost();
     }
 
 
     public long countUnrepairedDamagesByBike(String bikeId) {
-        return damageRepository.findByBikeId(bikeId)
-                .filter(damage -> !"REPAIRED".equals(damage.getDamageStatus()))
-                .count();
+        return damageSummaryManager.getSummary(bikeId).getUnrepairedCount();
+    }
+
+
+    public BikeDamageSummary getDamageSummaryByBike(String bikeId) {
+        return damageSummaryManager.getSummary(bikeId);
+    }
+
+
+    public List<BikeDamageSummary> getAllDamageSummaries() {
+        return damageSummaryManager.getAllSummaries();
+    }
+
+    private void countStatusChange(DamageSummaryManager.DamageWrite write) {
+        if (write != null) {
+            statusCountManager.onDamageStatusChanged(
+                    write.before() != null ? DamageStatus.of(write.before().getDamageStatus()) : null,
+                    DamageStatus.of(write.after().getDamageStatus()));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,194 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.repositories.BikeDamageSummaryRepository;
+import tn.supcom.cot.iam.controllers.repositories.DamageRepository;
+import tn.supcom.cot.iam.controllers.status.DamageStatus;
+import tn.supcom.cot.iam.entities.BikeDamageSummary;
+import tn.supcom.cot.iam.entities.Damage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-bike damage aggregates (total repair cost, unrepaired count, last detection) kept up to
+ * date by DamageManager on every write, so dashboards never reduce over all damages of a bike.
+ * All summaries are rebuilt from the damages at startup; after that every write is applied as a
+ * delta under the singleton write lock, never by rescanning, so a scan that already sees a write
+ * cannot have the same write's delta added on top. Updates and deletions go through write() and
+ * delete(), which also read the stored damage under that lock, so two concurrent writes of one
+ * damage never compute their delta from the same state. Reads are served from memory.
+ */
+@Startup
+@Singleton
+@LocalBean
+public class DamageSummaryManager {
+
+    @Inject
+    private BikeDamageSummaryRepository summaryRepository;
+
+    @Inject
+    private DamageRepository damageRepository;
+
+    private final Map<String, BikeDamageSummary> summaries = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Map<String, BikeDamageSummary> fresh = new HashMap<>();
+        damageRepository.findAll().forEach(damage -> {
+            if (damage.getBikeId() != null) {
+                add(fresh.computeIfAbsent(damage.getBikeId(), DamageSummaryManager::empty), damage);
+            }
+        });
+        summaryRepository.findAll().forEach(stored -> {
+            if (!fresh.containsKey(stored.getBikeId())) {
+                summaryRepository.deleteById(stored.getBikeId());
+            }
+        });
+        fresh.values().forEach(this::save);
+    }
+
+    // Every bike with a damage has a summary since startup, a missing one means no damage at all
+    @Lock(LockType.READ)
+    public BikeDamageSummary getSummary(String bikeId) {
+        BikeDamageSummary summary = summaries.get(bikeId);
+        return summary != null ? summary : empty(bikeId);
+    }
+
+    @Lock(LockType.READ)
+    public List<BikeDamageSummary> getAllSummaries() {
+        return new ArrayList<>(summaries.values());
+    }
+
+    // The stored damage before a write and the damage saved by it
+    public record DamageWrite(Damage before, Damage after) {
+    }
+
+    /**
+     * Reads the stored damage (null when missing), saves what change makes of a copy of it and
+     * applies the delta. Returns null, writing nothing, when change returns null; change may
+     * throw to reject the write.
+     */
+    public DamageWrite write(String damageId, UnaryOperator<Damage> change) {
+        Damage before = damageId == null ? null : damageRepository.findById(damageId).orElse(null);
+        Damage next = change.apply(before != null ? before.toBuilder().build() : null);
+        if (next == null) {
+            return null;
+        }
+        Damage saved = damageRepository.save(next);
+        onDamageChanged(before, saved);
+        return new DamageWrite(before, saved);
+    }
+
+    // Returns the deleted damage, or null when there was none
+    public Damage delete(String damageId) {
+        Damage before = damageRepository.findById(damageId).orElse(null);
+        if (before != null) {
+            damageRepository.deleteById(damageId);
+            onDamageChanged(before, null);
+        }
+        return before;
+    }
+
+    // before is null for a creation, after is null for a deletion
+    public void onDamageChanged(Damage before, Damage after) {
+        String oldBike = before != null ? before.getBikeId() : null;
+        String newBike = after != null ? after.getBikeId() : null;
+
+        if (oldBike != null && oldBike.equals(newBike)) {
+            apply(oldBike, before, after);
+            return;
+        }
+        if (oldBike != null) {
+            apply(oldBike, before, null);
+        }
+        if (newBike != null) {
+            apply(newBike, null, after);
+        }
+    }
+
+    private void apply(String bikeId, Damage before, Damage after) {
+        BikeDamageSummary summary = summaries.get(bikeId);
+        if (summary == null) {
+            summary = empty(bikeId);
+        }
+
+        float cost = summary.getTotalRepairCost() - repairCost(before) + repairCost(after);
+        long unrepaired = summary.getUnrepairedCount() - unrepaired(before) + unrepaired(after);
+        long count = summary.getDamageCount() - (before != null ? 1 : 0) + (after != null ? 1 : 0);
+
+        LocalDateTime last = summary.getLastDetectionDate();
+        if (before != null && before.getDetectionDate() != null && before.getDetectionDate().equals(last)
+                && (after == null || !last.equals(after.getDetectionDate()))) {
+            // The latest damage went away or moved back in time, only a rescan can tell the new
+            // maximum; a maximum stays right even if the scan already sees later writes
+            last = latestDetection(bikeId);
+        } else if (after != null && after.getDetectionDate() != null
+                && (last == null || after.getDetectionDate().isAfter(last))) {
+            last = after.getDetectionDate();
+        }
+
+        save(BikeDamageSummary.builder()
+                .bikeId(bikeId)
+                .totalRepairCost(Math.max(0f, cost))
+                .unrepairedCount(Math.max(0L, unrepaired))
+                .damageCount(Math.max(0L, count))
+                .lastDetectionDate(last)
+                .build());
+    }
+
+    private LocalDateTime latestDetection(String bikeId) {
+        return damageRepository.findByBikeId(bikeId)
+                .map(Damage::getDetectionDate)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+    }
+
+    private static BikeDamageSummary empty(String bikeId) {
+        return BikeDamageSummary.builder()
+                .bikeId(bikeId)
+                .totalRepairCost(0f)
+                .unrepairedCount(0L)
+                .damageCount(0L)
+                .build();
+    }
+
+    private static void add(BikeDamageSummary summary, Damage damage) {
+        summary.setTotalRepairCost(summary.getTotalRepairCost() + repairCost(damage));
+        summary.setUnrepairedCount(summary.getUnrepairedCount() + unrepaired(damage));
+        summary.setDamageCount(summary.getDamageCount() + 1);
+        LocalDateTime detected = damage.getDetectionDate();
+        if (detected != null && (summary.getLastDetectionDate() == null
+                || detected.isAfter(summary.getLastDetectionDate()))) {
+            summary.setLastDetectionDate(detected);
+        }
+    }
+
+    private BikeDamageSummary save(BikeDamageSummary summary) {
+        BikeDamageSummary saved = summaryRepository.save(summary);
+        summaries.put(saved.getBikeId(), saved);
+        return saved;
+    }
+
+    private static float repairCost(Damage damage) {
+        return damage != null && damage.getRepairCost() != null ? damage.getRepairCost() : 0f;
+    }
+
+    private static long unrepaired(Damage damage) {
+        return damage != null && DamageStatus.of(damage.getDamageStatus()) != DamageStatus.REPAIRED ? 1 : 0;
+    }
+}
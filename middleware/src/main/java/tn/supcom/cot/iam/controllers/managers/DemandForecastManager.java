@@ -0,0 +1,87 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.forecasting.StationDemandTracker;
+import tn.supcom.cot.iam.controllers.forecasting.StationForecast;
+import tn.supcom.cot.iam.controllers.repositories.StationRepository;
+import tn.supcom.cot.iam.entities.Station;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Recomputes the demand forecast of every station each minute from the learned hourly rates and
+ * the current bike counts, and keeps the result in memory for the rebalancing views.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class DemandForecastManager {
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private StationRepository stationRepository;
+
+    @Inject
+    private StationDemandTracker stationDemandTracker;
+
+    @Inject
+    @ConfigProperty(name = "forecast.horizon.hours", defaultValue = "3")
+    private Integer horizonHours;
+
+    @Inject
+    @ConfigProperty(name = "forecast.shortage.threshold", defaultValue = "2")
+    private Integer shortageThreshold;
+
+    private volatile List<StationForecast> forecasts = List.of();
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void refresh() {
+        long start = System.nanoTime();
+        List<Station> stations = stationRepository.findAll().collect(Collectors.toList());
+        forecasts = List.copyOf(stationDemandTracker.forecast(stations, System.currentTimeMillis(),
+                horizonHours, shortageThreshold));
+        logger.fine("Demand forecast computed for " + stations.size() + " stations in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    public List<StationForecast> getForecasts() {
+        return forecasts;
+    }
+
+    public Optional<StationForecast> getForecast(String stationId) {
+        return forecasts.stream()
+                .filter(forecast -> forecast.getStationId().equals(stationId))
+                .findFirst();
+    }
+
+    // Stations expected to run short within the horizon, soonest first
+    public List<StationForecast> getShortages() {
+        return forecasts.stream()
+                .filter(forecast -> forecast.getHoursUntilShortage() != null)
+                .sorted(Comparator.comparing(StationForecast::getHoursUntilShortage)
+                        .thenComparing(StationForecast::getMinimumBikes))
+                .collect(Collectors.toList());
+    }
+
+    // Stations expected to run out of docks within the horizon, soonest first
+    public List<StationForecast> getOverflows() {
+        return forecasts.stream()
+                .filter(forecast -> forecast.getHoursUntilOverflow() != null)
+                .sorted(Comparator.comparing(StationForecast::getHoursUntilOverflow))
+                .collect(Collectors.toList());
+    }
+}
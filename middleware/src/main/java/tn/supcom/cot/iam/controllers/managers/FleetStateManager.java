@@ -0,0 +1,249 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.inject.Inject;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.fleet.FleetIndex;
+import tn.supcom.cot.iam.controllers.repositories.BikeRepository;
+import tn.supcom.cot.iam.controllers.status.BikeStatus;
+import tn.supcom.cot.iam.entities.Bike;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * The whole fleet held in memory (FleetIndex) so bike reads never stream from MongoDB. Writes
+ * made through this node call onBikeSaved/onBikeDeleted; writes from other nodes arrive through
+ * a change stream on the Bike collection. A periodic resync from MongoDB bounds staleness to
+ * fleet.resync.minutes, or one minute while the change stream is down (e.g. a standalone server
+ * without change streams).
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class FleetStateManager {
+
+    // Collection JNoSQL maps the Bike entity to
+    private static final String COLLECTION = Bike.class.getSimpleName();
+    private static final long RETRY_MILLIS = 30_000;
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private BikeRepository bikeRepository;
+
+    @Inject
+    private MongoDatabase database;
+
+    @Inject
+    @ConfigProperty(name = "fleet.changestream.enabled", defaultValue = "true")
+    private Boolean changeStreamEnabled;
+
+    @Inject
+    @ConfigProperty(name = "fleet.resync.minutes", defaultValue = "10")
+    private Integer resyncMinutes;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private FleetIndex index = new FleetIndex();
+    private Set<String> changedDuringResync; // non-null while a resync is scanning MongoDB
+    private final Object resyncLock = new Object();
+    private volatile boolean watching;
+    private volatile boolean running = true;
+    private Thread watcher;
+    private int minutes;
+
+    @PostConstruct
+    public void init() {
+        resync();
+        if (changeStreamEnabled) {
+            watcher = threadFactory.newThread(this::watch);
+            watcher.setName("fleet-change-stream");
+            watcher.start();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    //------- Changes -------
+
+    public void onBikeSaved(Bike bike) {
+        if (bike == null || bike.getBikeId() == null) {
+            return;
+        }
+        synchronized (this) {
+            index.put(bike);
+            if (changedDuringResync != null) {
+                changedDuringResync.add(bike.getBikeId());
+            }
+        }
+    }
+
+    public void onBikeDeleted(String bikeId) {
+        synchronized (this) {
+            index.remove(bikeId);
+            if (changedDuringResync != null) {
+                changedDuringResync.add(bikeId);
+            }
+        }
+    }
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void scheduledResync() {
+        if (!watching || ++minutes % resyncMinutes == 0) {
+            resync();
+        }
+    }
+
+    // Rebuilds the index from MongoDB without blocking reads; changes applied meanwhile win
+    public void resync() {
+        synchronized (resyncLock) {
+            long start = System.nanoTime();
+            synchronized (this) {
+                changedDuringResync = new HashSet<>();
+            }
+            FleetIndex fresh = new FleetIndex();
+            try {
+                bikeRepository.findAll().forEach(fresh::put);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changedDuringResync = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                for (String bikeId : changedDuringResync) {
+                    Bike current = index.get(bikeId);
+                    if (current != null) {
+                        fresh.put(current);
+                    } else {
+                        fresh.remove(bikeId);
+                    }
+                }
+                changedDuringResync = null;
+                index = fresh;
+            }
+            logger.fine("Fleet state resynced: " + fresh.size() + " bikes in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    private void watch() {
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = database
+                         .getCollection(COLLECTION)
+                         .watch()
+                         .maxAwaitTime(1, TimeUnit.SECONDS)
+                         .cursor()) {
+                watching = true;
+                logger.info("Watching " + COLLECTION + " changes from other nodes");
+                resync(); // whatever changed before the stream opened
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null) {
+                        apply(change);
+                    }
+                }
+            } catch (RuntimeException e) {
+                watching = false;
+                if (!running) {
+                    return;
+                }
+                logger.log(Level.WARNING, "Bike change stream unavailable, resyncing every minute instead", e);
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+        watching = false;
+    }
+
+    private void apply(ChangeStreamDocument<Document> change) {
+        OperationType operation = change.getOperationType();
+        if (operation == OperationType.DROP || operation == OperationType.INVALIDATE) {
+            resync();
+            return;
+        }
+        BsonValue id = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+        if (id == null || !id.isString()) {
+            return;
+        }
+        String bikeId = id.asString().getValue();
+        if (operation == OperationType.DELETE) {
+            onBikeDeleted(bikeId);
+        } else {
+            // Read through the repository so the entity mapping stays in one place
+            bikeRepository.findById(bikeId).ifPresentOrElse(this::onBikeSaved, () -> onBikeDeleted(bikeId));
+        }
+    }
+
+    //------- Reads -------
+
+    public synchronized Optional<Bike> getBike(String bikeId) {
+        return Optional.ofNullable(index.get(bikeId));
+    }
+
+    public synchronized List<Bike> getAllBikes() {
+        return index.all();
+    }
+
+    public synchronized List<Bike> getBikesByStatus(String status) {
+        BikeStatus code = BikeStatus.of(status);
+        if (code == BikeStatus.OTHER) {
+            // OTHER gathers every unrecognised string, keep only the one asked for
+            return index.byStatus(code).stream()
+                    .filter(bike -> status == null ? bike.getStatus() == null : status.equals(bike.getStatus()))
+                    .collect(Collectors.toList());
+        }
+        return index.byStatus(code);
+    }
+
+    public synchronized List<Bike> getBikesByStation(String stationId) {
+        return index.byStation(stationId);
+    }
+
+    public synchronized List<Bike> getAvailableBikes(String stationId, int minBattery) {
+        return index.byStationAndStatus(stationId, BikeStatus.AVAILABLE, minBattery);
+    }
+
+    public synchronized int countAvailableBikes(String stationId, int minBattery) {
+        return index.countByStationAndStatus(stationId, BikeStatus.AVAILABLE, minBattery);
+    }
+
+    public synchronized Map<BikeStatus, Integer> countByStatus() {
+        return index.countByStatus();
+    }
+}
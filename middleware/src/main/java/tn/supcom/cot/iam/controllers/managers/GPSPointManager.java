@@ -3,10 +3,20 @@ package tn.supcom.cot.iam.controllers.managers;
 
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.errors.ConflictException;
+import tn.supcom.cot.iam.controllers.geo.GeoKernel;
+import tn.supcom.cot.iam.controllers.geo.GeoMath;
+import tn.supcom.cot.iam.controllers.geo.GeoPoints;
 import tn.supcom.cot.iam.controllers.repositories.GPSPointRepository;
+import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
+import tn.supcom.cot.iam.controllers.trajectory.RideTraceTracker;
 import tn.supcom.cot.iam.entities.GPSPoint;
+import tn.supcom.cot.iam.entities.RideTrace;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -17,14 +27,32 @@ public class GPSPointManager {
     @Inject
     private GPSPointRepository gpsPointRepository;
 
+    @Inject
+    private RideTraceTracker rideTraceTracker;
+
+    @Inject
+    private GeofenceManager geofenceManager;
+
+    @Inject
+    private GpsAnomalyManager gpsAnomalyManager;
+
+    @Inject
+    private HeatmapManager heatmapManager;
+
+    @Inject
+    private GpsHistoryManager gpsHistoryManager;
+
+    @Inject
+    private RentalRepository rentalRepository;
+
 
     public Optional<GPSPoint> getGPSPointById(String gpsPointId) {
-        return gpsPointRepository.findById(gpsPointId);
+        return gpsHistoryManager.findById(gpsPointId);
     }
 
 
     public Set<GPSPoint> getAllGPSPoints() {
-        return gpsPointRepository.findAll().collect(Collectors.toSet());
+        return gpsHistoryManager.findAll().collect(Collectors.toSet());
     }
 
 
@@ -35,22 +63,66 @@ public class GPSPointManager {
         if (gpsPoint.getTimestamp() == null) {
             gpsPoint.setTimestamp(LocalDateTime.now());
         }
-        return gpsPointRepository.save(gpsPoint);
+        // Fixes sent by the rider's phone only know the rental
+        if (gpsPoint.getBikeId() == null && gpsPoint.getRentalId() != null) {
+            rentalRepository.findById(gpsPoint.getRentalId())
+                    .ifPresent(rental -> gpsPoint.setBikeId(rental.getBikeId()));
+        }
+        GPSPoint saved = gpsPointRepository.save(gpsPoint);
+        rideTraceTracker.onPoint(saved);
+        geofenceManager.onPoint(saved);
+        gpsAnomalyManager.onPoint(saved);
+        heatmapManager.onPoint(saved);
+        return saved;
     }
 
 
     public GPSPoint createGPSPointWithCoordinates(Float latitude, Float longitude) {
+        return createGPSPointWithCoordinates(latitude, longitude, null, null);
+    }
+
+
+    public GPSPoint createGPSPointWithCoordinates(Float latitude, Float longitude, String rentalId, String bikeId) {
         GPSPoint gpsPoint = GPSPoint.builder()
                 .gpsPointId("GPS-" + UUID.randomUUID().toString())
                 .latitude(latitude)
                 .longitude(longitude)
                 .timestamp(LocalDateTime.now())
+                .rentalId(rentalId)
+                .bikeId(bikeId)
                 .build();
-        return gpsPointRepository.save(gpsPoint);
+        return createGPSPoint(gpsPoint);
+    }
+
+
+    public Optional<RideTrace> getRideTrace(String rentalId) {
+        return rideTraceTracker.getTrace(rentalId);
+    }
+
+
+    public List<GPSPoint> getRawTrace(String rentalId) {
+        return rideTraceTracker.getRawPoints(rentalId);
+    }
+
+
+    // Fixes of a bike between two epoch-millisecond instants, from both the live and archived tiers
+    public List<GPSPoint> getBikeHistory(String bikeId, Long fromMillis, Long toMillis) {
+        return gpsHistoryManager.findByBikeId(bikeId,
+                fromMillis != null ? LocalDateTime.ofInstant(Instant.ofEpochMilli(fromMillis), ZoneId.systemDefault()) : null,
+                toMillis != null ? LocalDateTime.ofInstant(Instant.ofEpochMilli(toMillis), ZoneId.systemDefault()) : null);
+    }
+
+
+    public int archiveGPSPoints() {
+        return gpsHistoryManager.archive();
     }
 
 
     public GPSPoint updateGPSPoint(GPSPoint gpsPoint) {
+        // Saving would bring an archived fix back into the hot collection as a second copy
+        if (gpsPoint.getGpsPointId() != null && gpsHistoryManager.isArchived(gpsPoint.getGpsPointId())) {
+            throw new ConflictException("GPS point " + gpsPoint.getGpsPointId() + " is archived and read-only");
+        }
         return gpsPointRepository.save(gpsPoint);
     }
 
@@ -61,15 +133,20 @@ public class GPSPointManager {
             gpsPointRepository.deleteById(gpsPointId);
             return true;
         }
+        if (gpsHistoryManager.isArchived(gpsPointId)) {
+            throw new ConflictException("GPS point " + gpsPointId + " is archived and read-only");
+        }
         return false;
     }
 
 
     public Float calculateDistance(String gpsPointId1, String gpsPointId2) {
-        Optional<GPSPoint> point1 = gpsPointRepository.findById(gpsPointId1);
-        Optional<GPSPoint> point2 = gpsPointRepository.findById(gpsPointId2);
+        Optional<GPSPoint> point1 = gpsHistoryManager.findById(gpsPointId1);
+        Optional<GPSPoint> point2 = gpsHistoryManager.findById(gpsPointId2);
 
-        if (point1.isPresent() && point2.isPresent()) {
+        if (point1.isPresent() && point2.isPresent()
+                && point1.get().getLatitude() != null && point1.get().getLongitude() != null
+                && point2.get().getLatitude() != null && point2.get().getLongitude() != null) {
             return calculateDistanceInKm(
                     point1.get().getLatitude(),
                     point1.get().getLongitude(),
@@ -81,18 +158,19 @@ public class GPSPointManager {
     }
 
 
-    private Float calculateDistanceInKm(Float lat1, Float lon1, Float lat2, Float lon2) {
-        final int EARTH_RADIUS = 6371; // Rayon de la Terre en km
-
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    // Length of the path through the given points, in order; unknown ids are skipped
+    public Float calculatePathDistance(List<String> gpsPointIds) {
+        GeoPoints path = new GeoPoints(gpsPointIds.size());
+        for (String gpsPointId : gpsPointIds) {
+            gpsHistoryManager.findById(gpsPointId)
+                    .filter(point -> point.getLatitude() != null && point.getLongitude() != null)
+                    .ifPresent(point -> path.add(point.getLatitude(), point.getLongitude()));
+        }
+        return (float) GeoKernel.trajectoryLengthKm(path);
+    }
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
 
-        return (float) (EARTH_RADIUS * c);
+    private float calculateDistanceInKm(float lat1, float lon1, float lat2, float lon2) {
+        return (float) GeoMath.haversineKm(lat1, lon1, lat2, lon2);
     }
-}
\ No newline at end of file
+}
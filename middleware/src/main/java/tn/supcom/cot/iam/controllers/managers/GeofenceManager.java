@@ -0,0 +1,324 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.errors.ConflictException;
+import tn.supcom.cot.iam.controllers.errors.InvalidRequestException;
+import tn.supcom.cot.iam.controllers.geo.GeoMath;
+import tn.supcom.cot.iam.controllers.geofence.GeofenceEventType;
+import tn.supcom.cot.iam.controllers.geofence.ZoneGrid;
+import tn.supcom.cot.iam.controllers.geofence.ZoneType;
+import tn.supcom.cot.iam.controllers.repositories.GPSPointRepository;
+import tn.supcom.cot.iam.controllers.repositories.GeofenceEventRepository;
+import tn.supcom.cot.iam.controllers.repositories.ZoneRepository;
+import tn.supcom.cot.iam.entities.GPSPoint;
+import tn.supcom.cot.iam.entities.GeoVertex;
+import tn.supcom.cot.iam.entities.GeofenceEvent;
+import tn.supcom.cot.iam.entities.Station;
+import tn.supcom.cot.iam.entities.Zone;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Ride zones and parking checks. Active zone polygons are indexed in a ZoneGrid that is rebuilt
+ * whenever a zone changes; each GPS fix of a ride is checked against the polygons of its grid
+ * cell only, and a GeofenceEvent is stored when the set of zones the ride is in changes.
+ * Fixes share the read lock and keep their per-ride state in concurrent maps; zone edits take
+ * the singleton write lock. State of rides that stop reporting (expired, abandoned, never ended
+ * through the API) is dropped after geofence.ride.idle.minutes.
+ */
+@Startup
+@Singleton
+@LocalBean
+public class GeofenceManager {
+
+    private record Index(ZoneGrid grid, Zone[] zones) {
+    }
+
+    // Zones a ride is in and its latest fix
+    private static class RideState {
+        private Set<String> inside = new HashSet<>();
+        private GPSPoint lastFix;
+        private volatile long lastSeen = System.currentTimeMillis();
+    }
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private ZoneRepository zoneRepository;
+
+    @Inject
+    private GeofenceEventRepository geofenceEventRepository;
+
+    @Inject
+    private GPSPointRepository gpsPointRepository;
+
+    @Inject
+    @ConfigProperty(name = "geofence.grid.cell.degrees", defaultValue = "0.005")
+    private Double cellDegrees;
+
+    @Inject
+    @ConfigProperty(name = "geofence.station.radius.meters", defaultValue = "50")
+    private Integer defaultStationRadius;
+
+    // At 0.005° cells, 10000 cells is a square of about 55 km on a side
+    @Inject
+    @ConfigProperty(name = "geofence.zone.max.cells", defaultValue = "10000")
+    private Long maxCells;
+
+    @Inject
+    @ConfigProperty(name = "geofence.ride.idle.minutes", defaultValue = "120")
+    private Integer rideIdleMinutes;
+
+    private final Map<String, Zone> zones = new ConcurrentHashMap<>();
+    private final Map<String, RideState> rides = new ConcurrentHashMap<>();
+    private volatile Index index;
+
+    @PostConstruct
+    public void init() {
+        zoneRepository.findAll().forEach(zone -> zones.put(zone.getZoneId(), zone));
+        reindex();
+    }
+
+    private void reindex() {
+        ZoneGrid grid = new ZoneGrid(cellDegrees);
+        List<Zone> indexed = new ArrayList<>();
+        for (Zone zone : zones.values()) {
+            if (Boolean.FALSE.equals(zone.getActive()) || zone.getVertices() == null || zone.getVertices().size() < 3) {
+                continue;
+            }
+            // Zones stored before types were checked enforce nothing, say so instead of silently
+            if (ZoneType.of(zone.getZoneType()) == null) {
+                logger.warning("Zone " + zone.getZoneId() + " has unknown type " + zone.getZoneType());
+            }
+            double[] latitudes = latitudes(zone);
+            double[] longitudes = longitudes(zone);
+            // Zones stored before the size cap existed
+            if (grid.cellCount(latitudes, longitudes) > maxCells) {
+                logger.warning("Zone " + zone.getZoneId() + " covers more than " + maxCells + " grid cells, not indexed");
+                continue;
+            }
+            grid.add(latitudes, longitudes);
+            indexed.add(zone);
+        }
+        index = new Index(grid.build(), indexed.toArray(new Zone[0]));
+    }
+
+    private static double[] latitudes(Zone zone) {
+        return zone.getVertices().stream().mapToDouble(GeoVertex::getLatitude).toArray();
+    }
+
+    private static double[] longitudes(Zone zone) {
+        return zone.getVertices().stream().mapToDouble(GeoVertex::getLongitude).toArray();
+    }
+
+    //------- Zones -------
+
+    @Lock(LockType.READ)
+    public List<Zone> getZones() {
+        return new ArrayList<>(zones.values());
+    }
+
+    @Lock(LockType.READ)
+    public Optional<Zone> getZone(String zoneId) {
+        return Optional.ofNullable(zones.get(zoneId));
+    }
+
+    public Zone createZone(Zone zone) {
+        zone.generateId();
+        return saveZone(zone);
+    }
+
+    public Zone updateZone(Zone zone) {
+        if (!zones.containsKey(zone.getZoneId())) {
+            return null;
+        }
+        return saveZone(zone);
+    }
+
+    private Zone saveZone(Zone zone) {
+        if (zone.getVertices() == null || zone.getVertices().size() < 3
+                || zone.getVertices().stream().anyMatch(v -> v.getLatitude() == null || v.getLongitude() == null)) {
+            throw new InvalidRequestException("A zone needs at least 3 vertices with coordinates");
+        }
+        if (ZoneType.of(zone.getZoneType()) == null) {
+            throw new InvalidRequestException("Unknown zone type: " + zone.getZoneType()
+                    + ", expected one of " + Arrays.toString(ZoneType.values()));
+        }
+        long cells = new ZoneGrid(cellDegrees).cellCount(latitudes(zone), longitudes(zone));
+        if (cells > maxCells) {
+            throw new InvalidRequestException("Zone covers " + cells + " grid cells, at most " + maxCells + " are allowed");
+        }
+        if (zone.getActive() == null) {
+            zone.setActive(true);
+        }
+        zone.setUpdatedAt(LocalDateTime.now());
+        Zone saved = zoneRepository.save(zone);
+        zones.put(saved.getZoneId(), saved);
+        reindex();
+        return saved;
+    }
+
+    public boolean deleteZone(String zoneId) {
+        if (zones.remove(zoneId) == null) {
+            return false;
+        }
+        zoneRepository.deleteById(zoneId);
+        reindex();
+        return true;
+    }
+
+    @Lock(LockType.READ)
+    public List<Zone> getZonesAt(double latitude, double longitude) {
+        Index current = index;
+        List<Zone> found = new ArrayList<>();
+        for (int polygon : current.grid().containing(latitude, longitude)) {
+            found.add(current.zones()[polygon]);
+        }
+        return found;
+    }
+
+    //------- Rides -------
+
+    // Called once the fix is stored; returns the enter/exit events it caused
+    @Lock(LockType.READ)
+    public List<GeofenceEvent> onPoint(GPSPoint point) {
+        if (point.getRentalId() == null || point.getLatitude() == null || point.getLongitude() == null) {
+            return List.of();
+        }
+        Index current = index;
+        Set<String> now = new HashSet<>();
+        for (int polygon : current.grid().containing(point.getLatitude(), point.getLongitude())) {
+            now.add(current.zones()[polygon].getZoneId());
+        }
+
+        RideState ride = rides.computeIfAbsent(point.getRentalId(), id -> new RideState());
+        ride.lastSeen = System.currentTimeMillis();
+        List<GeofenceEvent> events = new ArrayList<>();
+        synchronized (ride) {
+            // Late fixes still count as the ride's position only if they are newer
+            if (ride.lastFix != null && point.getTimestamp() != null && ride.lastFix.getTimestamp() != null
+                    && point.getTimestamp().isBefore(ride.lastFix.getTimestamp())) {
+                return List.of();
+            }
+            ride.lastFix = point;
+            for (String zoneId : now) {
+                if (!ride.inside.contains(zoneId)) {
+                    events.add(event(point, zoneId, GeofenceEventType.ENTER));
+                }
+            }
+            for (String zoneId : ride.inside) {
+                if (!now.contains(zoneId)) {
+                    events.add(event(point, zoneId, GeofenceEventType.EXIT));
+                }
+            }
+            ride.inside = now;
+        }
+        for (GeofenceEvent event : events) {
+            geofenceEventRepository.save(event);
+            if (GeofenceEventType.ENTER.name().equals(event.getEventType())
+                    && ZoneType.of(event.getZoneType()) == ZoneType.NO_RIDE) {
+                logger.warning("Rental " + event.getRentalId() + " entered no-ride zone " + event.getZoneName());
+            }
+        }
+        return events;
+    }
+
+    private GeofenceEvent event(GPSPoint point, String zoneId, GeofenceEventType eventType) {
+        Zone zone = zones.get(zoneId);
+        GeofenceEvent event = GeofenceEvent.builder()
+                .rentalId(point.getRentalId())
+                .zoneId(zoneId)
+                .zoneName(zone != null ? zone.getName() : null)
+                .zoneType(zone != null ? zone.getZoneType() : null)
+                .eventType(eventType.name())
+                .latitude(point.getLatitude())
+                .longitude(point.getLongitude())
+                .timestamp(point.getTimestamp() != null ? point.getTimestamp() : LocalDateTime.now())
+                .build();
+        event.generateId();
+        return event;
+    }
+
+    // Rejects the return when the ride's last fix is outside the station's parking radius or in a
+    // no-parking zone
+    @Lock(LockType.READ)
+    public void validateParking(String rentalId, Station station) {
+        if (station == null || station.getLatitude() == null || station.getLongitude() == null) {
+            return;
+        }
+        GPSPoint lastFix = lastFix(rentalId);
+        if (lastFix == null) {
+            return; // no fixes reported for this ride, nothing to check against
+        }
+        int radius = station.getParkingRadiusMeters() != null ? station.getParkingRadiusMeters() : defaultStationRadius;
+        double meters = GeoMath.haversineKm(lastFix.getLatitude(), lastFix.getLongitude(),
+                station.getLatitude(), station.getLongitude()) * 1000;
+        if (meters > radius) {
+            throw new ConflictException("Bike is " + Math.round(meters) + " m from station "
+                    + station.getName() + ", return it within " + radius + " m");
+        }
+        for (Zone zone : getZonesAt(lastFix.getLatitude(), lastFix.getLongitude())) {
+            if (ZoneType.of(zone.getZoneType()) == ZoneType.NO_PARKING) {
+                throw new ConflictException("Bike is in no-parking zone " + zone.getName());
+            }
+        }
+    }
+
+    private GPSPoint lastFix(String rentalId) {
+        RideState ride = rides.get(rentalId);
+        if (ride != null) {
+            synchronized (ride) {
+                if (ride.lastFix != null) {
+                    return ride.lastFix;
+                }
+            }
+        }
+        return gpsPointRepository.findByRentalId(rentalId)
+                .filter(point -> point.getTimestamp() != null && point.getLatitude() != null && point.getLongitude() != null)
+                .max(Comparator.comparing(GPSPoint::getTimestamp))
+                .orElse(null);
+    }
+
+    @Lock(LockType.READ)
+    public void endRide(String rentalId) {
+        rides.remove(rentalId);
+    }
+
+    @Schedule(hour = "*", minute = "*/10", persistent = false)
+    @Lock(LockType.READ)
+    public void evictIdleRides() {
+        long cutoff = System.currentTimeMillis() - rideIdleMinutes * 60_000L;
+        int before = rides.size();
+        rides.values().removeIf(ride -> ride.lastSeen < cutoff);
+        if (rides.size() < before) {
+            logger.fine("Dropped " + (before - rides.size()) + " idle rides from the geofence state");
+        }
+    }
+
+    @Lock(LockType.READ)
+    public List<GeofenceEvent> getEvents(String rentalId) {
+        return geofenceEventRepository.findByRentalId(rentalId)
+                .sorted(Comparator.comparing(GeofenceEvent::getTimestamp))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,204 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.repositories.GpsAnomalyRepository;
+import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
+import tn.supcom.cot.iam.controllers.status.BikeStatus;
+import tn.supcom.cot.iam.controllers.status.RentalStatus;
+import tn.supcom.cot.iam.controllers.telemetry.BikeMotion;
+import tn.supcom.cot.iam.controllers.telemetry.BikeMotionSnapshot;
+import tn.supcom.cot.iam.controllers.telemetry.GpsAnomalyType;
+import tn.supcom.cot.iam.entities.Bike;
+import tn.supcom.cot.iam.entities.GPSPoint;
+import tn.supcom.cot.iam.entities.GpsAnomaly;
+import tn.supcom.cot.iam.entities.Rental;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Inspects every stored GPS fix in-line against its bike's BikeMotion: impossible speeds, AVAILABLE
+ * bikes moving away from where they were left, and trackers going silent. Only a suspected theft
+ * costs a read (to confirm the bike's status); everything else is a few arithmetic operations on
+ * a fixed-size state per bike. A scheduled sweep catches riding bikes that stopped reporting.
+ * A bike is riding while it has an ACTIVE rental, as told by RentalManager, whatever its fixes
+ * carry: tracker fixes have no rentalId and rider fixes can arrive after the ride ended.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class GpsAnomalyManager {
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private GpsAnomalyRepository anomalyRepository;
+
+    @Inject
+    private BikeManager bikeManager;
+
+    @Inject
+    private RentalRepository rentalRepository;
+
+    @Inject
+    @ConfigProperty(name = "anomaly.max.speed.kmh", defaultValue = "60")
+    private Double maxSpeedKmh;
+
+    @Inject
+    @ConfigProperty(name = "anomaly.max.gap.seconds", defaultValue = "300")
+    private Integer maxGapSeconds;
+
+    @Inject
+    @ConfigProperty(name = "anomaly.parked.drift.meters", defaultValue = "100")
+    private Double parkedDriftMeters;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<String, BikeMotion> bikes = new ConcurrentHashMap<>();
+    private final Set<String> riding = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        rentalRepository.findByRentalStatus(RentalStatus.ACTIVE.name())
+                .map(Rental::getBikeId)
+                .filter(Objects::nonNull)
+                .forEach(riding::add);
+    }
+
+    // Called once the fix is stored; fixes without a bike cannot be attributed and are skipped
+    public void onPoint(GPSPoint point) {
+        if (point.getBikeId() == null || point.getLatitude() == null || point.getLongitude() == null) {
+            return;
+        }
+        long millis = (point.getTimestamp() != null ? point.getTimestamp() : LocalDateTime.now())
+                .atZone(zone).toInstant().toEpochMilli();
+        BikeMotion motion = bikes.computeIfAbsent(point.getBikeId(), id -> new BikeMotion());
+        Set<GpsAnomalyType> found;
+        long previous;
+        synchronized (motion) {
+            previous = motion.getTime();
+            // Read under the lock so an endRide in between always wins
+            found = motion.update(point.getLatitude(), point.getLongitude(), millis, riding.contains(point.getBikeId()),
+                    maxSpeedKmh, maxGapSeconds * 1000L, parkedDriftMeters);
+        }
+        for (GpsAnomalyType type : found) {
+            switch (type) {
+                case IMPOSSIBLE_SPEED -> raise(point, type, "Fix implies more than " + maxSpeedKmh.intValue() + " km/h");
+                case SIGNAL_GAP -> raise(point, type, "No fix for " + (millis - previous) / 1000 + " s");
+                case MOVING_WHILE_PARKED -> {
+                    Set<Bike> bike = bikeManager.getBikeByBikeId(point.getBikeId());
+                    if (!bike.isEmpty() && BikeStatus.of(bike.iterator().next().getStatus()) == BikeStatus.AVAILABLE) {
+                        raise(point, type, "Moved more than " + parkedDriftMeters.intValue()
+                                + " m from where it was parked at station " + bike.iterator().next().getStationId());
+                    } else {
+                        synchronized (motion) {
+                            motion.clearDrift();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public void startRide(String bikeId) {
+        if (bikeId != null) {
+            riding.add(bikeId);
+        }
+    }
+
+    public void endRide(String bikeId) {
+        if (bikeId != null) {
+            riding.remove(bikeId);
+        }
+        BikeMotion motion = bikeId != null ? bikes.get(bikeId) : null;
+        if (motion != null) {
+            synchronized (motion) {
+                motion.endRide();
+            }
+        }
+    }
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void sweepSilentTrackers() {
+        long now = System.currentTimeMillis();
+        bikes.forEach((bikeId, motion) -> {
+            GPSPoint last = null;
+            long silentMillis = 0;
+            synchronized (motion) {
+                if (motion.silentSince(now, maxGapSeconds * 1000L)) {
+                    last = GPSPoint.builder()
+                            .bikeId(bikeId)
+                            .latitude((float) motion.getLatitude())
+                            .longitude((float) motion.getLongitude())
+                            .build();
+                    silentMillis = now - motion.getTime();
+                }
+            }
+            if (last != null) {
+                raise(last, GpsAnomalyType.SIGNAL_GAP, "Riding bike silent for " + silentMillis / 1000 + " s");
+            }
+        });
+    }
+
+    private void raise(GPSPoint point, GpsAnomalyType type, String detail) {
+        GpsAnomaly anomaly = GpsAnomaly.builder()
+                .bikeId(point.getBikeId())
+                .rentalId(point.getRentalId())
+                .anomalyType(type.name())
+                .detail(detail)
+                .latitude(point.getLatitude())
+                .longitude(point.getLongitude())
+                .detectedAt(LocalDateTime.now())
+                .build();
+        anomaly.generateId();
+        anomalyRepository.save(anomaly);
+        logger.warning(type + " on bike " + point.getBikeId() + ": " + detail);
+    }
+
+    public List<GpsAnomaly> getAnomalies(String bikeId, String anomalyType) {
+        Stream<GpsAnomaly> anomalies = bikeId != null ? anomalyRepository.findByBikeId(bikeId)
+                : anomalyType != null ? anomalyRepository.findByAnomalyType(anomalyType)
+                : anomalyRepository.findAll();
+        return anomalies
+                .filter(anomaly -> anomalyType == null || anomalyType.equals(anomaly.getAnomalyType()))
+                .sorted(Comparator.comparing(GpsAnomaly::getDetectedAt).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public BikeMotionSnapshot getMotion(String bikeId) {
+        BikeMotion motion = bikes.get(bikeId);
+        if (motion == null) {
+            return null;
+        }
+        synchronized (motion) {
+            return BikeMotionSnapshot.builder()
+                    .bikeId(bikeId)
+                    .latitude(motion.getLatitude())
+                    .longitude(motion.getLongitude())
+                    .lastFixAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(motion.getTime()), zone))
+                    .speedKmh(motion.getSpeedKmh())
+                    .headingDegrees(motion.getHeadingDegrees())
+                    .riding(motion.isRiding())
+                    .build();
+        }
+    }
+}
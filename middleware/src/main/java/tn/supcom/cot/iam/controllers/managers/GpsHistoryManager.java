@@ -0,0 +1,261 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.archive.GpsSegmentFile;
+import tn.supcom.cot.iam.controllers.archive.PointIdFilter;
+import tn.supcom.cot.iam.controllers.repositories.GPSPointRepository;
+import tn.supcom.cot.iam.entities.GPSPoint;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * GPS history split in two tiers. Fixes younger than gps.archive.after.days stay in MongoDB; a
+ * nightly job moves older ones into compressed GpsSegmentFile archives on local disk, one per day
+ * and 1x1 degree region (e.g. 2024-05-01/N36E010.vga). The ids of the rentals and bikes in each
+ * archive are kept in memory, along with a Bloom filter of its point ids, so lookups open only
+ * the archives that can match and the hot collection (and its indexes) stays the size of the last
+ * few weeks. Archived fixes are deleted from MongoDB, so gps.archive.dir must be an absolute path
+ * on durable storage; startup fails without it.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class GpsHistoryManager {
+
+    private record Segment(GpsSegmentFile file, Set<String> rentalIds, Set<String> bikeIds, PointIdFilter pointIds) {
+    }
+
+    private static final String SUFFIX = ".vga";
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private GPSPointRepository gpsPointRepository;
+
+    @Inject
+    @ConfigProperty(name = "gps.archive.dir")
+    private String archiveDirectory;
+
+    @Inject
+    @ConfigProperty(name = "gps.archive.after.days", defaultValue = "30")
+    private Integer afterDays;
+
+    private final Map<Path, Segment> segments = new ConcurrentHashMap<>();
+    private Path directory;
+
+    @PostConstruct
+    public void init() {
+        try {
+            Path path = Paths.get(archiveDirectory);
+            if (archiveDirectory.isBlank() || !path.isAbsolute()) {
+                throw new IllegalStateException("gps.archive.dir must be an absolute path on durable storage, got '"
+                        + archiveDirectory + "'");
+            }
+            directory = Files.createDirectories(path);
+            try (Stream<Path> files = Files.walk(directory, 2)) {
+                files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).forEach(file -> {
+                    try {
+                        segments.put(file, load(file));
+                    } catch (IOException | IllegalStateException e) {
+                        logger.log(Level.WARNING, "Skipping unreadable GPS archive segment " + file, e);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open the GPS archive", e);
+        }
+        logger.info("GPS archive: " + segments.size() + " segments in " + directory);
+    }
+
+    private static Segment load(Path file) throws IOException {
+        GpsSegmentFile segment = GpsSegmentFile.open(file);
+        return new Segment(segment, segment.distinct(GpsSegmentFile.RENTAL_ID), segment.distinct(GpsSegmentFile.BIKE_ID),
+                new PointIdFilter(segment.distinct(GpsSegmentFile.POINT_ID)));
+    }
+
+    //------- Tiering -------
+
+    @Schedule(hour = "3", minute = "30", persistent = false)
+    public void scheduledArchive() {
+        archive();
+    }
+
+    // Moves every fix older than the retention window into the archive, one day at a time so only
+    // that day's fixes are in memory; returns how many moved
+    public synchronized int archive() {
+        long start = System.nanoTime();
+        LocalDateTime cutoff = LocalDate.now().minusDays(afterDays).atStartOfDay();
+        int archived = 0;
+        int days = 0;
+        Optional<GPSPoint> oldest = gpsPointRepository.findFirstByTimestampGreaterThanEqualOrderByTimestampAsc(BEGINNING);
+        while (oldest.isPresent() && oldest.get().getTimestamp().isBefore(cutoff)) {
+            LocalDateTime day = oldest.get().getTimestamp().toLocalDate().atStartOfDay();
+            LocalDateTime next = day.plusDays(1);
+            archived += archiveDay(day, next);
+            days++;
+            // Days left behind by a failed segment are retried on the next run
+            oldest = gpsPointRepository.findFirstByTimestampGreaterThanEqualOrderByTimestampAsc(next);
+        }
+        if (archived > 0) {
+            logger.info("Archived " + archived + " GPS points older than " + cutoff + " from " + days + " days in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        return archived;
+    }
+
+    private int archiveDay(LocalDateTime day, LocalDateTime next) {
+        Map<Path, List<GPSPoint>> batches = new HashMap<>();
+        gpsPointRepository.findByTimestampGreaterThanEqualAndTimestampLessThan(day, next)
+                .forEach(point -> batches.computeIfAbsent(segmentPath(point), path -> new ArrayList<>()).add(point));
+
+        int archived = 0;
+        for (Map.Entry<Path, List<GPSPoint>> batch : batches.entrySet()) {
+            Path path = batch.getKey();
+            List<GPSPoint> points = batch.getValue();
+            try {
+                // Late fixes for an archived day are merged in; a crash before the delete below
+                // leaves fixes in both tiers, which the next run writes only once
+                Map<String, GPSPoint> merged = new LinkedHashMap<>();
+                Segment existing = segments.get(path);
+                if (existing != null) {
+                    existing.file().selectAll().forEach(point -> merged.put(point.getGpsPointId(), point));
+                }
+                points.forEach(point -> merged.put(point.getGpsPointId(), point));
+                Files.createDirectories(path.getParent());
+                GpsSegmentFile.write(path, new ArrayList<>(merged.values()));
+                segments.put(path, load(path));
+                gpsPointRepository.deleteAll(points);
+                archived += points.size();
+            } catch (IOException | IllegalStateException e) {
+                // The fixes stay in MongoDB and are retried on the next run
+                logger.log(Level.WARNING, "Failed to archive " + points.size() + " GPS points into " + path, e);
+            }
+        }
+        return archived;
+    }
+
+    private Path segmentPath(GPSPoint point) {
+        return directory.resolve(point.getTimestamp().toLocalDate().toString())
+                .resolve(region(point.getLatitude(), point.getLongitude()) + SUFFIX);
+    }
+
+    // Named after the south-west corner of the 1x1 degree cell, e.g. N36E010
+    private static String region(Float latitude, Float longitude) {
+        if (latitude == null || longitude == null) {
+            return "unplaced";
+        }
+        int lat = (int) Math.floor(latitude);
+        int lon = (int) Math.floor(longitude);
+        return String.format(Locale.ROOT, "%s%02d%s%03d",
+                lat < 0 ? "S" : "N", Math.abs(lat), lon < 0 ? "W" : "E", Math.abs(lon));
+    }
+
+    //------- Queries over both tiers -------
+
+    public Optional<GPSPoint> findById(String gpsPointId) {
+        Optional<GPSPoint> hot = gpsPointRepository.findById(gpsPointId);
+        return hot.isPresent() ? hot : findArchived(gpsPointId);
+    }
+
+    // Archives are read-only: a fix that only lives there can be neither updated nor deleted
+    public boolean isArchived(String gpsPointId) {
+        return gpsPointRepository.findById(gpsPointId).isEmpty() && findArchived(gpsPointId).isPresent();
+    }
+
+    private Optional<GPSPoint> findArchived(String gpsPointId) {
+        // Ids carry no date; the filters rule out nearly every archive without touching it
+        for (Segment segment : segments.values()) {
+            if (!segment.pointIds().mightContain(gpsPointId)) {
+                continue;
+            }
+            List<GPSPoint> found = segment.file().select(GpsSegmentFile.POINT_ID, gpsPointId);
+            if (!found.isEmpty()) {
+                return Optional.of(found.get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public List<GPSPoint> findByRentalId(String rentalId) {
+        Map<String, GPSPoint> points = new LinkedHashMap<>();
+        gpsPointRepository.findByRentalId(rentalId).forEach(point -> points.put(point.getGpsPointId(), point));
+        for (Segment segment : segments.values()) {
+            if (segment.rentalIds().contains(rentalId)) {
+                segment.file().select(GpsSegmentFile.RENTAL_ID, rentalId)
+                        .forEach(point -> points.putIfAbsent(point.getGpsPointId(), point));
+            }
+        }
+        return new ArrayList<>(points.values());
+    }
+
+    public List<GPSPoint> findByBikeId(String bikeId, LocalDateTime from, LocalDateTime to) {
+        Map<String, GPSPoint> points = new LinkedHashMap<>();
+        gpsPointRepository.findByBikeIdAndTimestampBetween(bikeId,
+                        from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0),
+                        to != null ? to : LocalDateTime.now().plusDays(1))
+                .forEach(point -> points.put(point.getGpsPointId(), point));
+        for (Segment segment : segments.values()) {
+            if (segment.bikeIds().contains(bikeId) && segment.file().overlaps(from, to)) {
+                segment.file().select(GpsSegmentFile.BIKE_ID, bikeId).stream()
+                        .filter(point -> (from == null || !point.getTimestamp().isBefore(from))
+                                && (to == null || !point.getTimestamp().isAfter(to)))
+                        .forEach(point -> points.putIfAbsent(point.getGpsPointId(), point));
+            }
+        }
+        return points.values().stream()
+                .filter(point -> point.getTimestamp() != null)
+                .sorted(Comparator.comparing(GPSPoint::getTimestamp))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Hot fixes first, then one archive at a time, each fix once. A fix being archived is written to
+     * its segment before it leaves MongoDB, so the segments are listed only once the hot fixes are
+     * read; a fix seen in both is skipped in the archive. Only hot fixes old enough to be archived
+     * (with a day of margin) are remembered for that.
+     */
+    public Stream<GPSPoint> findAll() {
+        LocalDateTime archivable = LocalDate.now().minusDays(afterDays - 1L).atStartOfDay();
+        Set<String> hotIds = new HashSet<>();
+        Stream<GPSPoint> hot = gpsPointRepository.findAll().peek(point -> {
+            if (point.getTimestamp() == null || point.getTimestamp().isBefore(archivable)) {
+                hotIds.add(point.getGpsPointId());
+            }
+        });
+        Stream<GPSPoint> archived = Stream.of(segments).flatMap(all -> new ArrayList<>(all.values()).stream())
+                .flatMap(segment -> segment.file().selectAll().stream())
+                .filter(point -> !hotIds.contains(point.getGpsPointId()));
+        return Stream.concat(hot, archived);
+    }
+}
@@ -0,0 +1,295 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.heatmap.CountGrid;
+import tn.supcom.cot.iam.controllers.heatmap.HeatmapRenderer;
+import tn.supcom.cot.iam.controllers.heatmap.HeatmapTileView;
+import tn.supcom.cot.iam.controllers.heatmap.TileMath;
+import tn.supcom.cot.iam.controllers.repositories.HeatmapTileRepository;
+import tn.supcom.cot.iam.entities.GPSPoint;
+import tn.supcom.cot.iam.entities.HeatmapTile;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Ride-density heatmap tiles for zoom levels heatmap.min.zoom to heatmap.max.zoom. Each ride fix
+ * is binned on ingest into one count grid per zoom level, in memory; a scheduled job adds the
+ * pending grids to the stored tiles once a minute. Tiles are served as JSON or PNG by z/x/y
+ * without reading raw points. A flush merges into a tile with a compare-and-set on its revision,
+ * so nodes flushing the same tile at once retry instead of overwriting each other's counts.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class HeatmapManager {
+
+    private record TileKey(int zoom, int x, int y) {
+    }
+
+    // A fix taken while a rebuild is scanning, in world pixels at maxZoom
+    private record Fix(double pixelX, double pixelY, LocalDateTime timestamp) {
+    }
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private HeatmapTileRepository tileRepository;
+
+    @Inject
+    private GpsHistoryManager gpsHistoryManager;
+
+    @Inject
+    private MongoDatabase database;
+
+    @Inject
+    @ConfigProperty(name = "heatmap.min.zoom", defaultValue = "10")
+    private Integer minZoom;
+
+    @Inject
+    @ConfigProperty(name = "heatmap.max.zoom", defaultValue = "17")
+    private Integer maxZoom;
+
+    @Inject
+    @ConfigProperty(name = "heatmap.bins", defaultValue = "64")
+    private Integer bins;
+
+    private final Object writeLock = new Object();
+    private Map<TileKey, CountGrid> pending = new HashMap<>();
+    private List<Fix> sinceCutoff; // non-null while a rebuild is scanning, guarded by this
+    private volatile int[] zoomMax;
+    private MongoCollection<Document> tileCollection;
+
+    @PostConstruct
+    public void init() {
+        if (bins < 1 || TileMath.TILE_SIZE % bins != 0) {
+            throw new IllegalStateException("heatmap.bins must divide the tile size " + TileMath.TILE_SIZE
+                    + ", got " + bins);
+        }
+        tileCollection = database.getCollection(HeatmapTile.class.getSimpleName());
+        zoomMax = new int[maxZoom + 1];
+        tileRepository.findAll().forEach(tile -> {
+            if (tile.getZoom() != null && tile.getZoom() <= maxZoom && tile.getMax() != null) {
+                zoomMax[tile.getZoom()] = Math.max(zoomMax[tile.getZoom()], tile.getMax());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Only fixes taken during a ride count towards ride density
+    public void onPoint(GPSPoint point) {
+        if (point.getRentalId() == null || point.getLatitude() == null || point.getLongitude() == null) {
+            return;
+        }
+        double pixelX = TileMath.pixelX(point.getLongitude(), maxZoom);
+        double pixelY = TileMath.pixelY(point.getLatitude(), maxZoom);
+        synchronized (this) {
+            bin(pending, pixelX, pixelY);
+            if (sinceCutoff != null) {
+                sinceCutoff.add(new Fix(pixelX, pixelY, point.getTimestamp()));
+            }
+        }
+    }
+
+    // Adds a point given in world pixels at maxZoom to every zoom level's tile
+    private void bin(Map<TileKey, CountGrid> grids, double pixelX, double pixelY) {
+        int binSize = TileMath.TILE_SIZE / bins;
+        for (int zoom = maxZoom; zoom >= minZoom; zoom--) {
+            double scale = 1L << (maxZoom - zoom);
+            int px = (int) (pixelX / scale);
+            int py = (int) (pixelY / scale);
+            int x = px / TileMath.TILE_SIZE;
+            int y = py / TileMath.TILE_SIZE;
+            grids.computeIfAbsent(new TileKey(zoom, x, y), key -> new CountGrid(bins))
+                    .add((px % TileMath.TILE_SIZE) / binSize, (py % TileMath.TILE_SIZE) / binSize, 1);
+        }
+    }
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void flush() {
+        synchronized (writeLock) {
+            Map<TileKey, CountGrid> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = new HashMap<>();
+            }
+            List<HeatmapTile> tiles = new ArrayList<>(batch.size());
+            batch.forEach((key, delta) -> tiles.add(merge(key, delta)));
+            for (HeatmapTile tile : tiles) {
+                zoomMax[tile.getZoom()] = Math.max(zoomMax[tile.getZoom()], tile.getMax());
+            }
+        }
+    }
+
+    // Adds delta to the stored tile, retrying when another node wrote the tile since it was read
+    private HeatmapTile merge(TileKey key, CountGrid delta) {
+        String quadkey = TileMath.quadkey(key.zoom(), key.x(), key.y());
+        while (true) {
+            Optional<HeatmapTile> stored = tileRepository.findById(quadkey);
+            CountGrid grid = stored.filter(tile -> bins.equals(tile.getBins()))
+                    .map(tile -> CountGrid.decode(tile.getCounts(), bins))
+                    .orElseGet(() -> new CountGrid(bins));
+            grid.addAll(delta);
+            HeatmapTile tile = toTile(key, grid);
+            String revision = stored.map(HeatmapTile::getRevision).orElse(null);
+            // Field names JNoSQL maps HeatmapTile to; a missing tile is inserted by the upsert,
+            // and a concurrent insert makes it fail on the duplicate id instead
+            try {
+                UpdateResult result = tileCollection.updateOne(
+                        Filters.and(Filters.eq("_id", quadkey), Filters.eq("revision", revision)),
+                        Updates.combine(
+                                Updates.set("zoom", tile.getZoom()),
+                                Updates.set("x", tile.getX()),
+                                Updates.set("y", tile.getY()),
+                                Updates.set("bins", tile.getBins()),
+                                Updates.set("counts", tile.getCounts()),
+                                Updates.set("total", tile.getTotal()),
+                                Updates.set("max", tile.getMax()),
+                                Updates.set("updatedAt", tile.getUpdatedAt()),
+                                Updates.set("revision", tile.getRevision())),
+                        new UpdateOptions().upsert(stored.isEmpty()));
+                if (result.getMatchedCount() > 0 || result.getUpsertedId() != null) {
+                    return tile;
+                }
+            } catch (MongoWriteException e) {
+                if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Recomputes every tile from the stored ride fixes, e.g. after changing the zoom range or bins.
+    // New tiles overwrite the old ones in place and only then are leftovers deleted, so readers
+    // never see an empty heatmap. The scan counts fixes taken up to a cutoff; fixes after it are
+    // left pending, whether or not the cursor passed them. Fixes flushed by other nodes while the
+    // scan runs are overwritten by the rebuilt tiles, so run it with a single node ingesting.
+    public int rebuild() {
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            LocalDateTime cutoff;
+            synchronized (this) {
+                cutoff = LocalDateTime.now();
+                sinceCutoff = new ArrayList<>();
+            }
+            Map<TileKey, CountGrid> grids = new HashMap<>();
+            try {
+                gpsHistoryManager.findAll()
+                        .filter(point -> point.getRentalId() != null && point.getLatitude() != null && point.getLongitude() != null)
+                        .filter(point -> point.getTimestamp() == null || !point.getTimestamp().isAfter(cutoff))
+                        .forEach(point -> bin(grids,
+                                TileMath.pixelX(point.getLongitude(), maxZoom),
+                                TileMath.pixelY(point.getLatitude(), maxZoom)));
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    sinceCutoff = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                // Fixes pending from before the cutoff are stored and counted by the scan
+                pending = new HashMap<>();
+                for (Fix fix : sinceCutoff) {
+                    if (fix.timestamp() != null && fix.timestamp().isAfter(cutoff)) {
+                        bin(pending, fix.pixelX(), fix.pixelY());
+                    }
+                }
+                sinceCutoff = null;
+            }
+
+            List<HeatmapTile> tiles = new ArrayList<>(grids.size());
+            grids.forEach((key, grid) -> tiles.add(toTile(key, grid)));
+            if (!tiles.isEmpty()) {
+                tileRepository.saveAll(tiles);
+            }
+            Set<String> current = tiles.stream().map(HeatmapTile::getQuadkey).collect(Collectors.toSet());
+            tileRepository.deleteAll(tileRepository.findAll()
+                    .filter(tile -> !current.contains(tile.getQuadkey()))
+                    .collect(Collectors.toList()));
+            int[] rebuiltMax = new int[maxZoom + 1];
+            for (HeatmapTile tile : tiles) {
+                rebuiltMax[tile.getZoom()] = Math.max(rebuiltMax[tile.getZoom()], tile.getMax());
+            }
+            zoomMax = rebuiltMax;
+            logger.info("Rebuilt " + tiles.size() + " heatmap tiles in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return tiles.size();
+        }
+    }
+
+    private HeatmapTile toTile(TileKey key, CountGrid grid) {
+        return HeatmapTile.builder()
+                .quadkey(TileMath.quadkey(key.zoom(), key.x(), key.y()))
+                .zoom(key.zoom())
+                .x(key.x())
+                .y(key.y())
+                .bins(bins)
+                .counts(grid.encode())
+                .total(grid.total())
+                .max(grid.max())
+                .updatedAt(LocalDateTime.now())
+                .revision(UUID.randomUUID().toString())
+                .build();
+    }
+
+    public boolean isServed(int zoom, int x, int y) {
+        return zoom >= minZoom && zoom <= maxZoom && TileMath.isValid(zoom, x, y);
+    }
+
+    // Tiles nobody rode through come back empty rather than missing
+    public HeatmapTileView getTile(int zoom, int x, int y) {
+        CountGrid grid = loadGrid(zoom, x, y);
+        return HeatmapTileView.builder()
+                .z(zoom)
+                .x(x)
+                .y(y)
+                .bins(bins)
+                .total(grid.total())
+                .max(grid.max())
+                .zoomMax(zoomMax[zoom])
+                .counts(grid.getCounts())
+                .build();
+    }
+
+    public byte[] getTilePng(int zoom, int x, int y) {
+        return HeatmapRenderer.toPng(loadGrid(zoom, x, y), zoomMax[zoom]);
+    }
+
+    private CountGrid loadGrid(int zoom, int x, int y) {
+        Optional<HeatmapTile> tile = tileRepository.findById(TileMath.quadkey(zoom, x, y));
+        return tile.filter(t -> bins.equals(t.getBins()))
+                .map(t -> CountGrid.decode(t.getCounts(), bins))
+                .orElseGet(() -> new CountGrid(bins));
+    }
+}
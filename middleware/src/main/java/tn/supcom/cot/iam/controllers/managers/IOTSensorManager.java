@@ -0,0 +1,69 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.repositories.IOTSensorRepository;
+import tn.supcom.cot.iam.entities.IOTSensor;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Stateless
+public class IOTSensorManager {
+    @Inject
+    private IOTSensorRepository sensorRepository;
+
+    @Inject
+    private SensorTelemetryManager sensorTelemetryManager;
+
+
+    public Optional<IOTSensor> getSensorById(String sensorId) {
+        return sensorRepository.findById(sensorId);
+    }
+
+
+    public Set<IOTSensor> getAllSensors() {
+        return sensorRepository.findAll().collect(Collectors.toSet());
+    }
+
+
+    public Set<IOTSensor> getSensorsByStationId(String stationId) {
+        return sensorRepository.findByStationId(stationId).collect(Collectors.toSet());
+    }
+
+
+    public Set<IOTSensor> getSensorsByType(String sensorType) {
+        return sensorRepository.findBySensorType(sensorType).collect(Collectors.toSet());
+    }
+
+
+    public IOTSensor createSensor(IOTSensor sensor) {
+        if (sensor.getSensorId() == null || sensor.getSensorId().isEmpty()) {
+            sensor.setSensorId("SENSOR-" + UUID.randomUUID().toString());
+        }
+        IOTSensor saved = sensorRepository.save(sensor);
+        sensorTelemetryManager.registerSensor(saved);
+        return saved;
+    }
+
+
+    public IOTSensor updateSensor(IOTSensor sensor) {
+        IOTSensor saved = sensorRepository.save(sensor);
+        sensorTelemetryManager.registerSensor(saved);
+        return saved;
+    }
+
+
+    public boolean deleteSensor(String sensorId) {
+        Optional<IOTSensor> optSensor = sensorRepository.findById(sensorId);
+        if (optSensor.isPresent()) {
+            sensorRepository.deleteById(sensorId);
+            sensorTelemetryManager.unregisterSensor(sensorId);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,119 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.errors.IdempotencyMismatchException;
+import tn.supcom.cot.iam.controllers.repositories.IdempotencyRecordRepository;
+import tn.supcom.cot.iam.entities.IdempotencyRecord;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs an operation at most once per client Idempotency-Key. Results are looked up in a bounded
+ * in-memory cache, then in the IdempotencyRecord collection; concurrent retries of a key that is
+ * still running wait for the first attempt instead of starting their own. A key reused with a
+ * different request fingerprint is rejected with 422, whether the first attempt is done or not.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class IdempotencyManager {
+
+    @Inject
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Inject
+    @ConfigProperty(name = "idempotency.cache.size", defaultValue = "10000")
+    private Integer cacheSize;
+
+    private Map<String, IdempotencyRecord> cache;
+    private final Map<String, Attempt> inFlight = new ConcurrentHashMap<>();
+
+    private record Attempt(String fingerprint, CompletableFuture<String> result) {
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    // Returns the id produced by the first successful run for this key; a null result is not remembered
+    public String execute(String key, String fingerprint, Supplier<String> operation) {
+        Optional<String> previous = lookup(key, fingerprint);
+        if (previous.isPresent()) {
+            return previous.get();
+        }
+
+        CompletableFuture<String> attempt = new CompletableFuture<>();
+        Attempt running = inFlight.putIfAbsent(key, new Attempt(fingerprint, attempt));
+        if (running != null) {
+            checkFingerprint(running.fingerprint(), fingerprint);
+            try {
+                return running.result().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            // The first attempt may have finished between the lookup and the registration above
+            previous = lookup(key, fingerprint);
+            String resultId = previous.isPresent() ? previous.get() : operation.get();
+            if (resultId != null && previous.isEmpty()) {
+                IdempotencyRecord record = IdempotencyRecord.builder()
+                        .idempotencyKey(key)
+                        .fingerprint(fingerprint)
+                        .resultId(resultId)
+                        .createdAt(LocalDateTime.now())
+                        .build();
+                cache.put(key, idempotencyRecordRepository.save(record));
+            }
+            attempt.complete(resultId);
+            return resultId;
+        } catch (RuntimeException e) {
+            attempt.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    private Optional<String> lookup(String key, String fingerprint) {
+        IdempotencyRecord record = cache.get(key);
+        if (record == null) {
+            record = idempotencyRecordRepository.findById(key).orElse(null);
+            if (record == null) {
+                return Optional.empty();
+            }
+            cache.put(key, record);
+        }
+        checkFingerprint(record.getFingerprint(), fingerprint);
+        return Optional.of(record.getResultId());
+    }
+
+    private static void checkFingerprint(String stored, String fingerprint) {
+        if (!stored.equals(fingerprint)) {
+            throw new IdempotencyMismatchException("Idempotency key was already used for a different request");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.maintenance.MaintenancePriority;
+import tn.supcom.cot.iam.controllers.repositories.MaintenanceRepository;
+import tn.supcom.cot.iam.entities.Maintenance;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Stateless
+public class MaintenanceManager {
+    @Inject
+    private MaintenanceRepository maintenanceRepository;
+
+    @Inject
+    private MaintenanceScheduler maintenanceScheduler;
+
+
+    public Optional<Maintenance> getMaintenanceById(String maintenanceId) {
+        return maintenanceRepository.findById(maintenanceId);
+    }
+
+
+    public Set<Maintenance> getAllMaintenances() {
+        return maintenanceRepository.findAll().collect(Collectors.toSet());
+    }
+
+
+    public Set<Maintenance> getMaintenancesByBikeId(String bikeId) {
+        return maintenanceRepository.findByBikeId(bikeId).collect(Collectors.toSet());
+    }
+
+
+    public Maintenance createMaintenance(Maintenance maintenance) {
+        maintenance.generateId();
+        if (maintenance.getDate() == null) {
+            maintenance.setDate(LocalDateTime.now());
+        }
+        Maintenance saved = maintenanceRepository.save(maintenance);
+        maintenanceScheduler.recordMaintenance(saved.getBikeId(), saved.getDate());
+        return saved;
+    }
+
+
+    public Maintenance updateMaintenance(Maintenance maintenance) {
+        Optional<Maintenance> before = maintenance.getMaintenanceId() == null
+                ? Optional.empty()
+                : maintenanceRepository.findById(maintenance.getMaintenanceId());
+        Maintenance saved = maintenanceRepository.save(maintenance);
+        before.map(Maintenance::getBikeId)
+                .filter(bikeId -> !bikeId.equals(saved.getBikeId()))
+                .ifPresent(maintenanceScheduler::refreshMaintenance);
+        maintenanceScheduler.refreshMaintenance(saved.getBikeId());
+        return saved;
+    }
+
+
+    public boolean deleteMaintenance(String maintenanceId) {
+        Optional<Maintenance> optMaintenance = maintenanceRepository.findById(maintenanceId);
+        if (optMaintenance.isPresent()) {
+            maintenanceRepository.deleteById(maintenanceId);
+            maintenanceScheduler.refreshMaintenance(optMaintenance.get().getBikeId());
+            return true;
+        }
+        return false;
+    }
+
+
+    public List<MaintenancePriority> getMaintenanceQueue(int limit) {
+        return maintenanceScheduler.getQueue(limit);
+    }
+
+
+    public List<MaintenancePriority> refreshMaintenanceQueue(int limit) {
+        maintenanceScheduler.rerank();
+        return maintenanceScheduler.getQueue(limit);
+    }
+}
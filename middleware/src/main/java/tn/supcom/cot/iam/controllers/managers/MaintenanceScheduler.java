@@ -0,0 +1,196 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.maintenance.FleetWearModel;
+import tn.supcom.cot.iam.controllers.maintenance.MaintenancePriority;
+import tn.supcom.cot.iam.controllers.repositories.BikeRepository;
+import tn.supcom.cot.iam.controllers.repositories.MaintenanceRepository;
+import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
+import tn.supcom.cot.iam.controllers.status.RentalStatus;
+import tn.supcom.cot.iam.entities.Maintenance;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+/**
+ * Predictive maintenance: keeps the fleet wear model up to date from ride, battery and damage
+ * events and periodically re-ranks every bike into a prioritized maintenance queue.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MaintenanceScheduler {
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private BikeRepository bikeRepository;
+
+    @Inject
+    private RentalRepository rentalRepository;
+
+    @Inject
+    private MaintenanceRepository maintenanceRepository;
+
+    @Inject
+    private DamageSummaryManager damageSummaryManager;
+
+    @Inject
+    @ConfigProperty(name = "maintenance.service.distance.km", defaultValue = "500")
+    private Float serviceDistanceKm;
+
+    @Inject
+    @ConfigProperty(name = "maintenance.service.rides", defaultValue = "200")
+    private Integer serviceRides;
+
+    @Inject
+    @ConfigProperty(name = "maintenance.service.battery.cycles", defaultValue = "300")
+    private Float serviceBatteryCycles;
+
+    @Inject
+    @ConfigProperty(name = "maintenance.damage.weight", defaultValue = "0.5")
+    private Float damageWeight;
+
+    @Inject
+    @ConfigProperty(name = "maintenance.repair.cost.weight", defaultValue = "0.01")
+    private Float repairCostWeight;
+
+    @Inject
+    @ConfigProperty(name = "maintenance.queue.min.score", defaultValue = "0.8")
+    private Float minScore;
+
+    @Inject
+    @ConfigProperty(name = "maintenance.queue.size", defaultValue = "500")
+    private Integer queueSize;
+
+    private FleetWearModel model;
+    private volatile List<MaintenancePriority> queue = List.of();
+
+    @PostConstruct
+    public void init() {
+        model = new FleetWearModel(serviceDistanceKm, serviceRides, serviceBatteryCycles,
+                damageWeight, repairCostWeight);
+
+        // Usage is counted from the last service of each bike
+        maintenanceRepository.findAll()
+                .forEach(maintenance -> model.recordMaintenance(maintenance.getBikeId(), maintenance.getDate()));
+
+        bikeRepository.findAll().forEach(bike -> {
+            model.track(bike.getBikeId());
+            if (bike.getBatteryLevel() != null) {
+                model.recordBatteryLevel(bike.getBikeId(), bike.getBatteryLevel());
+            }
+        });
+
+        rentalRepository.findByRentalStatus(RentalStatus.COMPLETED.name()).forEach(rental -> {
+            if (rental.getBikeId() == null || rental.getDistanceTraveled() == null) {
+                return;
+            }
+            LocalDateTime serviced = model.getLastMaintenance(rental.getBikeId());
+            if (serviced == null || rental.getEndDateTime() == null || rental.getEndDateTime().isAfter(serviced)) {
+                model.recordRide(rental.getBikeId(), rental.getDistanceTraveled());
+            }
+        });
+
+        rerank();
+    }
+
+    public void trackBike(String bikeId) {
+        if (bikeId != null) {
+            model.track(bikeId);
+        }
+    }
+
+    public void recordRide(String bikeId, Float distanceKm) {
+        if (bikeId != null) {
+            model.recordRide(bikeId, distanceKm != null ? distanceKm : 0f);
+        }
+    }
+
+    public void recordBatteryLevel(String bikeId, Integer batteryLevel) {
+        if (bikeId != null && batteryLevel != null) {
+            model.recordBatteryLevel(bikeId, batteryLevel);
+        }
+    }
+
+    public void recordMaintenance(String bikeId, LocalDateTime date) {
+        if (bikeId != null) {
+            model.recordMaintenance(bikeId, date);
+        }
+    }
+
+    /**
+     * Recomputes a bike's usage from its remaining maintenances, after one was edited or deleted.
+     * Battery discharge before the reset is not replayed, only rides are.
+     */
+    public void refreshMaintenance(String bikeId) {
+        if (bikeId == null) {
+            return;
+        }
+        LocalDateTime serviced = maintenanceRepository.findByBikeId(bikeId)
+                .map(Maintenance::getDate)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        model.resetMaintenance(bikeId, serviced);
+        rentalRepository.findByBikeId(bikeId)
+                .filter(rental -> RentalStatus.COMPLETED.name().equals(rental.getRentalStatus()))
+                .filter(rental -> rental.getDistanceTraveled() != null)
+                .filter(rental -> serviced == null || rental.getEndDateTime() == null
+                        || rental.getEndDateTime().isAfter(serviced))
+                .forEach(rental -> model.recordRide(bikeId, rental.getDistanceTraveled()));
+    }
+
+    // Also leaves the published queue at once instead of at the next re-rank
+    public synchronized void removeBike(String bikeId) {
+        model.remove(bikeId);
+        List<MaintenancePriority> remaining = new ArrayList<>(queue.size());
+        for (MaintenancePriority priority : queue) {
+            if (!priority.getBikeId().equals(bikeId)) {
+                remaining.add(MaintenancePriority.builder()
+                        .rank(remaining.size() + 1)
+                        .bikeId(priority.getBikeId())
+                        .wearScore(priority.getWearScore())
+                        .distanceKm(priority.getDistanceKm())
+                        .rides(priority.getRides())
+                        .batteryCycles(priority.getBatteryCycles())
+                        .unrepairedDamages(priority.getUnrepairedDamages())
+                        .repairCost(priority.getRepairCost())
+                        .lastMaintenanceDate(priority.getLastMaintenanceDate())
+                        .build());
+            }
+        }
+        queue = remaining;
+    }
+
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    public synchronized void rerank() {
+        long start = System.nanoTime();
+        damageSummaryManager.getAllSummaries().forEach(summary -> model.setDamageState(
+                summary.getBikeId(),
+                summary.getUnrepairedCount() != null ? summary.getUnrepairedCount().intValue() : 0,
+                summary.getTotalRepairCost() != null ? summary.getTotalRepairCost() : 0f));
+        queue = model.rank(minScore, queueSize);
+        logger.fine("Maintenance queue re-ranked for " + model.size() + " bikes in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    public List<MaintenancePriority> getQueue(int limit) {
+        List<MaintenancePriority> current = queue;
+        return current.subList(0, Math.min(Math.max(limit, 0), current.size()));
+    }
+}
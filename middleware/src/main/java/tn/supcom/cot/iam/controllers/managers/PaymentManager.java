@@ -3,12 +3,22 @@ package tn.supcom.cot.iam.controllers.managers;
 
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.errors.IdempotencyMismatchException;
+import tn.supcom.cot.iam.controllers.errors.InvalidRequestException;
+import tn.supcom.cot.iam.controllers.events.RentalEventType;
+import tn.supcom.cot.iam.controllers.repositories.PaymentMethodRepository;
 import tn.supcom.cot.iam.controllers.repositories.PaymentRepository;
 import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
 import tn.supcom.cot.iam.entities.Payment;
+import tn.supcom.cot.iam.entities.PaymentMethod;
+import tn.supcom.cot.iam.entities.SpendingAggregate;
 import tn.supcom.cot.iam.entities.Rental;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.Optional;
 import java.time.LocalDateTime;
@@ -21,6 +31,18 @@ public class PaymentManager {
     @Inject
     private RentalRepository rentalRepository;
 
+    @Inject
+    private RentalEventManager rentalEventManager;
+
+    @Inject
+    private IdempotencyManager idempotencyManager;
+
+    @Inject
+    private PaymentMethodRepository paymentMethodRepository;
+
+    @Inject
+    private SpendingAggregateManager spendingAggregateManager;
+
     public Optional<Payment> getPaymentById(String paymentId) {
         return paymentRepository.findById(paymentId);
     }
@@ -38,58 +60,131 @@ public class PaymentManager {
 
 
     public Payment createPayment(Payment payment) {
+        // A caller-chosen id that is already stored is a retry, not a new payment
+        if (payment.getPaymentId() != null) {
+            Optional<Payment> existing = paymentRepository.findById(payment.getPaymentId());
+            if (existing.isPresent()) {
+                if (!sameRequest(existing.get(), payment)) {
+                    throw new IdempotencyMismatchException("Payment " + payment.getPaymentId()
+                            + " was already created from a different request");
+                }
+                return existing.get();
+            }
+        }
         payment.generateId();
         payment.setDateTime(LocalDateTime.now());
-        return paymentRepository.save(payment);
+        if (payment.getTransactionReference() == null) {
+            payment.setTransactionReference(newTransactionReference());
+        }
+        payment.setSettlementStatus("PENDING");
+        fillUserId(payment);
+        Payment saved = paymentRepository.save(payment);
+        spendingAggregateManager.onPaymentCreated(saved);
+        return saved;
+    }
+
+    public Payment createPayment(Payment payment, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return createPayment(payment);
+        }
+        String fingerprint = "payment|" + payment.getAmount() + "|" + payment.getPaymentMethodId()
+                + "|" + payment.getPricingId();
+        String paymentId = idempotencyManager.execute(idempotencyKey, fingerprint, () -> {
+            payment.setPaymentId(paymentIdFor(idempotencyKey));
+            return createPayment(payment).getPaymentId();
+        });
+        return paymentRepository.findById(paymentId).orElse(null);
     }
 
     public Payment createPaymentForRental(String rentalId, Float amount, String paymentMethodId, String pricingId) {
+        return createPaymentForRental(rentalId, amount, paymentMethodId, pricingId, null);
+    }
+
+    public Payment createPaymentForRental(String rentalId, Float amount, String paymentMethodId, String pricingId,
+                                          String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return payRental(rentalId, amount, paymentMethodId, pricingId, null);
+        }
+        String fingerprint = "rental|" + rentalId + "|" + amount + "|" + paymentMethodId + "|" + pricingId;
+        String paymentId = idempotencyManager.execute(idempotencyKey, fingerprint, () -> {
+            Payment payment = payRental(rentalId, amount, paymentMethodId, pricingId, paymentIdFor(idempotencyKey));
+            return payment != null ? payment.getPaymentId() : null;
+        });
+        return paymentId != null ? paymentRepository.findById(paymentId).orElse(null) : null;
+    }
+
+    private Payment payRental(String rentalId, Float amount, String paymentMethodId, String pricingId, String paymentId) {
         Optional<Rental> optRental = rentalRepository.findById(rentalId);
         if (optRental.isPresent()) {
             Rental rental = optRental.get();
 
             Payment payment = Payment.builder()
+                    .paymentId(paymentId)
+                    .userId(rental.getUserId())
+                    .rentalId(rentalId)
                     .amount(amount)
                     .paymentMethodId(paymentMethodId)
                     .pricingId(pricingId)
-                    .transactionReference("TXN-" + System.currentTimeMillis())
                     .build();
 
-            payment.generateId();
-            payment.setDateTime(LocalDateTime.now());
-
-            Payment savedPayment = paymentRepository.save(payment);
+            Payment savedPayment = createPayment(payment);
 
 
             rental.setPaymentId(savedPayment.getPaymentId());
             rental.setTotalPrice(amount);
-            rentalRepository.save(rental);
+            rentalEventManager.publish(RentalEventType.PAID, rentalRepository.save(rental));
 
             return savedPayment;
         }
         return null;
     }
 
+    private static boolean sameRequest(Payment stored, Payment retry) {
+        return Objects.equals(stored.getAmount(), retry.getAmount())
+                && Objects.equals(stored.getPaymentMethodId(), retry.getPaymentMethodId())
+                && Objects.equals(stored.getPricingId(), retry.getPricingId())
+                && (retry.getUserId() == null || retry.getUserId().equals(stored.getUserId()));
+    }
+
+    // Same key, same payment id: a retry that outlives the idempotency record still hits the stored payment
+    private static String paymentIdFor(String idempotencyKey) {
+        return "PAY-" + UUID.nameUUIDFromBytes(idempotencyKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String newTransactionReference() {
+        return "TXN-" + UUID.randomUUID();
+    }
+
 
     public Payment updatePayment(Payment payment) {
-        return paymentRepository.save(payment);
+        if (payment.getPaymentId() == null || payment.getPaymentId().isBlank()) {
+            // Without an id the save would create a payment the aggregates never saw before
+            throw new InvalidRequestException("Payment id is required");
+        }
+        fillUserId(payment);
+        return spendingAggregateManager.update(payment);
     }
 
 
     public boolean deletePayment(String paymentId) {
-        Optional<Payment> optPayment = paymentRepository.findById(paymentId);
-        if (optPayment.isPresent()) {
-            paymentRepository.deleteById(paymentId);
-            return true;
+        return spendingAggregateManager.delete(paymentId);
+    }
+
+    // Payments made outside a rental are attributed through their payment method
+    private void fillUserId(Payment payment) {
+        if (payment.getUserId() == null && payment.getPaymentMethodId() != null) {
+            paymentMethodRepository.findById(payment.getPaymentMethodId())
+                    .map(PaymentMethod::getUserId)
+                    .ifPresent(payment::setUserId);
         }
-        return false;
     }
 
 
-    public Float getTotalAmountByPaymentMethod(String paymentMethodId) {
-        return paymentRepository.findByPaymentMethodId(paymentMethodId)
-                .map(Payment::getAmount)
-                .filter(amount -> amount != null)
-                .reduce(0f, Float::sum);
+    public BigDecimal getTotalAmountByPaymentMethod(String paymentMethodId) {
+        return getSpending(SpendingAggregateManager.METHOD, paymentMethodId).getTotalAmount();
+    }
+
+    public SpendingAggregate getSpending(String scope, String scopeKey) {
+        return spendingAggregateManager.getAggregate(scope, scopeKey);
     }
 }
\ No newline at end of file
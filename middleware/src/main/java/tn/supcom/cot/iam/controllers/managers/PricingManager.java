@@ -3,6 +3,7 @@ package tn.supcom.cot.iam.controllers.managers;
 
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.geo.StationDistance;
 import tn.supcom.cot.iam.controllers.repositories.PricingRepository;
 import tn.supcom.cot.iam.entities.Pricing;
 
@@ -15,6 +16,9 @@ public class PricingManager {
     @Inject
     private PricingRepository pricingRepository;
 
+    @Inject
+    private StationDistanceManager stationDistanceManager;
+
 
     public Optional<Pricing> getPricingById(String pricingId) {
         return pricingRepository.findById(pricingId);
@@ -72,4 +76,14 @@ public class PricingManager {
         Float distanceCost = calculateCostByDistance(pricingId, distanceKm);
         return timeCost + distanceCost;
     }
-}
\ No newline at end of file
+
+    // Cost of riding straight from one station to another, null when a station has no coordinates
+    public Float estimateTripCost(String pricingId, String fromStationId, String toStationId) {
+        StationDistance trip = stationDistanceManager.getDistance(fromStationId, toStationId);
+        if (trip == null) {
+            return null;
+        }
+        int minutes = (int) Math.ceil(trip.getTravelMinutes());
+        return calculateTotalCost(pricingId, minutes, trip.getDistanceKm());
+    }
+}
@@ -0,0 +1,96 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.forecasting.StationForecast;
+import tn.supcom.cot.iam.controllers.rebalancing.RebalancingPlan;
+import tn.supcom.cot.iam.controllers.rebalancing.RebalancingPlanner;
+import tn.supcom.cot.iam.controllers.repositories.StationRepository;
+import tn.supcom.cot.iam.entities.Station;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Stateless
+public class RebalancingManager {
+    @Inject
+    private StationRepository stationRepository;
+
+    @Inject
+    private DemandForecastManager demandForecastManager;
+
+    @Inject
+    private StationDistanceManager stationDistanceManager;
+
+    @Inject
+    @ConfigProperty(name = "rebalancing.trucks", defaultValue = "2")
+    private Integer trucks;
+
+    @Inject
+    @ConfigProperty(name = "rebalancing.truck.capacity", defaultValue = "20")
+    private Integer truckCapacity;
+
+    @Inject
+    @ConfigProperty(name = "rebalancing.candidates", defaultValue = "16")
+    private Integer candidates;
+
+    @Inject
+    @ConfigProperty(name = "rebalancing.min.fill", defaultValue = "0.3")
+    private Double minFill;
+
+    @Inject
+    @ConfigProperty(name = "rebalancing.max.fill", defaultValue = "0.85")
+    private Double maxFill;
+
+    @Inject
+    @ConfigProperty(name = "forecast.shortage.threshold", defaultValue = "2")
+    private Integer shortageThreshold;
+
+    public RebalancingPlan planRebalancing(Integer truckCount) {
+        List<Station> stations = stationRepository.findAll()
+                .filter(station -> stationDistanceManager.hasStation(station.getStationId()))
+                .collect(Collectors.toList());
+        Map<String, StationForecast> forecasts = demandForecastManager.getForecasts().stream()
+                .collect(Collectors.toMap(StationForecast::getStationId, Function.identity(), (a, b) -> a));
+
+        int n = stations.size();
+        String[] stationIds = new String[n];
+        int[] balance = new int[n];
+        for (int i = 0; i < n; i++) {
+            Station station = stations.get(i);
+            stationIds[i] = station.getStationId();
+            balance[i] = balance(station, forecasts.get(station.getStationId()));
+        }
+        float[] distances = stationDistanceManager.getDistances(stationIds);
+
+        int fleet = truckCount != null && truckCount > 0 ? truckCount : trucks;
+        return new RebalancingPlanner(fleet, truckCapacity, candidates).plan(stationIds, balance, distances);
+    }
+
+    // Bikes a station can spare (positive) or needs (negative) to stay within its fill band over the forecast horizon
+    private int balance(Station station, StationForecast forecast) {
+        int available = station.getAvailableBikes() != null ? station.getAvailableBikes() : 0;
+        Integer capacity = station.getTotalCapacity();
+        double lowest = available;
+        double highest = available;
+        if (forecast != null && forecast.getProjectedBikes() != null) {
+            for (Double projected : forecast.getProjectedBikes()) {
+                lowest = Math.min(lowest, projected);
+                highest = Math.max(highest, projected);
+            }
+        }
+
+        double low = capacity != null ? Math.max(shortageThreshold, Math.ceil(minFill * capacity)) : shortageThreshold;
+        if (lowest < low) {
+            int need = (int) Math.ceil(low - lowest);
+            return -(capacity != null ? Math.min(need, Math.max(0, capacity - available)) : need);
+        }
+        if (capacity != null && highest > Math.floor(maxFill * capacity)) {
+            return Math.min(available, (int) Math.ceil(highest - Math.floor(maxFill * capacity)));
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,165 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.events.RentalEvent;
+import tn.supcom.cot.iam.controllers.events.RentalEventConsumer;
+import tn.supcom.cot.iam.controllers.events.RentalEventType;
+import tn.supcom.cot.iam.entities.Rental;
+import tn.supcom.cot.streaming.EventLog;
+import tn.supcom.cot.streaming.EventLogReader;
+import tn.supcom.cot.streaming.LogRecord;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of rental lifecycle transitions (veloway-streaming EventLog). RentalManager
+ * publishes after every transition; registered RentalEventConsumer beans are fed from the log,
+ * so projections, analytics and notifications never poll MongoDB.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class RentalEventManager {
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    @Any
+    private Instance<RentalEventConsumer> consumers;
+
+    @Inject
+    @ConfigProperty(name = "events.log.dir")
+    private String logDirectory;
+
+    @Inject
+    @ConfigProperty(name = "events.log.segment.bytes", defaultValue = "16777216")
+    private Integer segmentBytes;
+
+    private final Jsonb jsonb = JsonbBuilder.create();
+    private final Map<String, Long> positions = new ConcurrentHashMap<>();
+    private EventLog log;
+    private Path offsetsDirectory;
+
+    @PostConstruct
+    public void init() {
+        try {
+            // Consumers resume from offsets stored next to the log, both must survive a reboot
+            Path directory = Paths.get(logDirectory);
+            if (logDirectory.isBlank() || !directory.isAbsolute()) {
+                throw new IllegalStateException("events.log.dir must be an absolute path on durable storage, got '"
+                        + logDirectory + "'");
+            }
+            log = new EventLog(directory.resolve("log"), segmentBytes);
+            offsetsDirectory = Files.createDirectories(directory.resolve("consumers"));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open the rental event log", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            dispatch();
+            log.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close the rental event log", e);
+        }
+    }
+
+    public void publish(RentalEventType type, Rental rental) {
+        if (rental == null) {
+            return;
+        }
+        try {
+            log.append(jsonb.toJson(RentalEvent.of(type, rental)).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // The document write already happened, losing the event must not fail the request
+            logger.log(Level.SEVERE, "Failed to append " + type + " for " + rental.getRentalId(), e);
+        }
+    }
+
+    public long getNextOffset() {
+        return log.getNextOffset();
+    }
+
+    public List<RentalEvent> readEvents(long fromOffset, int limit) {
+        try (EventLogReader reader = log.reader(Math.max(0, fromOffset))) {
+            return decode(reader.poll(Math.max(0, limit)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read the rental event log", e);
+        }
+    }
+
+    @Schedule(hour = "*", minute = "*", second = "*", persistent = false)
+    public synchronized void dispatch() {
+        log.flush();
+        for (RentalEventConsumer consumer : consumers) {
+            String name = consumer.getName();
+            long position = positions.computeIfAbsent(name, n -> consumer.isDurable() ? loadOffset(n) : 0L);
+            try (EventLogReader reader = log.reader(position)) {
+                List<LogRecord> records;
+                while (!(records = reader.poll(500)).isEmpty()) {
+                    for (RentalEvent event : decode(records)) {
+                        consumer.onEvent(event);
+                    }
+                    positions.put(name, reader.getPosition());
+                    if (consumer.isDurable()) {
+                        storeOffset(name, reader.getPosition());
+                    }
+                }
+            } catch (Exception e) {
+                // The position stays on the failed batch, which is retried on the next tick
+                logger.log(Level.WARNING, "Rental event consumer " + name + " failed", e);
+            }
+        }
+    }
+
+    private List<RentalEvent> decode(List<LogRecord> records) {
+        List<RentalEvent> events = new ArrayList<>(records.size());
+        for (LogRecord record : records) {
+            RentalEvent event = jsonb.fromJson(new String(record.payload(), StandardCharsets.UTF_8), RentalEvent.class);
+            event.setOffset(record.offset());
+            events.add(event);
+        }
+        return events;
+    }
+
+    private long loadOffset(String consumer) {
+        try {
+            Path file = offsetsDirectory.resolve(consumer + ".offset");
+            return Files.exists(file) ? Long.parseLong(Files.readString(file).trim()) : 0L;
+        } catch (IOException | NumberFormatException e) {
+            logger.log(Level.WARNING, "Unreadable offset for " + consumer + ", replaying from the start", e);
+            return 0L;
+        }
+    }
+
+    private void storeOffset(String consumer, long offset) throws IOException {
+        Files.writeString(offsetsDirectory.resolve(consumer + ".offset"), Long.toString(offset));
+    }
+}
@@ -3,13 +3,22 @@ package tn.supcom.cot.iam.controllers.managers;
 
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.errors.ConflictException;
+import tn.supcom.cot.iam.controllers.errors.InvalidRequestException;
+import tn.supcom.cot.iam.controllers.events.RentalEventType;
+import tn.supcom.cot.iam.controllers.events.RiderViewProjection;
 import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
-import tn.supcom.cot.iam.entities.Payment;
+import tn.supcom.cot.iam.controllers.status.BikeStatus;
+import tn.supcom.cot.iam.controllers.status.OutboxStatus;
+import tn.supcom.cot.iam.controllers.status.RentalStatus;
 import tn.supcom.cot.iam.entities.Rental;
+import tn.supcom.cot.iam.entities.RiderView;
 import tn.supcom.cot.iam.entities.Bike;
+import tn.supcom.cot.iam.entities.Station;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -31,10 +40,31 @@ public class RentalManager {
     private StationManager stationManager;
 
     @Inject
-    private PaymentManager paymentManager;
+    private PricingManager pricingManager;
 
     @Inject
-    private PricingManager pricingManager;
+    private DamageInferenceManager damageInferenceManager;
+
+    @Inject
+    private MaintenanceScheduler maintenanceScheduler;
+
+    @Inject
+    private ReservationExpiryManager reservationExpiryManager;
+
+    @Inject
+    private RentalEventManager rentalEventManager;
+
+    @Inject
+    private RiderViewProjection riderViewProjection;
+
+    @Inject
+    private GeofenceManager geofenceManager;
+
+    @Inject
+    private GpsAnomalyManager gpsAnomalyManager;
+
+    @Inject
+    private StatusCountManager statusCountManager;
 
     public Set<Rental> getRentalsByRentalId(String rentalId) {
         return rentalRepository.findAll().collect(Collectors.toSet());
@@ -49,19 +79,42 @@ public class RentalManager {
     }
 
     public Set<Rental> getRentalByRentalStatus(String rentalStatus) {
-        return rentalRepository.findByRentalStatus(rentalStatus).collect(Collectors.toSet());
+        RentalStatus status = RentalStatus.of(rentalStatus);
+        if (status == RentalStatus.OTHER) {
+            return Set.of(); // no rental is ever written with an unknown status
+        }
+        return rentalRepository.findByRentalStatus(status.name()).collect(Collectors.toSet());
+    }
+
+    public Map<RentalStatus, Long> countRentalsByStatus() {
+        return statusCountManager.getRentalCounts();
     }
 
     public Rental createRental(Rental rental) {
+        RentalStatus.checkTransition(null, rental.getRentalStatus());
         rental.generateId();
-        return rentalRepository.save(rental);
+        Rental saved = rentalRepository.save(rental);
+        statusCountManager.onRentalStatusChanged(null, RentalStatus.of(saved.getRentalStatus()));
+        return saved;
     }
 
     public Rental updateRental(Rental rental) {
-        return rentalRepository.save(rental);
+        Optional<Rental> before = rental.getRentalId() == null ? Optional.empty()
+                : rentalRepository.findById(rental.getRentalId());
+        String previous = before.map(Rental::getRentalStatus).orElse(null);
+        RentalStatus.checkTransition(previous, rental.getRentalStatus());
+        Rental saved = rentalRepository.save(rental);
+        statusCountManager.onRentalStatusChanged(before.isPresent() ? RentalStatus.of(previous) : null,
+                RentalStatus.of(saved.getRentalStatus()));
+        return saved;
     }
     public void deleteRental(String rentalId) {
+        Optional<Rental> before = rentalRepository.findById(rentalId);
         rentalRepository.deleteById(rentalId);
+        reservationExpiryManager.cancel(rentalId);
+        before.ifPresent(rental -> statusCountManager.onRentalStatusChanged(RentalStatus.of(rental.getRentalStatus()), null));
+        before.filter(rental -> RentalStatus.of(rental.getRentalStatus()) == RentalStatus.ACTIVE)
+                .ifPresent(rental -> gpsAnomalyManager.endRide(rental.getBikeId()));
     }
 
     //Starting Rental
@@ -71,8 +124,20 @@ public class RentalManager {
             Rental rental = optionalRental.get();
 
             if (rental.getStartDateTime()== null){
+                String previous = rental.getRentalStatus();
+                RentalStatus.checkTransition(previous, RentalStatus.ACTIVE.name());
+                reservationExpiryManager.cancel(rentalId);
+                // Loses against an expiry that committed since the read above
+                if (!reservationExpiryManager.transition(rentalId, previous, RentalStatus.ACTIVE)) {
+                    throw new ConflictException("Rental " + rentalId + " is no longer " + previous);
+                }
                 rental.setStartDateTime(LocalDateTime.now());
-                rental.setRentalStatus("ACTIVE");
+                rental.setRentalStatus(RentalStatus.ACTIVE.name());
+                Rental saved = rentalRepository.save(rental);
+                statusCountManager.onRentalStatusChanged(RentalStatus.of(previous), RentalStatus.ACTIVE);
+                gpsAnomalyManager.startRide(saved.getBikeId());
+                rentalEventManager.publish(RentalEventType.STARTED, saved);
+                return saved;
             }
 
             return rentalRepository.save(rental);
@@ -87,17 +152,26 @@ public class RentalManager {
 
             // End Rental
             if (rental.getStartDateTime() != null && rental.getEndDateTime() == null) {
+                String previous = rental.getRentalStatus();
+                RentalStatus.checkTransition(previous, RentalStatus.COMPLETED.name());
+                validateParking(rentalId, endStationId);
                 rental.setEndDateTime(LocalDateTime.now());
                 rental.setDuration((int) Duration.between(rental.getStartDateTime(),
                         rental.getEndDateTime()).toMinutes());
-                rental.setRentalStatus("COMPLETED");
+                rental.setRentalStatus(RentalStatus.COMPLETED.name());
                 rental.setDistanceTraveled(distanceTraveled);
                 rental.setEndStationId(endStationId);
 
                 // Amount
                 //calculateAmount(rental);
 
-                return rentalRepository.save(rental);
+                Rental saved = rentalRepository.save(rental);
+                statusCountManager.onRentalStatusChanged(RentalStatus.of(previous), RentalStatus.COMPLETED);
+                maintenanceScheduler.recordRide(saved.getBikeId(), saved.getDistanceTraveled());
+                geofenceManager.endRide(rentalId);
+                gpsAnomalyManager.endRide(saved.getBikeId());
+                rentalEventManager.publish(RentalEventType.ENDED, saved);
+                return saved;
             }
         }
         return null;
@@ -105,13 +179,23 @@ public class RentalManager {
 
     public Optional<Rental> getActiveRentalByUserId(String userId) {
         return rentalRepository.findByUserId(userId)
-                .filter(rental -> "ACTIVE".equals(rental.getRentalStatus()))
+                .filter(rental -> RentalStatus.of(rental.getRentalStatus()) == RentalStatus.ACTIVE)
                 .findFirst();
     }
 
+    // Read model for the rider pages; built from the rental documents the first time a user is seen
+    public RiderView getRiderView(String userId) {
+        Optional<RiderView> view = riderViewProjection.getView(userId);
+        if (view.isPresent()) {
+            return view.get();
+        }
+        long lastOffset = rentalEventManager.getNextOffset() - 1;
+        return riderViewProjection.rebuild(userId, lastOffset);
+    }
+
     public boolean hasActiveRental(String userId) {
         return rentalRepository.findByUserId(userId)
-                .anyMatch(rental -> "ACTIVE".equals(rental.getRentalStatus()));
+                .anyMatch(rental -> RentalStatus.of(rental.getRentalStatus()) == RentalStatus.ACTIVE);
     }
 
     public Rental addInitialPhoto(String rentalId, String photoUrl) {
@@ -119,25 +203,34 @@ public class RentalManager {
         if (optRental.isPresent()) {
             Rental rental = optRental.get();
             rental.setInitialPhoto(photoUrl);
-            return rentalRepository.save(rental);
+            Rental saved = rentalRepository.save(rental);
+            rentalEventManager.publish(RentalEventType.INITIAL_PHOTO_ADDED, saved);
+            return saved;
         }
         return null;
     }
 
     public Rental addInitialPhotoFile(String rentalId, File photoFile) {
+        return addInitialPhotoFile(rentalId, photoFile, null);
+    }
+
+    public Rental addInitialPhotoFile(String rentalId, File photoFile, String contentHash) {
         Optional<Rental> optRental = rentalRepository.findById(rentalId);
         if (optRental.isPresent()) {
             try {
                 Rental rental = optRental.get();
 
-                // Upload vers Cloudinary
-                String photoUrl = cloudinaryManager.uploadImage(
+                // Upload vers Cloudinary (skipped when the same bytes were already uploaded)
+                String photoUrl = cloudinaryManager.uploadImageOnce(
                         photoFile,
-                        "veloway/rentals/" + rentalId + "/initial"
+                        "veloway/rentals/" + rentalId + "/initial",
+                        contentHash
                 );
 
                 rental.setInitialPhoto(photoUrl);
-                return rentalRepository.save(rental);
+                Rental saved = rentalRepository.save(rental);
+                rentalEventManager.publish(RentalEventType.INITIAL_PHOTO_ADDED, saved);
+                return saved;
             } catch (IOException e) {
                 throw new RuntimeException("Failed to upload initial photo", e);
             }
@@ -150,25 +243,36 @@ public class RentalManager {
         if (optRental.isPresent()) {
             Rental rental = optRental.get();
             rental.setFinalPhoto(photoUrl);
-            return rentalRepository.save(rental);
+            Rental saved = rentalRepository.save(rental);
+            rentalEventManager.publish(RentalEventType.FINAL_PHOTO_ADDED, saved);
+            damageInferenceManager.submit(saved);
+            return saved;
         }
         return null;
     }
 
     public Rental addFinalPhotoFile(String rentalId, File photoFile) {
+        return addFinalPhotoFile(rentalId, photoFile, null);
+    }
+
+    public Rental addFinalPhotoFile(String rentalId, File photoFile, String contentHash) {
         Optional<Rental> optRental = rentalRepository.findById(rentalId);
         if (optRental.isPresent()) {
             try {
                 Rental rental = optRental.get();
 
-                // Upload vers Cloudinary
-                String photoUrl = cloudinaryManager.uploadImage(
+                // Upload vers Cloudinary (skipped when the same bytes were already uploaded)
+                String photoUrl = cloudinaryManager.uploadImageOnce(
                         photoFile,
-                        "veloway/rentals/" + rentalId + "/final"
+                        "veloway/rentals/" + rentalId + "/final",
+                        contentHash
                 );
 
                 rental.setFinalPhoto(photoUrl);
-                return rentalRepository.save(rental);
+                Rental saved = rentalRepository.save(rental);
+                rentalEventManager.publish(RentalEventType.FINAL_PHOTO_ADDED, saved);
+                damageInferenceManager.submit(saved);
+                return saved;
             } catch (IOException e) {
                 throw new RuntimeException("Failed to upload final photo", e);
             }
@@ -198,13 +302,16 @@ public class RentalManager {
                 .userId(userId)
                 .bikeId(selectedBike.getBikeId())
                 .startStationId(stationId)
-                .rentalStatus("RESERVED")
+                .rentalStatus(RentalStatus.RESERVED.name())
+                .reservationDateTime(LocalDateTime.now())
                 .build();
 
         Rental savedRental = createRental(rental);
+        reservationExpiryManager.schedule(savedRental);
+        rentalEventManager.publish(RentalEventType.RESERVED, savedRental);
 
         // 5. Reserve the bike
-        bikeManager.updateBikeStatus(selectedBike.getBikeId(), "RESERVED");
+        bikeManager.updateBikeStatus(selectedBike.getBikeId(), BikeStatus.RESERVED.name());
 
         // 6. update available bikes in the station
         stationManager.updateAvailableBikes(null, stationId);
@@ -220,9 +327,10 @@ public class RentalManager {
 
         Rental rental = optRental.get();
 
-        if (!"ACTIVE".equals(rental.getRentalStatus())) {
+        if (RentalStatus.of(rental.getRentalStatus()) != RentalStatus.ACTIVE) {
             throw new IllegalStateException("Rental is not active");
         }
+        validateParking(rentalId, endStationId);
 
         // 1. Calculate duration
         rental.setEndDateTime(LocalDateTime.now());
@@ -242,43 +350,31 @@ public class RentalManager {
         Float totalPrice = (durationMinutes * pricePerMinute) + (distanceTraveled * pricePerKm);
         rental.setTotalPrice(totalPrice);
 
-        // 4. finish rental
+        // 4. finish rental; bike release, station recounts and payment ride along in its outbox
         rental.setEndStationId(endStationId);
-        rental.setRentalStatus("COMPLETED");
+        rental.setRentalStatus(RentalStatus.COMPLETED.name());
+        rental.setOutbox(RentalOutboxDispatcher.completionEffects());
+        rental.setOutboxStatus(OutboxStatus.PENDING.name());
         Rental savedRental = rentalRepository.save(rental);
+        statusCountManager.onRentalStatusChanged(RentalStatus.ACTIVE, RentalStatus.COMPLETED);
+        maintenanceScheduler.recordRide(rental.getBikeId(), distanceTraveled);
+        geofenceManager.endRide(rentalId);
+        gpsAnomalyManager.endRide(rental.getBikeId());
 
-        // 5. liberate the bike
-        Set<Bike> bikes = bikeManager.getBikeByBikeId(rental.getBikeId());
-        if (!bikes.isEmpty()) {
-            Bike bike = bikes.iterator().next();
-            bike.setStatus("AVAILABLE");
-            bike.setStationId(endStationId);
-            bikeManager.updateBike(bike);
-        }
+        rentalEventManager.publish(RentalEventType.COMPLETED, savedRental);
+        return savedRental;
+    }
 
-        // 6. update station
-        stationManager.updateAvailableBikes(null, rental.getStartStationId());
-        stationManager.updateAvailableBikes(null, endStationId);
-
-        // 7. create payment
-        try {
-            Payment payment = Payment.builder()
-                    .amount(totalPrice)
-                    .paymentMethodId("PMT-DEFAULT")
-                    .pricingId("PRICING-DEFAULT")
-                    .transactionReference("AUTO-" + System.currentTimeMillis())
-                    .build();
-            paymentManager.createPayment(payment);
-
-            // Lier le paiement à la location
-            savedRental.setPaymentId(payment.getPaymentId());
-            savedRental = rentalRepository.save(savedRental);
-        } catch (Exception e) {
-            // Log l'erreur mais ne pas bloquer la fin de location
-            System.err.println("Failed to create payment: " + e.getMessage());
+    // The bike's last reported position must be within the end station's parking radius
+    private void validateParking(String rentalId, String endStationId) {
+        if (endStationId == null || endStationId.isBlank()) {
+            throw new InvalidRequestException("End station is required");
         }
-
-        return savedRental;
+        Set<Station> stations = stationManager.getStationByStationId(endStationId);
+        if (stations.isEmpty()) {
+            throw new InvalidRequestException("End station not found: " + endStationId);
+        }
+        geofenceManager.validateParking(rentalId, stations.iterator().next());
     }
 
 }
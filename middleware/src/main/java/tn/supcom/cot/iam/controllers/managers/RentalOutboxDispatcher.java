@@ -0,0 +1,257 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.events.RentalEventType;
+import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
+import tn.supcom.cot.iam.controllers.status.BikeStatus;
+import tn.supcom.cot.iam.controllers.status.OutboxStatus;
+import tn.supcom.cot.iam.controllers.status.RentalStatus;
+import tn.supcom.cot.iam.entities.Bike;
+import tn.supcom.cot.iam.entities.OutboxEffect;
+import tn.supcom.cot.iam.entities.Payment;
+import tn.supcom.cot.iam.entities.Rental;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Executes the side effects that rental transitions record in their outbox: releasing the bike,
+ * recounting stations and creating the payment. The rental and its outbox are one document, so
+ * the transition and its effects are written atomically; a failed effect is retried with
+ * exponential backoff until it succeeds or uses up its attempts, and each one is safe to run
+ * again after a crash.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class RentalOutboxDispatcher {
+
+    public static final String RELEASE_BIKE = "RELEASE_BIKE";
+    public static final String RECOUNT_STATIONS = "RECOUNT_STATIONS";
+    public static final String CREATE_PAYMENT = "CREATE_PAYMENT";
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private RentalRepository rentalRepository;
+
+    @Inject
+    private BikeManager bikeManager;
+
+    @Inject
+    private StationManager stationManager;
+
+    @Inject
+    private PaymentManager paymentManager;
+
+    @Inject
+    private RentalEventManager rentalEventManager;
+
+    @Inject
+    @ConfigProperty(name = "outbox.batch.size", defaultValue = "100")
+    private Integer batchSize;
+
+    @Inject
+    @ConfigProperty(name = "outbox.max.attempts", defaultValue = "10")
+    private Integer maxAttempts;
+
+    @Inject
+    @ConfigProperty(name = "outbox.backoff.seconds", defaultValue = "2")
+    private Integer backoffSeconds;
+
+    @Inject
+    @ConfigProperty(name = "outbox.backoff.max.seconds", defaultValue = "900")
+    private Integer maxBackoffSeconds;
+
+    public static List<OutboxEffect> completionEffects() {
+        List<OutboxEffect> effects = new ArrayList<>();
+        effects.add(OutboxEffect.pending(RELEASE_BIKE));
+        effects.add(OutboxEffect.pending(RECOUNT_STATIONS));
+        effects.add(OutboxEffect.pending(CREATE_PAYMENT));
+        return effects;
+    }
+
+    @Schedule(hour = "*", minute = "*", second = "*", persistent = false)
+    public synchronized void dispatch() {
+        LocalDateTime now = LocalDateTime.now();
+        // Rentals whose effects are all waiting out a backoff don't take a place in the batch
+        List<Rental> batch = rentalRepository.findByOutboxStatus(OutboxStatus.PENDING.name())
+                .filter(rental -> rental.getOutbox() != null
+                        && rental.getOutbox().stream().anyMatch(effect -> isDue(effect, now)))
+                .limit(batchSize)
+                .collect(Collectors.toList());
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Bikes first so the recounts below see them back in their station
+        Set<String> stations = new HashSet<>();
+        for (Rental rental : batch) {
+            for (OutboxEffect effect : rental.getOutbox()) {
+                if (!isDue(effect, now)) {
+                    continue;
+                }
+                switch (effect.getType()) {
+                    case RELEASE_BIKE -> run(rental, effect, () -> releaseBike(rental));
+                    case CREATE_PAYMENT -> run(rental, effect, () -> createPayment(rental));
+                    case RECOUNT_STATIONS -> {
+                        stations.add(rental.getStartStationId());
+                        stations.add(rental.getEndStationId());
+                    }
+                    default -> fail(effect, "Unknown effect type");
+                }
+            }
+        }
+
+        // Each station is recounted once per batch, however many rentals touched it
+        stations.remove(null);
+        Set<String> recounted = new HashSet<>();
+        for (String stationId : stations) {
+            try {
+                stationManager.updateAvailableBikes(null, stationId);
+                recounted.add(stationId);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Failed to recount station " + stationId, e);
+            }
+        }
+
+        int done = 0;
+        for (Rental rental : batch) {
+            for (OutboxEffect effect : rental.getOutbox()) {
+                if (RECOUNT_STATIONS.equals(effect.getType()) && isDue(effect, now)) {
+                    boolean ok = (rental.getStartStationId() == null || recounted.contains(rental.getStartStationId()))
+                            && (rental.getEndStationId() == null || recounted.contains(rental.getEndStationId()));
+                    run(rental, effect, () -> {
+                        if (!ok) {
+                            throw new IllegalStateException("Station recount failed");
+                        }
+                    });
+                }
+            }
+            if (saveOutbox(rental)) {
+                done++;
+            }
+        }
+        logger.info("Dispatched outbox of " + batch.size() + " rentals, " + done + " settled");
+    }
+
+    private static boolean isDue(OutboxEffect effect, LocalDateTime now) {
+        return OutboxStatus.of(effect.getStatus()) == OutboxStatus.PENDING
+                && (effect.getNextAttemptAt() == null || !effect.getNextAttemptAt().isAfter(now));
+    }
+
+    // Runs one effect, marking it DONE, or FAILED once it has used up its attempts
+    private void run(Rental rental, OutboxEffect effect, Runnable action) {
+        effect.setAttempts(effect.getAttempts() != null ? effect.getAttempts() + 1 : 1);
+        try {
+            action.run();
+            effect.setStatus(OutboxStatus.DONE.name());
+            effect.setLastError(null);
+            effect.setNextAttemptAt(null);
+            effect.setCompletedAt(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            effect.setLastError(e.getMessage());
+            if (effect.getAttempts() >= maxAttempts) {
+                fail(effect, e.getMessage());
+                logger.log(Level.SEVERE, effect.getType() + " failed for " + rental.getRentalId(), e);
+            } else {
+                // backoffSeconds after the first failure, doubling up to maxBackoffSeconds
+                long delay = Math.min((long) maxBackoffSeconds,
+                        (long) backoffSeconds << Math.min(effect.getAttempts() - 1, 30));
+                effect.setNextAttemptAt(LocalDateTime.now().plusSeconds(delay));
+                logger.log(Level.WARNING, effect.getType() + " failed for " + rental.getRentalId()
+                        + ", retrying in " + delay + " s", e);
+            }
+        }
+    }
+
+    private void fail(OutboxEffect effect, String error) {
+        effect.setStatus(OutboxStatus.FAILED.name());
+        effect.setLastError(error);
+        effect.setNextAttemptAt(null);
+    }
+
+    private void releaseBike(Rental rental) {
+        if (rental.getBikeId() == null) {
+            return;
+        }
+        // On a rerun the bike may already be out again with another rider
+        boolean heldElsewhere = rentalRepository.findByBikeId(rental.getBikeId())
+                .anyMatch(other -> !other.getRentalId().equals(rental.getRentalId())
+                        && RentalStatus.of(other.getRentalStatus()).isOpen());
+        if (heldElsewhere) {
+            return;
+        }
+        Set<Bike> bikes = bikeManager.getBikeByBikeId(rental.getBikeId());
+        if (!bikes.isEmpty()) {
+            Bike bike = bikes.iterator().next();
+            // Only a bike still held by the ride goes back into service, not one pulled for repair meanwhile
+            BikeStatus status = BikeStatus.of(bike.getStatus());
+            if (status != BikeStatus.RESERVED && status != BikeStatus.IN_USE && status != BikeStatus.DOCKED) {
+                return;
+            }
+            bike.setStatus(BikeStatus.AVAILABLE.name());
+            bike.setStationId(rental.getEndStationId());
+            bikeManager.updateBike(bike);
+        }
+    }
+
+    private void createPayment(Rental rental) {
+        if (rental.getPaymentId() != null) {
+            return;
+        }
+        // Ids derived from the rental make a rerun find the same payment instead of adding one
+        Payment payment = Payment.builder()
+                .paymentId("PAY-" + rental.getRentalId())
+                .userId(rental.getUserId())
+                .rentalId(rental.getRentalId())
+                .amount(rental.getTotalPrice())
+                .paymentMethodId("PMT-DEFAULT")
+                .pricingId("PRICING-DEFAULT")
+                .transactionReference("AUTO-" + rental.getRentalId())
+                .build();
+        paymentManager.createPayment(payment);
+        rental.setPaymentId(payment.getPaymentId());
+    }
+
+    // Writes the outbox back onto a fresh copy so rental updates made meanwhile (e.g. photos) are kept
+    private boolean saveOutbox(Rental processed) {
+        Optional<Rental> optRental = rentalRepository.findById(processed.getRentalId());
+        if (optRental.isEmpty()) {
+            return false;
+        }
+        Rental rental = optRental.get();
+        boolean paid = rental.getPaymentId() == null && processed.getPaymentId() != null;
+        if (paid) {
+            rental.setPaymentId(processed.getPaymentId());
+        }
+        rental.setOutbox(processed.getOutbox());
+        boolean pending = processed.getOutbox().stream()
+                .anyMatch(e -> OutboxStatus.of(e.getStatus()) == OutboxStatus.PENDING);
+        boolean failed = processed.getOutbox().stream()
+                .anyMatch(e -> OutboxStatus.of(e.getStatus()) == OutboxStatus.FAILED);
+        OutboxStatus status = pending ? OutboxStatus.PENDING : failed ? OutboxStatus.FAILED : OutboxStatus.DONE;
+        rental.setOutboxStatus(status.name());
+        Rental saved = rentalRepository.save(rental);
+        if (paid) {
+            rentalEventManager.publish(RentalEventType.PAID, saved);
+        }
+        return !pending;
+    }
+}
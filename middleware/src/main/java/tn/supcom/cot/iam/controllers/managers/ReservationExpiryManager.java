@@ -0,0 +1,140 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.events.RentalEventType;
+import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
+import tn.supcom.cot.iam.controllers.scheduling.TimerWheel;
+import tn.supcom.cot.iam.controllers.status.BikeStatus;
+import tn.supcom.cot.iam.controllers.status.RentalStatus;
+import tn.supcom.cot.iam.entities.Rental;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Releases bikes of reservations that were never started. Deadlines live in a timer wheel
+ * rebuilt from the RESERVED rentals at startup; expired reservations are released in batches
+ * and each affected station is recounted once per batch. A reservation only expires through a
+ * conditional write on its RESERVED status, the same write startRental uses to go ACTIVE, so the
+ * two can never both win.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ReservationExpiryManager {
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private RentalRepository rentalRepository;
+
+    @Inject
+    private BikeManager bikeManager;
+
+    @Inject
+    private StationManager stationManager;
+
+    @Inject
+    private RentalEventManager rentalEventManager;
+
+    @Inject
+    private StatusCountManager statusCountManager;
+
+    @Inject
+    @ConfigProperty(name = "reservation.ttl.minutes", defaultValue = "15")
+    private Integer ttlMinutes;
+
+    @Inject
+    private MongoDatabase database;
+
+    private TimerWheel<String> wheel;
+    private MongoCollection<Document> rentals;
+
+    @PostConstruct
+    public void init() {
+        rentals = database.getCollection(Rental.class.getSimpleName());
+        // 1 s ticks over a 4096-slot wheel: a full turn covers more than an hour of deadlines
+        wheel = new TimerWheel<>(1000, 4096, System.currentTimeMillis());
+        rentalRepository.findByRentalStatus(RentalStatus.RESERVED.name()).forEach(this::schedule);
+    }
+
+    public void schedule(Rental rental) {
+        // Reservations made before reservationDateTime was recorded get a full TTL from now
+        LocalDateTime reservedAt = rental.getReservationDateTime() != null
+                ? rental.getReservationDateTime() : LocalDateTime.now();
+        long deadline = reservedAt.plusMinutes(ttlMinutes)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        wheel.schedule(rental.getRentalId(), deadline);
+    }
+
+    public void cancel(String rentalId) {
+        wheel.cancel(rentalId);
+    }
+
+    // Sets the status only if it still is the expected one (null matches a missing status)
+    public boolean transition(String rentalId, String expected, RentalStatus next) {
+        return rentals.updateOne(Filters.and(Filters.eq("_id", rentalId), Filters.eq("rentalStatus", expected)),
+                Updates.set("rentalStatus", next.name())).getModifiedCount() > 0;
+    }
+
+    public int getPendingCount() {
+        return wheel.size();
+    }
+
+    @Schedule(hour = "*", minute = "*", second = "*/5", persistent = false)
+    public void releaseExpired() {
+        List<String> expired = wheel.advance(System.currentTimeMillis());
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        Set<String> stations = new HashSet<>();
+        int released = 0;
+        for (String rentalId : expired) {
+            // The rider may have started the ride between the deadline and this batch
+            if (!transition(rentalId, RentalStatus.RESERVED.name(), RentalStatus.EXPIRED)) {
+                continue;
+            }
+            Optional<Rental> optRental = rentalRepository.findById(rentalId);
+            if (optRental.isEmpty()) {
+                continue;
+            }
+            Rental rental = optRental.get();
+            rentalEventManager.publish(RentalEventType.EXPIRED, rental);
+            statusCountManager.onRentalStatusChanged(RentalStatus.RESERVED, RentalStatus.EXPIRED);
+
+            if (rental.getBikeId() != null) {
+                bikeManager.updateBikeStatus(rental.getBikeId(), BikeStatus.AVAILABLE.name());
+            }
+            if (rental.getStartStationId() != null) {
+                stations.add(rental.getStartStationId());
+            }
+            released++;
+        }
+
+        for (String stationId : stations) {
+            stationManager.updateAvailableBikes(null, stationId);
+        }
+        logger.info("Released " + released + " expired reservations across " + stations.size() + " stations");
+    }
+}
@@ -0,0 +1,202 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.repositories.IOTSensorRepository;
+import tn.supcom.cot.iam.controllers.repositories.SensorRollupRepository;
+import tn.supcom.cot.iam.controllers.telemetry.RollupAccumulator;
+import tn.supcom.cot.iam.controllers.telemetry.SensorReading;
+import tn.supcom.cot.iam.controllers.telemetry.SensorRingBuffer;
+import tn.supcom.cot.iam.entities.IOTSensor;
+import tn.supcom.cot.iam.entities.SensorRollup;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Station sensor telemetry. Readings only touch memory on ingest: the latest N samples of
+ * each sensor are kept in a ring buffer and folded into per-bucket rollups, which a scheduled
+ * job persists once their bucket is closed. MongoDB sees one write per sensor per bucket.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SensorTelemetryManager {
+
+    private record BucketKey(String sensorId, long bucketStart) {
+    }
+
+    @Inject
+    private IOTSensorRepository sensorRepository;
+
+    @Inject
+    private SensorRollupRepository rollupRepository;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.buffer.size", defaultValue = "256")
+    private Integer bufferSize;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.rollup.seconds", defaultValue = "60")
+    private Integer rollupSeconds;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.rollup.grace.seconds", defaultValue = "10")
+    private Integer graceSeconds;
+
+    private final Map<String, IOTSensor> sensors = new ConcurrentHashMap<>();
+    private final Map<String, SensorRingBuffer> buffers = new ConcurrentHashMap<>();
+    private final Map<BucketKey, RollupAccumulator> rollups = new ConcurrentHashMap<>();
+    private volatile long lastFlushCutoff = Long.MIN_VALUE;
+
+    @PostConstruct
+    public void init() {
+        sensorRepository.findAll().forEach(this::registerSensor);
+        // Buckets persisted before a restart, including the open ones flushed at shutdown, are merged into
+        rollupRepository.findFirstByOrderByBucketStartDesc().ifPresent(latest -> lastFlushCutoff =
+                latest.getBucketStart().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                        + latest.getBucketSeconds() * 1000L);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush(Long.MAX_VALUE);
+    }
+
+    public void registerSensor(IOTSensor sensor) {
+        sensors.put(sensor.getSensorId(), sensor);
+    }
+
+    public void unregisterSensor(String sensorId) {
+        sensors.remove(sensorId);
+        buffers.remove(sensorId);
+    }
+
+    // Returns the number of accepted readings; readings of unknown sensors are dropped
+    public int ingest(List<SensorReading> readings) {
+        long now = System.currentTimeMillis();
+        long bucketMillis = rollupSeconds * 1000L;
+        int accepted = 0;
+        for (SensorReading reading : readings) {
+            if (reading == null || reading.getValue() == null || !sensors.containsKey(reading.getSensorId())) {
+                continue;
+            }
+            String sensorId = reading.getSensorId();
+            long timestamp = reading.getTimestamp() != null ? reading.getTimestamp() : now;
+            double value = reading.getValue();
+
+            buffers.computeIfAbsent(sensorId, id -> new SensorRingBuffer(bufferSize)).add(timestamp, value);
+
+            long bucketStart = Math.floorDiv(timestamp, bucketMillis) * bucketMillis;
+            // compute() is atomic with the remove() done by flush, so no sample lands in a persisted bucket
+            rollups.compute(new BucketKey(sensorId, bucketStart), (key, rollup) -> {
+                RollupAccumulator target = rollup != null ? rollup : new RollupAccumulator(sensorId, bucketStart);
+                target.add(timestamp, value);
+                return target;
+            });
+            accepted++;
+        }
+        return accepted;
+    }
+
+    public List<SensorReading> getLatestReadings(String sensorId, int limit) {
+        SensorRingBuffer buffer = buffers.get(sensorId);
+        return buffer == null ? List.of() : buffer.latest(sensorId, limit);
+    }
+
+    public List<SensorReading> getLatestReadingsByStation(String stationId) {
+        List<SensorReading> latest = new ArrayList<>();
+        sensors.values().stream()
+                .filter(sensor -> stationId.equals(sensor.getStationId()))
+                .forEach(sensor -> latest.addAll(getLatestReadings(sensor.getSensorId(), 1)));
+        return latest;
+    }
+
+    public List<SensorRollup> getRollups(String sensorId, Long fromMillis, Long toMillis) {
+        LocalDateTime from = fromMillis != null ? toDateTime(fromMillis) : null;
+        LocalDateTime to = toMillis != null ? toDateTime(toMillis) : null;
+        return rollupRepository.findBySensorId(sensorId)
+                .filter(rollup -> from == null || !rollup.getBucketStart().isBefore(from))
+                .filter(rollup -> to == null || rollup.getBucketStart().isBefore(to))
+                .sorted(Comparator.comparing(SensorRollup::getBucketStart))
+                .collect(Collectors.toList());
+    }
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void flushClosedBuckets() {
+        flush(System.currentTimeMillis() - graceSeconds * 1000L);
+    }
+
+    private void flush(long cutoff) {
+        long bucketMillis = rollupSeconds * 1000L;
+        long previousCutoff = lastFlushCutoff;
+        for (BucketKey key : new ArrayList<>(rollups.keySet())) {
+            if (key.bucketStart() + bucketMillis > cutoff) {
+                continue;
+            }
+            RollupAccumulator rollup = rollups.remove(key);
+            if (rollup != null) {
+                // Samples that arrived after their bucket was already persisted are merged into it
+                boolean late = key.bucketStart() + bucketMillis <= previousCutoff;
+                persist(rollup, late);
+            }
+        }
+        lastFlushCutoff = cutoff;
+    }
+
+    private void persist(RollupAccumulator rollup, boolean late) {
+        IOTSensor sensor = sensors.get(rollup.getSensorId());
+        SensorRollup document = SensorRollup.builder()
+                .sensorId(rollup.getSensorId())
+                .stationId(sensor != null ? sensor.getStationId() : null)
+                .sensorType(sensor != null ? sensor.getSensorType() : null)
+                .bucketStart(toDateTime(rollup.getBucketStart()))
+                .bucketSeconds(rollupSeconds)
+                .count(rollup.getCount())
+                .min(rollup.getMin())
+                .max(rollup.getMax())
+                .sum(rollup.getSum())
+                .last(rollup.getLast())
+                .lastTimestamp(rollup.getLastTimestamp())
+                .build();
+        document.generateId(rollup.getBucketStart());
+
+        if (late) {
+            Optional<SensorRollup> existing = rollupRepository.findById(document.getRollupId());
+            if (existing.isPresent()) {
+                SensorRollup previous = existing.get();
+                document.setCount(document.getCount() + previous.getCount());
+                document.setMin(Math.min(document.getMin(), previous.getMin()));
+                document.setMax(Math.max(document.getMax(), previous.getMax()));
+                document.setSum(document.getSum() + previous.getSum());
+                // A late batch may still hold older samples than the persisted one
+                if (previous.getLastTimestamp() != null && previous.getLastTimestamp() > document.getLastTimestamp()) {
+                    document.setLast(previous.getLast());
+                    document.setLastTimestamp(previous.getLastTimestamp());
+                }
+            }
+        }
+        rollupRepository.save(document);
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
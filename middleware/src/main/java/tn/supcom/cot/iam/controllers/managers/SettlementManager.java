@@ -0,0 +1,196 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.repositories.PaymentRepository;
+import tn.supcom.cot.iam.controllers.settlement.PaymentProvider;
+import tn.supcom.cot.iam.controllers.settlement.SettlementResult;
+import tn.supcom.cot.iam.entities.Payment;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Settles PENDING payments with the payment provider in bulk: payments are grouped per payment
+ * method and sent in batches of settlement.batch.size. A batch the provider fails on stays
+ * PENDING and its payment method is retried with exponential backoff. Payments without a payment
+ * method can never be settled and are REJECTED. Payments stored before settlement existed carry
+ * no status and are marked PENDING at startup.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SettlementManager {
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private PaymentRepository paymentRepository;
+
+    @Inject
+    private PaymentProvider paymentProvider;
+
+    @Inject
+    private UsageRollupManager usageRollupManager;
+
+    @Inject
+    private MongoDatabase database;
+
+    @Inject
+    @ConfigProperty(name = "settlement.batch.size", defaultValue = "50")
+    private Integer batchSize;
+
+    @Inject
+    @ConfigProperty(name = "settlement.scan.limit", defaultValue = "1000")
+    private Integer scanLimit;
+
+    private MongoCollection<Document> payments;
+    // Payment methods the provider failed on, skipped until their backoff has elapsed
+    private final Map<String, Backoff> failing = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        payments = database.getCollection(Payment.class.getSimpleName());
+        long marked = payments.updateMany(Filters.eq("settlementStatus", null),
+                Updates.set("settlementStatus", "PENDING")).getModifiedCount();
+        if (marked > 0) {
+            logger.info("Marked " + marked + " payments without a settlement status as PENDING");
+        }
+    }
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void scheduledSettlement() {
+        settlePending();
+    }
+
+    public synchronized int settlePending() {
+        long now = System.currentTimeMillis();
+        // Payments of a backing-off method don't count against the scan limit, so a failing
+        // method can't starve the others; method-less ones leave PENDING below
+        List<Payment> scanned = paymentRepository.findBySettlementStatus("PENDING")
+                .filter(payment -> payment.getPaymentMethodId() == null || !isBackingOff(payment.getPaymentMethodId(), now))
+                .limit(scanLimit)
+                .collect(Collectors.toList());
+
+        Map<String, List<Payment>> byMethod = new HashMap<>();
+        int unsettleable = 0;
+        for (Payment payment : scanned) {
+            if (payment.getPaymentMethodId() == null) {
+                // Nothing to charge, it would stay PENDING forever
+                if (markSettled(payment.getPaymentId(), "REJECTED", null, LocalDateTime.now())) {
+                    unsettleable++;
+                }
+                continue;
+            }
+            byMethod.computeIfAbsent(payment.getPaymentMethodId(), method -> new ArrayList<>()).add(payment);
+        }
+        if (unsettleable > 0) {
+            logger.warning("Rejected " + unsettleable + " PENDING payments without a payment method");
+        }
+
+        int settled = 0;
+        for (Map.Entry<String, List<Payment>> entry : byMethod.entrySet()) {
+            List<Payment> pending = entry.getValue();
+            for (int from = 0; from < pending.size(); from += batchSize) {
+                List<Payment> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+                int count = settle(entry.getKey(), batch);
+                if (count < 0) {
+                    break; // the rest of this method waits for its backoff
+                }
+                settled += count;
+            }
+        }
+        if (!byMethod.isEmpty()) {
+            logger.info("Settled " + settled + " payments across " + byMethod.size() + " payment methods");
+        }
+        return settled;
+    }
+
+    private boolean isBackingOff(String paymentMethodId, long now) {
+        Backoff backoff = failing.get(paymentMethodId);
+        return backoff != null && backoff.retryAt > now;
+    }
+
+    // Returns the number of settled payments, or -1 when the provider failed
+    private int settle(String paymentMethodId, List<Payment> batch) {
+        SettlementResult result;
+        try {
+            result = paymentProvider.settle(paymentMethodId, batch);
+        } catch (IOException | RuntimeException e) {
+            Backoff backoff = failing.computeIfAbsent(paymentMethodId, method -> new Backoff());
+            backoff.failed();
+            logger.log(Level.WARNING, "Settlement of " + batch.size() + " payments for " + paymentMethodId
+                    + " failed " + backoff.failures + " times in a row, retrying in "
+                    + (backoff.retryAt - System.currentTimeMillis()) / 1000 + " s", e);
+            return -1;
+        }
+        failing.remove(paymentMethodId);
+
+        Set<String> rejected = result.getRejectedPaymentIds() != null
+                ? new HashSet<>(result.getRejectedPaymentIds()) : Set.of();
+        LocalDateTime now = LocalDateTime.now();
+        List<Payment> settled = new ArrayList<>(batch.size());
+        for (Payment payment : batch) {
+            String status = rejected.contains(payment.getPaymentId()) ? "REJECTED" : "SETTLED";
+            if (!markSettled(payment.getPaymentId(), status, result.getBatchReference(), now)) {
+                continue; // settled by another node or deleted meanwhile
+            }
+            payment.setSettlementStatus(status);
+            payment.setSettlementBatchId(result.getBatchReference());
+            payment.setSettledAt(now);
+            if ("SETTLED".equals(status)) {
+                settled.add(payment);
+            }
+        }
+        usageRollupManager.onPaymentsSettled(settled);
+        return settled.size();
+    }
+
+    // Writes only the settlement fields, and only while the payment is still PENDING, so an
+    // edit made through PaymentManager since the scan is never overwritten
+    private boolean markSettled(String paymentId, String status, String batchId, LocalDateTime settledAt) {
+        return payments.updateOne(
+                Filters.and(Filters.eq("_id", paymentId), Filters.eq("settlementStatus", "PENDING")),
+                Updates.combine(
+                        Updates.set("settlementStatus", status),
+                        Updates.set("settlementBatchId", batchId),
+                        Updates.set("settledAt", settledAt))).getModifiedCount() > 0;
+    }
+
+    // Exponential backoff of a failing payment method, from one minute up to an hour
+    private static final class Backoff {
+        private static final long BASE_MILLIS = 60_000;
+        private static final long MAX_MILLIS = 3_600_000;
+
+        private int failures;
+        private long retryAt;
+
+        private void failed() {
+            failures++;
+            retryAt = System.currentTimeMillis() + Math.min(MAX_MILLIS, BASE_MILLIS << Math.min(failures - 1, 6));
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.repositories.PaymentRepository;
+import tn.supcom.cot.iam.controllers.repositories.SpendingAggregateRepository;
+import tn.supcom.cot.iam.entities.Payment;
+import tn.supcom.cot.iam.entities.SpendingAggregate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Payment totals per payment method, per user and per day, updated by PaymentManager on every
+ * payment write so billing pages and finance reports read one document instead of summing all
+ * payments. Amounts are added in whole cents. All aggregates are rebuilt from the payments at
+ * startup and only moved by deltas afterwards. Payment edits and deletions are saved here, under
+ * the singleton write lock, so the amount an edit is measured against is the one it replaces and
+ * not one a concurrent edit already replaced.
+ */
+@Startup
+@Singleton
+@LocalBean
+public class SpendingAggregateManager {
+
+    public static final String METHOD = "METHOD";
+    public static final String USER = "USER";
+    public static final String DAY = "DAY";
+
+    @Inject
+    private SpendingAggregateRepository aggregateRepository;
+
+    @Inject
+    private PaymentRepository paymentRepository;
+
+    private final Map<String, SpendingAggregate> aggregates = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Map<String, SpendingAggregate> fresh = new HashMap<>();
+        paymentRepository.findAll().forEach(payment -> {
+            count(fresh, METHOD, payment.getPaymentMethodId(), payment);
+            count(fresh, USER, payment.getUserId(), payment);
+            count(fresh, DAY, day(payment), payment);
+        });
+        aggregateRepository.findAll().forEach(stored -> {
+            if (!fresh.containsKey(stored.getAggregateId())) {
+                aggregateRepository.deleteById(stored.getAggregateId());
+            }
+        });
+        fresh.values().forEach(this::save);
+    }
+
+    // Aggregates appear with a key's first payment, so an unknown method, user or day spent nothing
+    @Lock(LockType.READ)
+    public SpendingAggregate getAggregate(String scope, String scopeKey) {
+        SpendingAggregate aggregate = aggregates.get(SpendingAggregate.generateId(scope, scopeKey));
+        return aggregate != null ? aggregate : empty(scope, scopeKey);
+    }
+
+    @Lock(LockType.READ)
+    public List<SpendingAggregate> getAggregates(String scope) {
+        return aggregates.values().stream()
+                .filter(aggregate -> scope == null || scope.equals(aggregate.getScope()))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    public void onPaymentCreated(Payment payment) {
+        onPaymentChanged(null, payment);
+    }
+
+    /**
+     * Saves an edited payment and moves its totals by the difference with the stored one. The
+     * settlement fields are kept as stored: they are only ever written by SettlementManager.
+     */
+    public Payment update(Payment payment) {
+        Payment stored = paymentRepository.findById(payment.getPaymentId()).orElse(null);
+        if (stored != null) {
+            payment.setSettlementStatus(stored.getSettlementStatus());
+            payment.setSettlementBatchId(stored.getSettlementBatchId());
+            payment.setSettledAt(stored.getSettledAt());
+        }
+        Payment saved = paymentRepository.save(payment);
+        onPaymentChanged(stored, saved);
+        return saved;
+    }
+
+    // Returns false when the payment was not stored
+    public boolean delete(String paymentId) {
+        Payment stored = paymentRepository.findById(paymentId).orElse(null);
+        if (stored == null) {
+            return false;
+        }
+        paymentRepository.deleteById(paymentId);
+        onPaymentChanged(stored, null);
+        return true;
+    }
+
+    // A payment counts in three totals: its method's, its payer's and its day's
+    private void onPaymentChanged(Payment before, Payment after) {
+        apply(METHOD, before != null ? before.getPaymentMethodId() : null,
+                after != null ? after.getPaymentMethodId() : null, before, after);
+        apply(USER, before != null ? before.getUserId() : null,
+                after != null ? after.getUserId() : null, before, after);
+        apply(DAY, day(before), day(after), before, after);
+    }
+
+    private void apply(String scope, String oldKey, String newKey, Payment before, Payment after) {
+        if (oldKey != null && oldKey.equals(newKey)) {
+            add(scope, oldKey, cents(after) - cents(before), 0);
+            return;
+        }
+        if (oldKey != null) {
+            add(scope, oldKey, -cents(before), -1);
+        }
+        if (newKey != null) {
+            add(scope, newKey, cents(after), 1);
+        }
+    }
+
+    private void add(String scope, String scopeKey, long cents, long count) {
+        SpendingAggregate aggregate = aggregates.get(SpendingAggregate.generateId(scope, scopeKey));
+        if (aggregate == null) {
+            aggregate = empty(scope, scopeKey);
+        }
+        if (cents == 0 && count == 0) {
+            return;
+        }
+        save(SpendingAggregate.builder()
+                .aggregateId(aggregate.getAggregateId())
+                .scope(scope)
+                .scopeKey(scopeKey)
+                .totalCents(aggregate.getTotalCents() + cents)
+                .paymentCount(Math.max(0L, aggregate.getPaymentCount() + count))
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    private static void count(Map<String, SpendingAggregate> fresh, String scope, String scopeKey, Payment payment) {
+        if (scopeKey == null) {
+            return;
+        }
+        SpendingAggregate aggregate = fresh.computeIfAbsent(SpendingAggregate.generateId(scope, scopeKey),
+                id -> empty(scope, scopeKey));
+        aggregate.setTotalCents(aggregate.getTotalCents() + cents(payment));
+        aggregate.setPaymentCount(aggregate.getPaymentCount() + 1);
+    }
+
+    private static SpendingAggregate empty(String scope, String scopeKey) {
+        return SpendingAggregate.builder()
+                .aggregateId(SpendingAggregate.generateId(scope, scopeKey))
+                .scope(scope)
+                .scopeKey(scopeKey)
+                .totalCents(0L)
+                .paymentCount(0L)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private SpendingAggregate save(SpendingAggregate aggregate) {
+        SpendingAggregate saved = aggregateRepository.save(aggregate);
+        aggregates.put(saved.getAggregateId(), saved);
+        return saved;
+    }
+
+    public static long cents(Payment payment) {
+        return payment != null ? cents(payment.getAmount()) : 0L;
+    }
+
+    // Amounts are stored as floats; their shortest decimal form is what the rider was charged
+    public static long cents(Float amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return new BigDecimal(Float.toString(amount))
+                .setScale(2, RoundingMode.HALF_EVEN)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    private static String day(Payment payment) {
+        return payment != null && payment.getDateTime() != null
+                ? Objects.toString(payment.getDateTime().toLocalDate()) : null;
+    }
+}
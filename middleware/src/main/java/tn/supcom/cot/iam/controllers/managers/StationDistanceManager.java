@@ -0,0 +1,109 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.geo.DistanceMatrix;
+import tn.supcom.cot.iam.controllers.geo.StationDistance;
+import tn.supcom.cot.iam.controllers.repositories.StationRepository;
+import tn.supcom.cot.iam.entities.Station;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Station-to-station distance matrix built once from the station coordinates and patched when
+ * StationManager saves a station, so suggestions, price estimates and rebalancing read distances
+ * instead of computing haversines per request. Queries share the read lock; updates take the
+ * singleton write lock.
+ */
+@Startup
+@Singleton
+@LocalBean
+public class StationDistanceManager {
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private StationRepository stationRepository;
+
+    @Inject
+    @ConfigProperty(name = "geo.bike.speed.kmh", defaultValue = "15")
+    private Double bikeSpeedKmh;
+
+    private final DistanceMatrix matrix = new DistanceMatrix(256);
+
+    @PostConstruct
+    public void init() {
+        long start = System.nanoTime();
+        stationRepository.findAll().forEach(this::onStationSaved);
+        logger.info("Station distance matrix built for " + matrix.size() + " stations in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    public void onStationSaved(Station station) {
+        if (station == null || station.getStationId() == null) {
+            return;
+        }
+        if (station.getLatitude() == null || station.getLongitude() == null) {
+            matrix.remove(station.getStationId());
+            return;
+        }
+        matrix.put(station.getStationId(), station.getLatitude(), station.getLongitude());
+    }
+
+    @Lock(LockType.READ)
+    public boolean hasStation(String stationId) {
+        return matrix.indexOf(stationId) >= 0;
+    }
+
+    // null when either station has no coordinates
+    @Lock(LockType.READ)
+    public StationDistance getDistance(String fromStationId, String toStationId) {
+        float km = matrix.distance(fromStationId, toStationId);
+        return Float.isNaN(km) ? null : toStationDistance(toStationId, km);
+    }
+
+    @Lock(LockType.READ)
+    public List<StationDistance> getNearestStations(String stationId, int k) {
+        int slot = matrix.indexOf(stationId);
+        if (slot < 0) {
+            return List.of();
+        }
+        List<StationDistance> nearest = new ArrayList<>(k);
+        for (int other : matrix.nearest(slot, k)) {
+            nearest.add(toStationDistance(matrix.idAt(other), matrix.distance(slot, other)));
+        }
+        return nearest;
+    }
+
+    @Lock(LockType.READ)
+    public List<StationDistance> getNearestStations(float latitude, float longitude, int k) {
+        List<StationDistance> nearest = new ArrayList<>(k);
+        for (int other : matrix.nearest(latitude, longitude, k)) {
+            nearest.add(toStationDistance(matrix.idAt(other), matrix.distanceFrom(latitude, longitude, other)));
+        }
+        return nearest;
+    }
+
+    // Dense distances between the given stations, in that order, for planners working on indexes
+    @Lock(LockType.READ)
+    public float[] getDistances(String[] stationIds) {
+        return matrix.submatrix(stationIds);
+    }
+
+    private StationDistance toStationDistance(String stationId, float km) {
+        return StationDistance.builder()
+                .stationId(stationId)
+                .distanceKm(km)
+                .travelMinutes((float) (km / bikeSpeedKmh * 60.0))
+                .build();
+    }
+}
@@ -20,6 +20,9 @@ public class StationManager {
     @Inject
     private BikeManager bikeManager;
 
+    @Inject
+    private StationDistanceManager stationDistanceManager;
+
     public Set<Station> getStationByStationId(String stationId) {
         return stationRepository.findById(stationId)
                 .map(Set::of)
@@ -32,11 +35,15 @@ public class StationManager {
 
     public Station createStation(Station station) {
         station.generateId();
-        return stationRepository.save(station);
+        Station saved = stationRepository.save(station);
+        stationDistanceManager.onStationSaved(saved);
+        return saved;
     }
 
     public Station updateStation(Station station) {
-        return stationRepository.save(station);
+        Station saved = stationRepository.save(station);
+        stationDistanceManager.onStationSaved(saved);
+        return saved;
     }
 
     public Station updateAvailableBikes(Integer availableBikes, String stationId) {
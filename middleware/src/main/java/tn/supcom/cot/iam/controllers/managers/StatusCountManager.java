@@ -0,0 +1,77 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import tn.supcom.cot.iam.controllers.reporting.StatusCounts;
+import tn.supcom.cot.iam.controllers.repositories.DamageRepository;
+import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
+import tn.supcom.cot.iam.controllers.status.DamageStatus;
+import tn.supcom.cot.iam.controllers.status.RentalStatus;
+
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Rentals and damages per status, kept current by the managers that change a status and
+ * recounted from MongoDB every ten minutes to pick up writes from other nodes. Bike counts live
+ * in FleetStateManager.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class StatusCountManager {
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private RentalRepository rentalRepository;
+
+    @Inject
+    private DamageRepository damageRepository;
+
+    private volatile StatusCounts<RentalStatus> rentals = new StatusCounts<>(RentalStatus.class);
+    private volatile StatusCounts<DamageStatus> damages = new StatusCounts<>(DamageStatus.class);
+
+    @PostConstruct
+    public void init() {
+        recount();
+    }
+
+    // Changes made while the scan runs are counted on the old counters and show up at the next recount
+    @Schedule(hour = "*", minute = "*/10", persistent = false)
+    public void recount() {
+        long start = System.nanoTime();
+        StatusCounts<RentalStatus> freshRentals = new StatusCounts<>(RentalStatus.class);
+        rentalRepository.findAll().forEach(rental -> freshRentals.move(null, RentalStatus.of(rental.getRentalStatus())));
+        StatusCounts<DamageStatus> freshDamages = new StatusCounts<>(DamageStatus.class);
+        damageRepository.findAll().forEach(damage -> freshDamages.move(null, DamageStatus.of(damage.getDamageStatus())));
+        rentals = freshRentals;
+        damages = freshDamages;
+        logger.fine("Status counts rebuilt in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    // null on either side means the rental did not exist before, or no longer exists
+    public void onRentalStatusChanged(RentalStatus from, RentalStatus to) {
+        rentals.move(from, to);
+    }
+
+    public void onDamageStatusChanged(DamageStatus from, DamageStatus to) {
+        damages.move(from, to);
+    }
+
+    public Map<RentalStatus, Long> getRentalCounts() {
+        return rentals.snapshot();
+    }
+
+    public Map<DamageStatus, Long> getDamageCounts() {
+        return damages.snapshot();
+    }
+}
@@ -0,0 +1,255 @@
+package tn.supcom.cot.iam.controllers.managers;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.reporting.RollupKey;
+import tn.supcom.cot.iam.controllers.reporting.UsageTotals;
+import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
+import tn.supcom.cot.iam.controllers.repositories.RollupCheckpointRepository;
+import tn.supcom.cot.iam.controllers.repositories.UsageRollupRepository;
+import tn.supcom.cot.iam.controllers.status.RentalStatus;
+import tn.supcom.cot.iam.entities.Payment;
+import tn.supcom.cot.iam.entities.Rental;
+import tn.supcom.cot.iam.entities.RollupCheckpoint;
+import tn.supcom.cot.iam.entities.UsageRollup;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Hourly utilization and revenue rollups per station, per bike and for the whole fleet.
+ * Completed rentals are read past a checkpointed watermark in end-time order, aggregated in
+ * parallel one chunk at a time, and added to the stored rollups; each rollup remembers the last
+ * chunk it received so a chunk replayed after a crash is not counted twice. Revenue is booked
+ * separately when a rental's payment settles, into the hour its ride started: most rentals are
+ * priced by their payment only after they passed the watermark.
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UsageRollupManager {
+
+    public static final String STATION = "STATION";
+    public static final String BIKE = "BIKE";
+    public static final String FLEET = "FLEET";
+
+    private static final String JOB = "usage-rollup";
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private RentalRepository rentalRepository;
+
+    @Inject
+    private UsageRollupRepository rollupRepository;
+
+    @Inject
+    private RollupCheckpointRepository checkpointRepository;
+
+    @Inject
+    @ConfigProperty(name = "rollup.chunk.size", defaultValue = "5000")
+    private Integer chunkSize;
+
+    // Rentals ending this close to now may still be in flight, they wait for the next run
+    @Inject
+    @ConfigProperty(name = "rollup.lag.seconds", defaultValue = "120")
+    private Integer lagSeconds;
+
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    public void scheduledRollup() {
+        run();
+    }
+
+    public synchronized RollupCheckpoint run() {
+        RollupCheckpoint checkpoint = checkpointRepository.findById(JOB).orElseGet(() -> RollupCheckpoint.builder()
+                .jobName(JOB)
+                .watermark(BEGINNING)
+                .watermarkRentalIds(new ArrayList<>())
+                .chunk(0L)
+                .processedRentals(0L)
+                .build());
+        LocalDateTime upTo = LocalDateTime.now().minusSeconds(lagSeconds);
+        Set<String> atWatermark = new HashSet<>(checkpoint.getWatermarkRentalIds() != null
+                ? checkpoint.getWatermarkRentalIds() : List.of());
+
+        List<Rental> pending = rentalRepository.findByEndDateTimeGreaterThanEqual(checkpoint.getWatermark())
+                .filter(rental -> RentalStatus.of(rental.getRentalStatus()) == RentalStatus.COMPLETED)
+                .filter(rental -> !rental.getEndDateTime().isAfter(upTo))
+                .filter(rental -> !(rental.getEndDateTime().equals(checkpoint.getWatermark())
+                        && atWatermark.contains(rental.getRentalId())))
+                .sorted(Comparator.comparing(Rental::getEndDateTime).thenComparing(Rental::getRentalId))
+                .collect(Collectors.toList());
+
+        long start = System.nanoTime();
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<Rental> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+            long chunkNumber = checkpoint.getChunk() + 1;
+            apply(aggregate(chunk), chunkNumber);
+
+            LocalDateTime watermark = chunk.get(chunk.size() - 1).getEndDateTime();
+            if (!watermark.equals(checkpoint.getWatermark())) {
+                atWatermark.clear();
+            }
+            chunk.stream()
+                    .filter(rental -> rental.getEndDateTime().equals(watermark))
+                    .forEach(rental -> atWatermark.add(rental.getRentalId()));
+            checkpoint.setWatermark(watermark);
+            checkpoint.setWatermarkRentalIds(new ArrayList<>(atWatermark));
+            checkpoint.setChunk(chunkNumber);
+            checkpoint.setProcessedRentals(checkpoint.getProcessedRentals() + chunk.size());
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+        }
+        if (!pending.isEmpty()) {
+            logger.info("Rolled up " + pending.size() + " rentals in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms, watermark " + checkpoint.getWatermark());
+        }
+        return checkpoint;
+    }
+
+    // Each worker folds rentals into its own map; maps are merged pairwise when the workers join
+    static Map<RollupKey, UsageTotals> aggregate(List<Rental> rentals) {
+        return rentals.parallelStream().collect(Collector.of(
+                HashMap::new,
+                UsageRollupManager::contribute,
+                (left, right) -> {
+                    right.forEach((key, totals) -> left.merge(key, totals, UsageTotals::merge));
+                    return left;
+                }));
+    }
+
+    private static void contribute(Map<RollupKey, UsageTotals> totals, Rental rental) {
+        LocalDateTime startHour = hour(rental.getStartDateTime() != null ? rental.getStartDateTime() : rental.getEndDateTime());
+        LocalDateTime endHour = hour(rental.getEndDateTime());
+
+        for (RollupKey key : rideKeys(rental, startHour)) {
+            totals.computeIfAbsent(key, k -> new UsageTotals()).addRide(rental.getDuration(), rental.getDistanceTraveled());
+        }
+        if (rental.getEndStationId() != null) {
+            totals.computeIfAbsent(new RollupKey(STATION, rental.getEndStationId(), endHour), k -> new UsageTotals())
+                    .addReturn();
+        }
+    }
+
+    // The fleet, the bike and the start station, all in the hour the ride started
+    private static List<RollupKey> rideKeys(Rental rental, LocalDateTime startHour) {
+        List<RollupKey> keys = new ArrayList<>(3);
+        keys.add(new RollupKey(FLEET, "ALL", startHour));
+        if (rental.getBikeId() != null) {
+            keys.add(new RollupKey(BIKE, rental.getBikeId(), startHour));
+        }
+        if (rental.getStartStationId() != null) {
+            keys.add(new RollupKey(STATION, rental.getStartStationId(), startHour));
+        }
+        return keys;
+    }
+
+    // Settlement marks each payment SETTLED once, so each one is booked once
+    public synchronized void onPaymentsSettled(List<Payment> payments) {
+        Map<RollupKey, Long> revenue = new HashMap<>();
+        for (Payment payment : payments) {
+            Optional<Rental> rental = payment.getRentalId() != null
+                    ? rentalRepository.findById(payment.getRentalId())
+                    : rentalRepository.findByPaymentId(payment.getPaymentId()).findFirst();
+            if (rental.isEmpty()) {
+                continue;
+            }
+            LocalDateTime startedAt = rental.get().getStartDateTime() != null ? rental.get().getStartDateTime()
+                    : rental.get().getEndDateTime() != null ? rental.get().getEndDateTime() : payment.getDateTime();
+            if (startedAt == null) {
+                continue;
+            }
+            long cents = SpendingAggregateManager.cents(payment.getAmount());
+            for (RollupKey key : rideKeys(rental.get(), hour(startedAt))) {
+                revenue.merge(key, cents, Long::sum);
+            }
+        }
+        List<UsageRollup> changed = new ArrayList<>(revenue.size());
+        revenue.forEach((key, cents) -> {
+            UsageRollup rollup = load(key);
+            rollup.setRevenueCents(rollup.getRevenueCents() + cents);
+            changed.add(rollup);
+        });
+        if (!changed.isEmpty()) {
+            rollupRepository.saveAll(changed);
+        }
+    }
+
+    private UsageRollup load(RollupKey key) {
+        long bucketMillis = key.bucketStart().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        UsageRollup probe = UsageRollup.builder().dimension(key.dimension()).key(key.key()).build();
+        probe.generateId(bucketMillis);
+        return rollupRepository.findById(probe.getRollupId()).orElseGet(() -> UsageRollup.builder()
+                .rollupId(probe.getRollupId())
+                .dimension(key.dimension())
+                .key(key.key())
+                .bucketStart(key.bucketStart())
+                .rides(0L)
+                .returns(0L)
+                .rideMinutes(0L)
+                .distance(0.0)
+                .revenueCents(0L)
+                .build());
+    }
+
+    private void apply(Map<RollupKey, UsageTotals> totals, long chunkNumber) {
+        List<UsageRollup> changed = new ArrayList<>(totals.size());
+        totals.forEach((key, sums) -> {
+            UsageRollup rollup = load(key);
+            if (rollup.getAppliedChunk() != null && rollup.getAppliedChunk() >= chunkNumber) {
+                return;
+            }
+            rollup.setRides(rollup.getRides() + sums.getRides());
+            rollup.setReturns(rollup.getReturns() + sums.getReturns());
+            rollup.setRideMinutes(rollup.getRideMinutes() + sums.getRideMinutes());
+            rollup.setDistance(rollup.getDistance() + sums.getDistance());
+            rollup.setAppliedChunk(chunkNumber);
+            changed.add(rollup);
+        });
+        rollupRepository.saveAll(changed);
+    }
+
+    public List<UsageRollup> getRollups(String dimension, String key, Long fromMillis, Long toMillis) {
+        LocalDateTime from = fromMillis != null ? toDateTime(fromMillis) : null;
+        LocalDateTime to = toMillis != null ? toDateTime(toMillis) : null;
+        return rollupRepository.findByDimensionAndKey(dimension, key)
+                .filter(rollup -> from == null || !rollup.getBucketStart().isBefore(from))
+                .filter(rollup -> to == null || rollup.getBucketStart().isBefore(to))
+                .sorted(Comparator.comparing(UsageRollup::getBucketStart))
+                .collect(Collectors.toList());
+    }
+
+    public RollupCheckpoint getCheckpoint() {
+        return checkpointRepository.findById(JOB).orElse(null);
+    }
+
+    private static LocalDateTime hour(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,99 @@
+package tn.supcom.cot.iam.controllers.rebalancing;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Successive shortest paths min-cost max-flow over an edge-list graph with primitive arrays.
+ * Paths are found with SPFA so residual edges with negative cost are handled; graphs here are
+ * a few hundred nodes and tens of thousands of edges.
+ */
+public class MinCostFlow {
+
+    public static final long INFINITE = Long.MAX_VALUE / 4;
+
+    private final int nodes;
+    private final int[] head;
+    private final int[] next;
+    private final int[] to;
+    private final long[] capacity;
+    private final long[] cost;
+    private int edges;
+
+    public MinCostFlow(int nodes, int maxEdges) {
+        this.nodes = nodes;
+        this.head = new int[nodes];
+        Arrays.fill(head, -1);
+        // Every edge is stored with its residual twin
+        this.next = new int[2 * maxEdges];
+        this.to = new int[2 * maxEdges];
+        this.capacity = new long[2 * maxEdges];
+        this.cost = new long[2 * maxEdges];
+    }
+
+    // Returns the edge index, to read its flow back after solve
+    public int addEdge(int from, int target, long edgeCapacity, long edgeCost) {
+        int edge = edges;
+        link(from, target, edgeCapacity, edgeCost);
+        link(target, from, 0, -edgeCost);
+        return edge;
+    }
+
+    private void link(int from, int target, long edgeCapacity, long edgeCost) {
+        to[edges] = target;
+        capacity[edges] = edgeCapacity;
+        cost[edges] = edgeCost;
+        next[edges] = head[from];
+        head[from] = edges++;
+    }
+
+    public long flow(int edge) {
+        return capacity[edge ^ 1];
+    }
+
+    // Returns {flow, cost}
+    public long[] solve(int source, int sink) {
+        long totalFlow = 0;
+        long totalCost = 0;
+        long[] distance = new long[nodes];
+        int[] viaEdge = new int[nodes];
+        boolean[] queued = new boolean[nodes];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        while (true) {
+            Arrays.fill(distance, INFINITE);
+            Arrays.fill(viaEdge, -1);
+            distance[source] = 0;
+            queue.add(source);
+            queued[source] = true;
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                queued[node] = false;
+                for (int edge = head[node]; edge != -1; edge = next[edge]) {
+                    if (capacity[edge] > 0 && distance[node] + cost[edge] < distance[to[edge]]) {
+                        distance[to[edge]] = distance[node] + cost[edge];
+                        viaEdge[to[edge]] = edge;
+                        if (!queued[to[edge]]) {
+                            queue.add(to[edge]);
+                            queued[to[edge]] = true;
+                        }
+                    }
+                }
+            }
+            if (distance[sink] == INFINITE) {
+                return new long[]{totalFlow, totalCost};
+            }
+
+            long push = INFINITE;
+            for (int node = sink; node != source; node = to[viaEdge[node] ^ 1]) {
+                push = Math.min(push, capacity[viaEdge[node]]);
+            }
+            for (int node = sink; node != source; node = to[viaEdge[node] ^ 1]) {
+                capacity[viaEdge[node]] -= push;
+                capacity[viaEdge[node] ^ 1] += push;
+            }
+            totalFlow += push;
+            totalCost += push * distance[sink];
+        }
+    }
+}
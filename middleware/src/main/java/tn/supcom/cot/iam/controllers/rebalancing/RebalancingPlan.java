@@ -0,0 +1,23 @@
+package tn.supcom.cot.iam.controllers.rebalancing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RebalancingPlan {
+    private LocalDateTime generatedAt;
+    private List<Transfer> transfers;
+    private List<TruckRoute> routes;
+    private Integer bikesMoved;
+    private Integer unmetDemand; // bikes still missing at short stations once all surplus is used
+    private Float totalDistanceKm;
+    private Long computeMillis;
+}
@@ -0,0 +1,281 @@
+package tn.supcom.cot.iam.controllers.rebalancing;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Plans truck moves from stations with spare bikes to stations heading for a shortage.
+ * A min-cost flow decides which station feeds which at the lowest total distance; the resulting
+ * transfers are then split over the trucks and ordered with a nearest-neighbour tour improved by
+ * 2-opt. Several clusterings, each seeded from a different transfer, are evaluated one after the
+ * other on the calling thread and the shortest plan wins.
+ */
+public class RebalancingPlanner {
+
+    private static final int MAX_IMPROVEMENT_PASSES = 50;
+
+    private final int trucks;
+    private final int truckCapacity;
+    private final int candidates;
+
+    public RebalancingPlanner(int trucks, int truckCapacity, int candidates) {
+        this.trucks = Math.max(1, trucks);
+        this.truckCapacity = Math.max(1, truckCapacity);
+        this.candidates = Math.max(1, candidates);
+    }
+
+    /**
+     * @param stationIds station of each matrix index
+     * @param balance    bikes each station can give (positive) or needs (negative)
+     * @param distances  row-major n x n distances in km
+     */
+    public RebalancingPlan plan(String[] stationIds, int[] balance, float[] distances) {
+        long start = System.nanoTime();
+        int n = stationIds.length;
+
+        // 1. Min-cost flow: source -> giving stations -> needing stations -> sink
+        int[] givers = IntStream.range(0, n).filter(i -> balance[i] > 0).toArray();
+        int[] takers = IntStream.range(0, n).filter(i -> balance[i] < 0).toArray();
+        int source = 0;
+        int sink = 1;
+        MinCostFlow network = new MinCostFlow(2 + givers.length + takers.length,
+                givers.length + takers.length + givers.length * takers.length);
+        for (int g = 0; g < givers.length; g++) {
+            network.addEdge(source, 2 + g, balance[givers[g]], 0);
+        }
+        for (int t = 0; t < takers.length; t++) {
+            network.addEdge(2 + givers.length + t, sink, -balance[takers[t]], 0);
+        }
+        int[][] links = new int[givers.length][takers.length];
+        for (int g = 0; g < givers.length; g++) {
+            for (int t = 0; t < takers.length; t++) {
+                long meters = Math.round(distances[givers[g] * n + takers[t]] * 1000.0);
+                links[g][t] = network.addEdge(2 + g, 2 + givers.length + t, MinCostFlow.INFINITE, meters);
+            }
+        }
+        long moved = network.solve(source, sink)[0];
+
+        List<Transfer> transfers = new ArrayList<>();
+        List<int[]> tasks = new ArrayList<>(); // {from, to, bikes}, each fitting in one truck load
+        for (int g = 0; g < givers.length; g++) {
+            for (int t = 0; t < takers.length; t++) {
+                int bikes = (int) network.flow(links[g][t]);
+                if (bikes <= 0) {
+                    continue;
+                }
+                int from = givers[g];
+                int to = takers[t];
+                transfers.add(Transfer.builder()
+                        .fromStationId(stationIds[from])
+                        .toStationId(stationIds[to])
+                        .bikes(bikes)
+                        .distanceKm(distances[from * n + to])
+                        .build());
+                for (int left = bikes; left > 0; left -= truckCapacity) {
+                    tasks.add(new int[]{from, to, Math.min(left, truckCapacity)});
+                }
+            }
+        }
+        int needed = -Arrays.stream(takers).map(i -> balance[i]).sum();
+
+        // 2. Routing: best of several seeded clusterings
+        int[][] taskArray = tasks.toArray(new int[0][]);
+        int[][] best = IntStream.range(0, Math.min(candidates, Math.max(1, taskArray.length)))
+                .mapToObj(seed -> route(taskArray, distances, n, seed))
+                .min(Comparator.comparingDouble(orders -> totalLength(orders, taskArray, distances, n)))
+                .orElse(new int[0][]);
+
+        List<TruckRoute> routes = new ArrayList<>();
+        double total = 0;
+        for (int truck = 0; truck < best.length; truck++) {
+            if (best[truck].length == 0) {
+                continue;
+            }
+            List<RouteStop> stops = new ArrayList<>(best[truck].length * 2);
+            for (int task : best[truck]) {
+                int[] move = taskArray[task];
+                stops.add(RouteStop.builder().stationId(stationIds[move[0]]).action("PICKUP").bikes(move[2]).build());
+                stops.add(RouteStop.builder().stationId(stationIds[move[1]]).action("DROP").bikes(move[2]).build());
+            }
+            double length = length(best[truck], taskArray, distances, n);
+            total += length;
+            routes.add(TruckRoute.builder()
+                    .truck(truck + 1)
+                    .stops(stops)
+                    .distanceKm((float) length)
+                    .build());
+        }
+
+        return RebalancingPlan.builder()
+                .generatedAt(LocalDateTime.now())
+                .transfers(transfers)
+                .routes(routes)
+                .bikesMoved((int) moved)
+                .unmetDemand((int) Math.max(0, needed - moved))
+                .totalDistanceKm((float) total)
+                .computeMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    // Task order per truck for one seeding of the clusters
+    private int[][] route(int[][] tasks, float[] distances, int n, int firstSeed) {
+        int count = tasks.length;
+        int groups = Math.min(trucks, count);
+        if (groups == 0) {
+            return new int[0][];
+        }
+
+        // Seeds spread out farthest-first from the given task's pickup
+        int[] seeds = new int[groups];
+        seeds[0] = firstSeed;
+        double[] nearestSeed = new double[count];
+        Arrays.fill(nearestSeed, Double.MAX_VALUE);
+        for (int s = 1; s < groups; s++) {
+            int farthest = -1;
+            for (int task = 0; task < count; task++) {
+                nearestSeed[task] = Math.min(nearestSeed[task], pickupGap(tasks, seeds[s - 1], task, distances, n));
+                if (farthest < 0 || nearestSeed[task] > nearestSeed[farthest]) {
+                    farthest = task;
+                }
+            }
+            seeds[s] = farthest;
+        }
+
+        // Balanced assignment: closest tasks pick their seed first, no truck gets more than its share
+        int share = (count + groups - 1) / groups;
+        Integer[] order = new Integer[count];
+        double[] closest = new double[count];
+        for (int task = 0; task < count; task++) {
+            order[task] = task;
+            closest[task] = Double.MAX_VALUE;
+            for (int seed : seeds) {
+                closest[task] = Math.min(closest[task], pickupGap(tasks, seed, task, distances, n));
+            }
+        }
+        Arrays.sort(order, Comparator.comparingDouble(task -> closest[task]));
+        List<List<Integer>> clusters = new ArrayList<>(groups);
+        for (int g = 0; g < groups; g++) {
+            clusters.add(new ArrayList<>());
+        }
+        for (int task : order) {
+            int chosen = -1;
+            for (int g = 0; g < groups; g++) {
+                if (clusters.get(g).size() < share && (chosen < 0
+                        || pickupGap(tasks, seeds[g], task, distances, n) < pickupGap(tasks, seeds[chosen], task, distances, n))) {
+                    chosen = g;
+                }
+            }
+            clusters.get(chosen).add(task);
+        }
+
+        int[][] orders = new int[groups][];
+        for (int g = 0; g < groups; g++) {
+            orders[g] = improve(nearestNeighbour(clusters.get(g), seeds[g], tasks, distances, n), tasks, distances, n);
+        }
+        return orders;
+    }
+
+    private static int[] nearestNeighbour(List<Integer> cluster, int seed, int[][] tasks, float[] distances, int n) {
+        List<Integer> left = new ArrayList<>(cluster);
+        int[] tour = new int[left.size()];
+        int current = left.contains(seed) ? seed : left.get(0);
+        for (int i = 0; i < tour.length; i++) {
+            left.remove(Integer.valueOf(current));
+            tour[i] = current;
+            int from = tasks[current][1];
+            int nextTask = -1;
+            for (int candidate : left) {
+                if (nextTask < 0 || distances[from * n + tasks[candidate][0]] < distances[from * n + tasks[nextTask][0]]) {
+                    nextTask = candidate;
+                }
+            }
+            current = nextTask;
+        }
+        return tour;
+    }
+
+    // 2-opt over the task order; each task keeps its own pickup-then-drop direction. The pickup and
+    // drop legs never change, so a move is scored from the gaps it touches: the two boundary gaps
+    // and the gaps inside the reversed run, read from prefix sums in both directions
+    private static int[] improve(int[] tour, int[][] tasks, float[] distances, int n) {
+        int size = tour.length;
+        double[] forward = new double[size];
+        double[] backward = new double[size];
+        gapSums(tour, tasks, distances, n, forward, backward);
+        for (int pass = 0; pass < MAX_IMPROVEMENT_PASSES; pass++) {
+            boolean improved = false;
+            for (int i = 0; i < size - 1; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    double before = forward[j] - forward[i];
+                    double after = backward[j] - backward[i];
+                    if (i > 0) {
+                        before += gap(tasks, tour[i - 1], tour[i], distances, n);
+                        after += gap(tasks, tour[i - 1], tour[j], distances, n);
+                    }
+                    if (j + 1 < size) {
+                        before += gap(tasks, tour[j], tour[j + 1], distances, n);
+                        after += gap(tasks, tour[i], tour[j + 1], distances, n);
+                    }
+                    if (after + 1e-6 < before) {
+                        reverse(tour, i, j);
+                        gapSums(tour, tasks, distances, n, forward, backward);
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved) {
+                break;
+            }
+        }
+        return tour;
+    }
+
+    // forward[k]: gaps from tour[0] to tour[k] in tour order, backward[k]: the same gaps driven the other way
+    private static void gapSums(int[] tour, int[][] tasks, float[] distances, int n, double[] forward, double[] backward) {
+        for (int k = 1; k < tour.length; k++) {
+            forward[k] = forward[k - 1] + gap(tasks, tour[k - 1], tour[k], distances, n);
+            backward[k] = backward[k - 1] + gap(tasks, tour[k], tour[k - 1], distances, n);
+        }
+    }
+
+    // Empty drive from one task's drop to the next task's pickup
+    private static double gap(int[][] tasks, int from, int to, float[] distances, int n) {
+        return distances[tasks[from][1] * n + tasks[to][0]];
+    }
+
+    private static void reverse(int[] tour, int i, int j) {
+        for (; i < j; i++, j--) {
+            int swap = tour[i];
+            tour[i] = tour[j];
+            tour[j] = swap;
+        }
+    }
+
+    private static double length(int[] tour, int[][] tasks, float[] distances, int n) {
+        double length = 0;
+        for (int i = 0; i < tour.length; i++) {
+            int[] move = tasks[tour[i]];
+            length += distances[move[0] * n + move[1]];
+            if (i + 1 < tour.length) {
+                length += gap(tasks, tour[i], tour[i + 1], distances, n);
+            }
+        }
+        return length;
+    }
+
+    private static double totalLength(int[][] orders, int[][] tasks, float[] distances, int n) {
+        double total = 0;
+        for (int[] tour : orders) {
+            total += length(tour, tasks, distances, n);
+        }
+        return total;
+    }
+
+    private static double pickupGap(int[][] tasks, int a, int b, float[] distances, int n) {
+        return distances[tasks[a][0] * n + tasks[b][0]];
+    }
+}
@@ -0,0 +1,16 @@
+package tn.supcom.cot.iam.controllers.rebalancing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteStop {
+    private String stationId;
+    private String action; // PICKUP, DROP
+    private Integer bikes;
+}
@@ -0,0 +1,18 @@
+package tn.supcom.cot.iam.controllers.rebalancing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Bikes to move from a station with surplus to a station heading for a shortage
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Transfer {
+    private String fromStationId;
+    private String toStationId;
+    private Integer bikes;
+    private Float distanceKm;
+}
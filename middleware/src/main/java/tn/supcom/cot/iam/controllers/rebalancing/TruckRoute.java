@@ -0,0 +1,18 @@
+package tn.supcom.cot.iam.controllers.rebalancing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TruckRoute {
+    private Integer truck;
+    private List<RouteStop> stops;
+    private Float distanceKm;
+}
@@ -0,0 +1,7 @@
+package tn.supcom.cot.iam.controllers.reporting;
+
+import java.time.LocalDateTime;
+
+// Identifies one UsageRollup document while a chunk is being aggregated
+public record RollupKey(String dimension, String key, LocalDateTime bucketStart) {
+}
@@ -0,0 +1,40 @@
+package tn.supcom.cot.iam.controllers.reporting;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Number of records in each status, one slot per enum ordinal; null stands for "no record"
+public class StatusCounts<E extends Enum<E>> {
+    private final Class<E> type;
+    private final AtomicLongArray counts;
+
+    public StatusCounts(Class<E> type) {
+        this.type = type;
+        this.counts = new AtomicLongArray(type.getEnumConstants().length);
+    }
+
+    public void move(E from, E to) {
+        if (from == to) {
+            return;
+        }
+        if (from != null) {
+            counts.decrementAndGet(from.ordinal());
+        }
+        if (to != null) {
+            counts.incrementAndGet(to.ordinal());
+        }
+    }
+
+    public long get(E status) {
+        return counts.get(status.ordinal());
+    }
+
+    public Map<E, Long> snapshot() {
+        Map<E, Long> snapshot = new EnumMap<>(type);
+        for (E status : type.getEnumConstants()) {
+            snapshot.put(status, counts.get(status.ordinal()));
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,30 @@
+package tn.supcom.cot.iam.controllers.reporting;
+
+import lombok.Getter;
+
+// Mutable partial sums for one rollup key; each aggregation thread owns its own and they are merged at the end
+@Getter
+public class UsageTotals {
+    private long rides;
+    private long returns;
+    private long rideMinutes;
+    private double distance;
+
+    public void addRide(Integer minutes, Float distanceTraveled) {
+        rides++;
+        rideMinutes += minutes != null ? minutes : 0;
+        distance += distanceTraveled != null ? distanceTraveled : 0f;
+    }
+
+    public void addReturn() {
+        returns++;
+    }
+
+    public UsageTotals merge(UsageTotals other) {
+        rides += other.rides;
+        returns += other.returns;
+        rideMinutes += other.rideMinutes;
+        distance += other.distance;
+        return this;
+    }
+}
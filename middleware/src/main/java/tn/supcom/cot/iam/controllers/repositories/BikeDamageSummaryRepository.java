@@ -0,0 +1,9 @@
+package tn.supcom.cot.iam.controllers.repositories;
+
+import jakarta.data.repository.CrudRepository;
+import jakarta.data.repository.Repository;
+import tn.supcom.cot.iam.entities.BikeDamageSummary;
+
+@Repository
+public interface BikeDamageSummaryRepository extends CrudRepository<BikeDamageSummary, String> {
+}
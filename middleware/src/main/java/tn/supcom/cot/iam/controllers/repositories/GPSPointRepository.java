@@ -4,6 +4,14 @@ import jakarta.data.repository.CrudRepository;
 import jakarta.data.repository.Repository;
 import tn.supcom.cot.iam.entities.GPSPoint;
 
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface GPSPointRepository extends CrudRepository<GPSPoint, String> {
+    Stream<GPSPoint> findByRentalId(String rentalId);
+    Stream<GPSPoint> findByBikeIdAndTimestampBetween(String bikeId, LocalDateTime start, LocalDateTime end);
+    Stream<GPSPoint> findByTimestampGreaterThanEqualAndTimestampLessThan(LocalDateTime from, LocalDateTime to);
+    Optional<GPSPoint> findFirstByTimestampGreaterThanEqualOrderByTimestampAsc(LocalDateTime from);
 }
@@ -0,0 +1,13 @@
+package tn.supcom.cot.iam.controllers.repositories;
+
+import jakarta.data.repository.CrudRepository;
+import jakarta.data.repository.Repository;
+import tn.supcom.cot.iam.entities.GeofenceEvent;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface GeofenceEventRepository extends CrudRepository<GeofenceEvent, String> {
+    Stream<GeofenceEvent> findByRentalId(String rentalId);
+    Stream<GeofenceEvent> findByZoneId(String zoneId);
+}
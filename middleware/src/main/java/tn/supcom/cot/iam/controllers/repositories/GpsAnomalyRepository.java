@@ -0,0 +1,13 @@
+package tn.supcom.cot.iam.controllers.repositories;
+
+import jakarta.data.repository.CrudRepository;
+import jakarta.data.repository.Repository;
+import tn.supcom.cot.iam.entities.GpsAnomaly;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface GpsAnomalyRepository extends CrudRepository<GpsAnomaly, String> {
+    Stream<GpsAnomaly> findByBikeId(String bikeId);
+    Stream<GpsAnomaly> findByAnomalyType(String anomalyType);
+}
@@ -0,0 +1,13 @@
+package tn.supcom.cot.iam.controllers.repositories;
+
+import jakarta.data.repository.CrudRepository;
+import jakarta.data.repository.Repository;
+import tn.supcom.cot.iam.entities.IOTSensor;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface IOTSensorRepository extends CrudRepository<IOTSensor, String> {
+    Stream<IOTSensor> findByStationId(String stationId);
+    Stream<IOTSensor> findBySensorType(String sensorType);
+}
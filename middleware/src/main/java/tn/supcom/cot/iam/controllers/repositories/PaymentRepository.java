@@ -9,4 +9,5 @@ import java.util.stream.Stream;
 @Repository
 public interface PaymentRepository extends CrudRepository<Payment,String> {
     Stream<Payment> findByPaymentMethodId(String paymentMethodId);
+    Stream<Payment> findBySettlementStatus(String settlementStatus);
 }
@@ -4,6 +4,7 @@ import jakarta.data.repository.CrudRepository;
 import jakarta.data.repository.Repository;
 import tn.supcom.cot.iam.entities.Rental;
 
+import java.time.LocalDateTime;
 import java.util.stream.Stream;
 
 @Repository
@@ -13,4 +14,8 @@ public interface RentalRepository extends CrudRepository<Rental,String> {
     Stream<Rental> findByRentalStatus(String status);
     Stream<Rental> findByStartStationId(String startStationId);
     Stream<Rental> findByEndStationId(String endStationId);
+    Stream<Rental> findByOutboxStatus(String outboxStatus);
+    Stream<Rental> findByPaymentId(String paymentId);
+    Stream<Rental> findByEndDateTimeGreaterThanEqual(LocalDateTime endDateTime);
+    Stream<Rental> findByStartDateTimeGreaterThanEqual(LocalDateTime startDateTime);
 }
@@ -0,0 +1,9 @@
+package tn.supcom.cot.iam.controllers.repositories;
+
+import jakarta.data.repository.CrudRepository;
+import jakarta.data.repository.Repository;
+import tn.supcom.cot.iam.entities.RideTrace;
+
+@Repository
+public interface RideTraceRepository extends CrudRepository<RideTrace, String> {
+}
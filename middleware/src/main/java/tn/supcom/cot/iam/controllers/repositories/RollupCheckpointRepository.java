@@ -0,0 +1,9 @@
+package tn.supcom.cot.iam.controllers.repositories;
+
+import jakarta.data.repository.CrudRepository;
+import jakarta.data.repository.Repository;
+import tn.supcom.cot.iam.entities.RollupCheckpoint;
+
+@Repository
+public interface RollupCheckpointRepository extends CrudRepository<RollupCheckpoint, String> {
+}
@@ -0,0 +1,15 @@
+package tn.supcom.cot.iam.controllers.repositories;
+
+import jakarta.data.repository.CrudRepository;
+import jakarta.data.repository.Repository;
+import tn.supcom.cot.iam.entities.SensorRollup;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface SensorRollupRepository extends CrudRepository<SensorRollup, String> {
+    Stream<SensorRollup> findBySensorId(String sensorId);
+    Stream<SensorRollup> findByStationId(String stationId);
+    Optional<SensorRollup> findFirstByOrderByBucketStartDesc();
+}
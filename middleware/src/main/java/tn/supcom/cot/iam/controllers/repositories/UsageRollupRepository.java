@@ -0,0 +1,12 @@
+package tn.supcom.cot.iam.controllers.repositories;
+
+import jakarta.data.repository.CrudRepository;
+import jakarta.data.repository.Repository;
+import tn.supcom.cot.iam.entities.UsageRollup;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface UsageRollupRepository extends CrudRepository<UsageRollup, String> {
+    Stream<UsageRollup> findByDimensionAndKey(String dimension, String key);
+}
@@ -0,0 +1,9 @@
+package tn.supcom.cot.iam.controllers.repositories;
+
+import jakarta.data.repository.CrudRepository;
+import jakarta.data.repository.Repository;
+import tn.supcom.cot.iam.entities.Zone;
+
+@Repository
+public interface ZoneRepository extends CrudRepository<Zone, String> {
+}
@@ -0,0 +1,113 @@
+package tn.supcom.cot.iam.controllers.scheduling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timer wheel: deadlines are hashed by tick into a fixed ring of buckets, each bucket
+ * being a doubly linked list. Scheduling and cancelling are O(1); advancing only visits the
+ * buckets of the elapsed ticks, so tens of thousands of pending deadlines cost nothing while
+ * they wait. A key can only be scheduled once; rescheduling replaces its deadline.
+ */
+public class TimerWheel<K> {
+
+    private static final class Node<K> {
+        private final K key;
+        private final long deadlineTick;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickMillis;
+    private final int mask;
+    private final Node<K>[] buckets;
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = (Node<K>[]) new Node[wheelSize];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        // Anything already due fires on the next advance
+        long tick = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        Node<K> node = new Node<>(key, tick);
+        int index = (int) (tick & mask);
+        node.next = buckets[index];
+        if (node.next != null) {
+            node.next.prev = node;
+        }
+        buckets[index] = node;
+        nodes.put(key, node);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    // Removes and returns every key whose deadline is at or before nowMillis
+    public synchronized List<K> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<K> expired = new ArrayList<>();
+        if (nowTick <= currentTick) {
+            return expired;
+        }
+        // After a long pause every bucket is visited once instead of every elapsed tick
+        long steps = Math.min(nowTick - currentTick, buckets.length);
+        for (long t = nowTick - steps + 1; t <= nowTick; t++) {
+            Node<K> node = buckets[(int) (t & mask)];
+            while (node != null) {
+                Node<K> next = node.next;
+                if (node.deadlineTick <= nowTick) {
+                    unlink(node);
+                    nodes.remove(node.key);
+                    expired.add(node.key);
+                }
+                node = next;
+            }
+        }
+        currentTick = nowTick;
+        return expired;
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            buckets[(int) (node.deadlineTick & mask)] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+}
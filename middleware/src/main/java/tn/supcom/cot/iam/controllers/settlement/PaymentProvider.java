@@ -0,0 +1,15 @@
+package tn.supcom.cot.iam.controllers.settlement;
+
+import tn.supcom.cot.iam.entities.Payment;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Settles payments with the card processor. Payments arrive grouped by payment method so the
+ * provider is called once per batch rather than once per payment.
+ */
+public interface PaymentProvider {
+
+    SettlementResult settle(String paymentMethodId, List<Payment> payments) throws IOException;
+}
@@ -0,0 +1,18 @@
+package tn.supcom.cot.iam.controllers.settlement;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Provider answer for one settlement batch
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementResult {
+    private String batchReference;
+    private List<String> rejectedPaymentIds;
+}
@@ -0,0 +1,29 @@
+package tn.supcom.cot.iam.controllers.settlement;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import tn.supcom.cot.iam.entities.Payment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Provider that accepts every payment with a non-negative amount, until a real processor is wired in.
+ */
+@ApplicationScoped
+public class StubPaymentProvider implements PaymentProvider {
+
+    @Override
+    public SettlementResult settle(String paymentMethodId, List<Payment> payments) {
+        List<String> rejected = new ArrayList<>();
+        for (Payment payment : payments) {
+            if (payment.getAmount() == null || payment.getAmount() < 0) {
+                rejected.add(payment.getPaymentId());
+            }
+        }
+        return SettlementResult.builder()
+                .batchReference("STL-" + UUID.randomUUID())
+                .rejectedPaymentIds(rejected)
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package tn.supcom.cot.iam.controllers.status;
+
+public enum BikeStatus {
+    AVAILABLE,   // docked and rentable if its battery allows
+    RESERVED,    // held by a reservation or an ongoing rental
+    IN_USE,      // taken off its dock, as reported by the station
+    DOCKED,      // reported back on a dock, not yet released for rent
+    MAINTENANCE, // pulled from the fleet for repair
+    OTHER;       // missing or unrecognised status string
+
+    private static final StatusLifecycle<BikeStatus> LIFECYCLE = new StatusLifecycle<>(BikeStatus.class, OTHER, "bike")
+            .allow(AVAILABLE, RESERVED, IN_USE, MAINTENANCE)
+            .allow(RESERVED, AVAILABLE, IN_USE, MAINTENANCE)
+            .allow(IN_USE, DOCKED, AVAILABLE, MAINTENANCE)
+            .allow(DOCKED, AVAILABLE, RESERVED, IN_USE, MAINTENANCE)
+            .allow(MAINTENANCE, AVAILABLE, DOCKED);
+
+    public static BikeStatus of(String status) {
+        return LIFECYCLE.of(status);
+    }
+
+    public static void checkTransition(String from, String to) {
+        LIFECYCLE.check(from, to);
+    }
+}
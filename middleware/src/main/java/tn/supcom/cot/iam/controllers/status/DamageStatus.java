@@ -0,0 +1,20 @@
+package tn.supcom.cot.iam.controllers.status;
+
+public enum DamageStatus {
+    DETECTED,  // reported by inference or a rider, not yet checked
+    CONFIRMED, // checked by an operator
+    REPAIRED,  // fixed, no longer counts against the bike
+    OTHER;     // missing or unrecognised status string
+
+    private static final StatusLifecycle<DamageStatus> LIFECYCLE = new StatusLifecycle<>(DamageStatus.class, OTHER, "damage")
+            .allow(DETECTED, CONFIRMED, REPAIRED)
+            .allow(CONFIRMED, REPAIRED);
+
+    public static DamageStatus of(String status) {
+        return LIFECYCLE.of(status);
+    }
+
+    public static void checkTransition(String from, String to) {
+        LIFECYCLE.check(from, to);
+    }
+}
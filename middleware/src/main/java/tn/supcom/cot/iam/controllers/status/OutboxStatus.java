@@ -0,0 +1,16 @@
+package tn.supcom.cot.iam.controllers.status;
+
+// Status of a rental's outbox and of each effect in it
+public enum OutboxStatus {
+    PENDING, // waiting for its first attempt or its next retry
+    DONE,    // ran successfully
+    FAILED,  // used up outbox.max.attempts, left for an operator
+    OTHER;   // missing or unrecognised status string
+
+    private static final StatusLifecycle<OutboxStatus> LIFECYCLE = new StatusLifecycle<>(OutboxStatus.class, OTHER, "outbox")
+            .allow(PENDING, DONE, FAILED);
+
+    public static OutboxStatus of(String status) {
+        return LIFECYCLE.of(status);
+    }
+}
@@ -0,0 +1,26 @@
+package tn.supcom.cot.iam.controllers.status;
+
+public enum RentalStatus {
+    RESERVED,  // bike held for the rider until the reservation expires
+    ACTIVE,    // ride in progress
+    COMPLETED, // ride ended at a station
+    EXPIRED,   // reservation not started in time
+    OTHER;     // missing or unrecognised status string, e.g. rentals created through POST /rentals
+
+    private static final StatusLifecycle<RentalStatus> LIFECYCLE = new StatusLifecycle<>(RentalStatus.class, OTHER, "rental")
+            .allow(RESERVED, ACTIVE, EXPIRED)
+            .allow(ACTIVE, COMPLETED);
+
+    public static RentalStatus of(String status) {
+        return LIFECYCLE.of(status);
+    }
+
+    public static void checkTransition(String from, String to) {
+        LIFECYCLE.check(from, to);
+    }
+
+    // A rental that still holds its bike
+    public boolean isOpen() {
+        return this == RESERVED || this == ACTIVE;
+    }
+}
@@ -0,0 +1,69 @@
+package tn.supcom.cot.iam.controllers.status;
+
+import tn.supcom.cot.iam.controllers.errors.ConflictException;
+import tn.supcom.cot.iam.controllers.errors.InvalidRequestException;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Parsing and allowed moves of a status enum. Statuses are stored as their name; a missing or
+ * unrecognised string parses to the enum's catch-all value, and a record in that state may move to
+ * any known status once, so documents written before statuses were checked can be corrected.
+ */
+public class StatusLifecycle<E extends Enum<E>> {
+
+    private final String record;
+    private final E unknown;
+    private final Map<String, E> byName = new HashMap<>();
+    private final Map<E, Set<E>> next;
+
+    public StatusLifecycle(Class<E> type, E unknown, String record) {
+        this.record = record;
+        this.unknown = unknown;
+        this.next = new EnumMap<>(type);
+        for (E value : type.getEnumConstants()) {
+            next.put(value, EnumSet.noneOf(type));
+            if (value != unknown) {
+                byName.put(value.name(), value);
+            }
+        }
+        next.put(unknown, EnumSet.complementOf(EnumSet.of(unknown)));
+    }
+
+    @SafeVarargs
+    public final StatusLifecycle<E> allow(E from, E... to) {
+        next.get(from).addAll(Set.of(to));
+        return this;
+    }
+
+    public E of(String status) {
+        return status != null ? byName.getOrDefault(status, unknown) : unknown;
+    }
+
+    public boolean canMove(E from, E to) {
+        return from == to || next.get(from).contains(to);
+    }
+
+    // Keeping the stored status, whatever it is, is always allowed
+    public void check(String from, String to) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        E target = of(to);
+        if (target == unknown) {
+            throw new InvalidRequestException("Unknown " + record + " status: " + to);
+        }
+        if (!canMove(of(from), target)) {
+            throw new ConflictException(capitalized() + " cannot go from " + from + " to " + to);
+        }
+    }
+
+    private String capitalized() {
+        return Character.toUpperCase(record.charAt(0)) + record.substring(1);
+    }
+}
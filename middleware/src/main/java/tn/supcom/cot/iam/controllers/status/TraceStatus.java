@@ -0,0 +1,15 @@
+package tn.supcom.cot.iam.controllers.status;
+
+// Status of a rental's stored RideTrace
+public enum TraceStatus {
+    OPEN,   // ride in progress, the trace still grows
+    CLOSED, // ride ended, the trace is final
+    OTHER;  // missing or unrecognised status string
+
+    private static final StatusLifecycle<TraceStatus> LIFECYCLE = new StatusLifecycle<>(TraceStatus.class, OTHER, "trace")
+            .allow(OPEN, CLOSED);
+
+    public static TraceStatus of(String status) {
+        return LIFECYCLE.of(status);
+    }
+}
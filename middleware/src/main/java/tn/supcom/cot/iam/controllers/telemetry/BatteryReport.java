@@ -0,0 +1,15 @@
+package tn.supcom.cot.iam.controllers.telemetry;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatteryReport {
+    private String bikeId;
+    private Integer batteryLevel;
+}
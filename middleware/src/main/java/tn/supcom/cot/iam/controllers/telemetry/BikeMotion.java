@@ -0,0 +1,139 @@
+package tn.supcom.cot.iam.controllers.telemetry;
+
+import tn.supcom.cot.iam.controllers.geo.GeoMath;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Rolling motion state of one bike, a fixed handful of fields whatever the number of fixes:
+ * last fix, speed and heading, where it was parked and which alerts are already raised.
+ * Not thread-safe, callers synchronize.
+ */
+public class BikeMotion {
+
+    // A bike "jumping" this many fixes in a row really is somewhere else, e.g. on a service truck
+    private static final int JUMPS_BEFORE_FOLLOWING = 3;
+
+    private boolean started;
+    private double latitude;
+    private double longitude;
+    private long time;
+    private double speedKmh;
+    private double headingDegrees;
+    private boolean riding;
+    private int jumpsInRow;
+
+    private boolean parked;
+    private double parkedLatitude;
+    private double parkedLongitude;
+    private boolean driftRaised;
+    private boolean gapRaised;
+
+    // Returns the anomalies this fix shows; MOVING_WHILE_PARKED still needs the bike's status confirmed
+    public Set<GpsAnomalyType> update(double lat, double lon, long epochMillis, boolean inRide,
+                                      double maxSpeedKmh, long maxGapMillis, double parkedDriftMeters) {
+        Set<GpsAnomalyType> found = EnumSet.noneOf(GpsAnomalyType.class);
+        if (!started) {
+            started = true;
+            moveTo(lat, lon, epochMillis, inRide);
+            return found;
+        }
+        long elapsed = epochMillis - time;
+        if (elapsed <= 0) {
+            return found; // late or duplicate fix
+        }
+        if (riding && elapsed > maxGapMillis && !gapRaised) {
+            found.add(GpsAnomalyType.SIGNAL_GAP);
+        }
+        gapRaised = false;
+
+        double km = GeoMath.haversineKm(latitude, longitude, lat, lon);
+        double kmh = km / (elapsed / 3_600_000.0);
+        if (kmh > maxSpeedKmh) {
+            found.add(GpsAnomalyType.IMPOSSIBLE_SPEED);
+            if (++jumpsInRow < JUMPS_BEFORE_FOLLOWING) {
+                return found; // keep the last good fix as reference
+            }
+        }
+        jumpsInRow = 0;
+        if (km * 1000 >= 5) {
+            // Bearing from the previous fix, 0 = north, clockwise
+            double phi1 = Math.toRadians(latitude);
+            double phi2 = Math.toRadians(lat);
+            double dLon = Math.toRadians(lon - longitude);
+            double y = Math.sin(dLon) * Math.cos(phi2);
+            double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dLon);
+            headingDegrees = (Math.toDegrees(Math.atan2(y, x)) + 360) % 360;
+        }
+        speedKmh = kmh;
+
+        if (!inRide && parked && !driftRaised
+                && GeoMath.haversineKm(parkedLatitude, parkedLongitude, lat, lon) * 1000 > parkedDriftMeters) {
+            found.add(GpsAnomalyType.MOVING_WHILE_PARKED);
+            driftRaised = true;
+        }
+        moveTo(lat, lon, epochMillis, inRide);
+        return found;
+    }
+
+    private void moveTo(double lat, double lon, long epochMillis, boolean inRide) {
+        latitude = lat;
+        longitude = lon;
+        time = epochMillis;
+        riding = inRide;
+        if (inRide) {
+            parked = false;
+        } else if (!parked) {
+            // First fix after a ride (or ever): this is where the bike was left
+            parked = true;
+            parkedLatitude = lat;
+            parkedLongitude = lon;
+            driftRaised = false;
+        }
+    }
+
+    // For the scheduled sweep: a riding bike whose tracker stopped reporting, raised once per gap
+    public boolean silentSince(long nowMillis, long maxGapMillis) {
+        if (started && riding && !gapRaised && nowMillis - time > maxGapMillis) {
+            gapRaised = true;
+            return true;
+        }
+        return false;
+    }
+
+    // The ride ended: no more silence alerts, and the next fix is where the bike was left
+    public void endRide() {
+        riding = false;
+        parked = false;
+    }
+
+    // The bike turned out not to be AVAILABLE (maintenance, moved by staff): re-anchor at its next fix
+    public void clearDrift() {
+        parked = false;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public double getSpeedKmh() {
+        return speedKmh;
+    }
+
+    public double getHeadingDegrees() {
+        return headingDegrees;
+    }
+
+    public boolean isRiding() {
+        return riding;
+    }
+}
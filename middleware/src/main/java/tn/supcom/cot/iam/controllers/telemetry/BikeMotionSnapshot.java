@@ -0,0 +1,21 @@
+package tn.supcom.cot.iam.controllers.telemetry;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BikeMotionSnapshot {
+    private String bikeId;
+    private Double latitude;
+    private Double longitude;
+    private LocalDateTime lastFixAt;
+    private Double speedKmh;
+    private Double headingDegrees;
+    private Boolean riding;
+}
@@ -0,0 +1,7 @@
+package tn.supcom.cot.iam.controllers.telemetry;
+
+public enum GpsAnomalyType {
+    IMPOSSIBLE_SPEED,    // jump between two fixes no bike can make, usually a tracker fault
+    MOVING_WHILE_PARKED, // an AVAILABLE bike drifting away from where it was left, possible theft
+    SIGNAL_GAP           // a tracker that went silent for too long
+}
@@ -0,0 +1,62 @@
+package tn.supcom.cot.iam.controllers.telemetry;
+
+// Running min/max/sum/count of one sensor over one time bucket
+public class RollupAccumulator {
+
+    private final String sensorId;
+    private final long bucketStart;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sum;
+    private double last;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    public RollupAccumulator(String sensorId, long bucketStart) {
+        this.sensorId = sensorId;
+        this.bucketStart = bucketStart;
+    }
+
+    public synchronized void add(long timestamp, double value) {
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+        if (timestamp >= lastTimestamp) {
+            lastTimestamp = timestamp;
+            last = value;
+        }
+    }
+
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    public long getBucketStart() {
+        return bucketStart;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMin() {
+        return min;
+    }
+
+    public synchronized double getMax() {
+        return max;
+    }
+
+    public synchronized double getSum() {
+        return sum;
+    }
+
+    public synchronized double getLast() {
+        return last;
+    }
+
+    public synchronized long getLastTimestamp() {
+        return lastTimestamp;
+    }
+}
@@ -0,0 +1,17 @@
+package tn.supcom.cot.iam.controllers.telemetry;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One sample as sent by a station gateway; lock state and dock occupancy are reported as 0/1
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorReading {
+    private String sensorId;
+    private Double value;
+    private Long timestamp; // epoch millis, defaults to reception time
+}
@@ -0,0 +1,49 @@
+package tn.supcom.cot.iam.controllers.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size buffer of the latest readings of one sensor, stored in primitive arrays
+ * so high-frequency samples do not allocate per reading.
+ */
+public class SensorRingBuffer {
+
+    private final long[] timestamps;
+    private final double[] values;
+    private int next;
+    private int size;
+
+    public SensorRingBuffer(int capacity) {
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    public synchronized void add(long timestamp, double value) {
+        timestamps[next] = timestamp;
+        values[next] = value;
+        next = (next + 1) % timestamps.length;
+        if (size < timestamps.length) {
+            size++;
+        }
+    }
+
+    // Newest first
+    public synchronized List<SensorReading> latest(String sensorId, int limit) {
+        int count = Math.min(Math.max(limit, 0), size);
+        List<SensorReading> readings = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            int index = (next - i + timestamps.length) % timestamps.length;
+            readings.add(SensorReading.builder()
+                    .sensorId(sensorId)
+                    .value(values[index])
+                    .timestamp(timestamps[index])
+                    .build());
+        }
+        return readings;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
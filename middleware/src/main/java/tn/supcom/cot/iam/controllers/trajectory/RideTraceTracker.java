@@ -0,0 +1,270 @@
+package tn.supcom.cot.iam.controllers.trajectory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import tn.supcom.cot.iam.controllers.events.RentalEvent;
+import tn.supcom.cot.iam.controllers.events.RentalEventConsumer;
+import tn.supcom.cot.iam.controllers.geo.GeoKernel;
+import tn.supcom.cot.iam.controllers.geo.GeoPoints;
+import tn.supcom.cot.iam.controllers.managers.GpsHistoryManager;
+import tn.supcom.cot.iam.controllers.repositories.RentalRepository;
+import tn.supcom.cot.iam.controllers.repositories.RideTraceRepository;
+import tn.supcom.cot.iam.controllers.status.RentalStatus;
+import tn.supcom.cot.iam.controllers.status.TraceStatus;
+import tn.supcom.cot.iam.entities.GPSPoint;
+import tn.supcom.cot.iam.entities.RideTrace;
+import tn.supcom.cot.iam.entities.TracePoint;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a TraceSimplifier per ride in progress and stores its output as the rental's RideTrace
+ * every few kept points, so a trace is readable while the ride goes on. Simplifiers are opened
+ * when the rental event log reports the ride STARTED and the trace is closed when it reports the
+ * ride ended, so a fix of a ride without a simplifier is dropped without reading MongoDB. Rides
+ * already ACTIVE at startup have their simplifier rebuilt from their raw fixes on their next fix.
+ * One rental's points, open and close never run concurrently.
+ */
+@ApplicationScoped
+public class RideTraceTracker implements RentalEventConsumer {
+
+    private static final int LOCK_STRIPES = 64;
+
+    @Inject
+    private GpsHistoryManager gpsHistoryManager;
+
+    @Inject
+    private RideTraceRepository rideTraceRepository;
+
+    @Inject
+    private RentalRepository rentalRepository;
+
+    @Inject
+    @ConfigProperty(name = "trajectory.tolerance.meters", defaultValue = "5")
+    private Double toleranceMeters;
+
+    @Inject
+    @ConfigProperty(name = "trajectory.max.speed.kmh", defaultValue = "45")
+    private Double maxSpeedKmh;
+
+    @Inject
+    @ConfigProperty(name = "trajectory.window.size", defaultValue = "200")
+    private Integer windowSize;
+
+    @Inject
+    @ConfigProperty(name = "trajectory.max.rejections", defaultValue = "5")
+    private Integer maxRejections;
+
+    @Inject
+    @ConfigProperty(name = "trajectory.save.every", defaultValue = "20")
+    private Integer saveEvery;
+
+    @Inject
+    @ConfigProperty(name = "trajectory.save.interval.seconds", defaultValue = "30")
+    private Integer saveIntervalSeconds;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<String, TraceSimplifier> open = new ConcurrentHashMap<>();
+    private final Map<String, SavedState> saved = new ConcurrentHashMap<>();
+    // ACTIVE at startup, their STARTED event was consumed before the simplifiers were lost
+    private final Set<String> resumable = ConcurrentHashMap.newKeySet();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // What the stored OPEN trace of a ride holds
+    private record SavedState(int kept, long atMillis) {
+    }
+
+    public RideTraceTracker() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        rentalRepository.findByRentalStatus(RentalStatus.ACTIVE.name())
+                .forEach(rental -> resumable.add(rental.getRentalId()));
+    }
+
+    @Override
+    public String getName() {
+        return "ride-trace";
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public void onEvent(RentalEvent event) {
+        switch (event.getType()) {
+            case STARTED -> open(event.getRentalId());
+            case ENDED, COMPLETED -> close(event.getRentalId());
+            default -> {
+            }
+        }
+    }
+
+    // Called once the fix is stored
+    public void onPoint(GPSPoint point) {
+        if (point.getRentalId() == null || point.getLatitude() == null || point.getLongitude() == null) {
+            return;
+        }
+        String rentalId = point.getRentalId();
+        synchronized (lockFor(rentalId)) {
+            TraceSimplifier simplifier = open.get(rentalId);
+            if (simplifier == null) {
+                // Late fixes of ended rides and fixes naming an unknown rental never open a simplifier
+                if (!resumable.remove(rentalId) || isClosed(rentalId)) {
+                    return;
+                }
+                // The replay already reads this fix from the repository
+                simplifier = replay(rentalId);
+                open.put(rentalId, simplifier);
+            } else {
+                simplifier.offer(point.getLatitude(), point.getLongitude(), millis(point.getTimestamp()));
+            }
+            SavedState last = saved.get(rentalId);
+            int kept = simplifier.keptCount();
+            if (last == null || kept - last.kept() >= saveEvery
+                    || (kept != last.kept() && System.currentTimeMillis() - last.atMillis() >= saveIntervalSeconds * 1000L)) {
+                save(rentalId, simplifier, TraceStatus.OPEN);
+            }
+        }
+    }
+
+    // Fixes stored before the STARTED event got here are replayed; the trace is saved with the next fix
+    public void open(String rentalId) {
+        if (rentalId == null) {
+            return;
+        }
+        synchronized (lockFor(rentalId)) {
+            resumable.remove(rentalId);
+            if (!open.containsKey(rentalId) && !isClosed(rentalId)) {
+                open.put(rentalId, replay(rentalId));
+            }
+        }
+    }
+
+    public void close(String rentalId) {
+        synchronized (lockFor(rentalId)) {
+            resumable.remove(rentalId);
+            TraceSimplifier simplifier = open.remove(rentalId);
+            saved.remove(rentalId);
+            if (simplifier == null) {
+                if (isClosed(rentalId)) {
+                    return;
+                }
+                simplifier = replay(rentalId);
+            }
+            if (simplifier.rawPoints() > 0) {
+                save(rentalId, simplifier, TraceStatus.CLOSED);
+            }
+        }
+    }
+
+    public Optional<RideTrace> getTrace(String rentalId) {
+        synchronized (lockFor(rentalId)) {
+            TraceSimplifier simplifier = open.get(rentalId);
+            if (simplifier != null) {
+                return Optional.of(toTrace(rentalId, simplifier, TraceStatus.OPEN));
+            }
+            Optional<RideTrace> stored = rideTraceRepository.findById(rentalId);
+            if (stored.isPresent()) {
+                return stored;
+            }
+            // Rides recorded before traces existed
+            TraceSimplifier rebuilt = replay(rentalId);
+            if (rebuilt.rawPoints() == 0) {
+                return Optional.empty();
+            }
+            if (isActive(rentalId)) {
+                resumable.remove(rentalId);
+                open.put(rentalId, rebuilt);
+                return Optional.of(toTrace(rentalId, rebuilt, TraceStatus.OPEN));
+            }
+            return Optional.of(save(rentalId, rebuilt, TraceStatus.CLOSED));
+        }
+    }
+
+    private boolean isActive(String rentalId) {
+        return rentalRepository.findById(rentalId)
+                .map(rental -> RentalStatus.of(rental.getRentalStatus()) == RentalStatus.ACTIVE)
+                .orElse(false);
+    }
+
+    private boolean isClosed(String rentalId) {
+        return rideTraceRepository.findById(rentalId)
+                .map(trace -> TraceStatus.of(trace.getStatus()) == TraceStatus.CLOSED)
+                .orElse(false);
+    }
+
+    private Object lockFor(String rentalId) {
+        return locks[Math.floorMod(rentalId.hashCode(), locks.length)];
+    }
+
+    public List<GPSPoint> getRawPoints(String rentalId) {
+        return gpsHistoryManager.findByRentalId(rentalId).stream()
+                .filter(point -> point.getTimestamp() != null)
+                .sorted(Comparator.comparing(GPSPoint::getTimestamp))
+                .collect(Collectors.toList());
+    }
+
+    private TraceSimplifier replay(String rentalId) {
+        TraceSimplifier simplifier = new TraceSimplifier(toleranceMeters, maxSpeedKmh, windowSize, maxRejections);
+        for (GPSPoint point : getRawPoints(rentalId)) {
+            if (point.getLatitude() != null && point.getLongitude() != null) {
+                simplifier.offer(point.getLatitude(), point.getLongitude(), millis(point.getTimestamp()));
+            }
+        }
+        return simplifier;
+    }
+
+    private RideTrace save(String rentalId, TraceSimplifier simplifier, TraceStatus status) {
+        RideTrace trace = rideTraceRepository.save(toTrace(rentalId, simplifier, status));
+        if (status == TraceStatus.OPEN) {
+            saved.put(rentalId, new SavedState(simplifier.keptCount(), System.currentTimeMillis()));
+        }
+        return trace;
+    }
+
+    private RideTrace toTrace(String rentalId, TraceSimplifier simplifier, TraceStatus status) {
+        int size = simplifier.size();
+        List<TracePoint> points = new ArrayList<>(size);
+        GeoPoints path = new GeoPoints(size);
+        for (int i = 0; i < size; i++) {
+            points.add(TracePoint.builder()
+                    .latitude((float) simplifier.latitude(i))
+                    .longitude((float) simplifier.longitude(i))
+                    .timestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(simplifier.time(i)), zone))
+                    .build());
+            path.add(simplifier.latitude(i), simplifier.longitude(i));
+        }
+        return RideTrace.builder()
+                .rentalId(rentalId)
+                .status(status.name())
+                .rawPoints(simplifier.rawPoints())
+                .outliers(simplifier.outliers())
+                .points(points)
+                .lengthKm(GeoKernel.trajectoryLengthKm(path))
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private long millis(LocalDateTime timestamp) {
+        return (timestamp != null ? timestamp : LocalDateTime.now()).atZone(zone).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,163 @@
+package tn.supcom.cot.iam.controllers.trajectory;
+
+import tn.supcom.cot.iam.controllers.geo.GeoMath;
+
+import java.util.Arrays;
+
+/**
+ * Cleans and simplifies one ride's GPS fixes as they arrive. Fixes that go back in time or imply
+ * an impossible speed are dropped as outliers; the rest go through an opening-window
+ * Douglas-Peucker: the window grows from the last kept point while every fix in it stays within
+ * the tolerance of the segment to the newest fix, otherwise the fix before the newest is kept and
+ * opens the next window. Window points are projected to local meters once, on arrival.
+ * Not thread-safe, callers synchronize.
+ */
+public class TraceSimplifier {
+
+    private static final double METERS_PER_RADIAN = GeoMath.EARTH_RADIUS_KM * 1000;
+
+    private final double toleranceMeters;
+    private final double maxSpeedKmh;
+    private final int maxRejections;
+
+    // Kept points
+    private double[] keptLatitudes = new double[16];
+    private double[] keptLongitudes = new double[16];
+    private long[] keptTimes = new long[16];
+    private int kept;
+
+    // Fixes since the last kept point, with their offsets from it in meters
+    private final double[] windowLatitudes;
+    private final double[] windowLongitudes;
+    private final long[] windowTimes;
+    private final double[] windowX;
+    private final double[] windowY;
+    private int windowSize;
+
+    private double lastLatitude;
+    private double lastLongitude;
+    private long lastTime;
+    private int rejectedInRow;
+    private long rawPoints;
+    private long outliers;
+
+    public TraceSimplifier(double toleranceMeters, double maxSpeedKmh, int windowCapacity, int maxRejections) {
+        this.toleranceMeters = toleranceMeters;
+        this.maxSpeedKmh = maxSpeedKmh;
+        this.maxRejections = maxRejections;
+        int capacity = Math.max(2, windowCapacity);
+        windowLatitudes = new double[capacity];
+        windowLongitudes = new double[capacity];
+        windowTimes = new long[capacity];
+        windowX = new double[capacity];
+        windowY = new double[capacity];
+    }
+
+    // Returns false when the fix was dropped as an outlier
+    public boolean offer(double latitude, double longitude, long epochMillis) {
+        rawPoints++;
+        if (kept == 0) {
+            keep(latitude, longitude, epochMillis);
+            remember(latitude, longitude, epochMillis);
+            return true;
+        }
+        if (epochMillis <= lastTime) {
+            outliers++;
+            return false;
+        }
+        double hours = (epochMillis - lastTime) / 3_600_000.0;
+        double km = GeoMath.haversineKm(lastLatitude, lastLongitude, latitude, longitude);
+        // A run of "impossible" fixes means the last accepted one was the bad one, so give in eventually
+        if (km / hours > maxSpeedKmh && rejectedInRow < maxRejections) {
+            rejectedInRow++;
+            outliers++;
+            return false;
+        }
+        rejectedInRow = 0;
+
+        double anchorLatitude = keptLatitudes[kept - 1];
+        double anchorLongitude = keptLongitudes[kept - 1];
+        double x = Math.toRadians(longitude - anchorLongitude) * Math.cos(Math.toRadians(anchorLatitude)) * METERS_PER_RADIAN;
+        double y = Math.toRadians(latitude - anchorLatitude) * METERS_PER_RADIAN;
+        if (windowSize == windowLatitudes.length || !fits(x, y)) {
+            int last = windowSize - 1;
+            keep(windowLatitudes[last], windowLongitudes[last], windowTimes[last]);
+            windowSize = 0;
+            // Re-project the new fix against the point just kept
+            x = Math.toRadians(longitude - keptLongitudes[kept - 1]) * Math.cos(Math.toRadians(keptLatitudes[kept - 1])) * METERS_PER_RADIAN;
+            y = Math.toRadians(latitude - keptLatitudes[kept - 1]) * METERS_PER_RADIAN;
+        }
+        windowLatitudes[windowSize] = latitude;
+        windowLongitudes[windowSize] = longitude;
+        windowTimes[windowSize] = epochMillis;
+        windowX[windowSize] = x;
+        windowY[windowSize] = y;
+        windowSize++;
+        remember(latitude, longitude, epochMillis);
+        return true;
+    }
+
+    // Whether every window fix lies within tolerance of the segment from the anchor (origin) to (x, y)
+    private boolean fits(double x, double y) {
+        double lengthSquared = x * x + y * y;
+        double tolerance = toleranceMeters * toleranceMeters;
+        for (int i = 0; i < windowSize; i++) {
+            double px = windowX[i];
+            double py = windowY[i];
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * x + py * y) / lengthSquared));
+            double dx = px - t * x;
+            double dy = py - t * y;
+            if (dx * dx + dy * dy > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void keep(double latitude, double longitude, long epochMillis) {
+        if (kept == keptLatitudes.length) {
+            keptLatitudes = Arrays.copyOf(keptLatitudes, kept * 2);
+            keptLongitudes = Arrays.copyOf(keptLongitudes, kept * 2);
+            keptTimes = Arrays.copyOf(keptTimes, kept * 2);
+        }
+        keptLatitudes[kept] = latitude;
+        keptLongitudes[kept] = longitude;
+        keptTimes[kept] = epochMillis;
+        kept++;
+    }
+
+    private void remember(double latitude, double longitude, long epochMillis) {
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        lastTime = epochMillis;
+    }
+
+    // Kept points plus the newest accepted fix, which ends the path so far
+    public int size() {
+        return kept + (windowSize > 0 ? 1 : 0);
+    }
+
+    public double latitude(int i) {
+        return i < kept ? keptLatitudes[i] : windowLatitudes[windowSize - 1];
+    }
+
+    public double longitude(int i) {
+        return i < kept ? keptLongitudes[i] : windowLongitudes[windowSize - 1];
+    }
+
+    public long time(int i) {
+        return i < kept ? keptTimes[i] : windowTimes[windowSize - 1];
+    }
+
+    public int keptCount() {
+        return kept;
+    }
+
+    public long rawPoints() {
+        return rawPoints;
+    }
+
+    public long outliers() {
+        return outliers;
+    }
+}
@@ -0,0 +1,34 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class BikeDamageSummary {
+
+    @Id
+    private String bikeId;
+
+    @Column
+    private Float totalRepairCost;
+
+    @Column
+    private Long unrepairedCount;
+
+    @Column
+    private Long damageCount;
+
+    @Column
+    private LocalDateTime lastDetectionDate;
+}
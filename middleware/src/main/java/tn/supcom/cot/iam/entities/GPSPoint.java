@@ -30,4 +30,10 @@ public class GPSPoint {
 
     @Column
     private LocalDateTime timestamp;
+
+    @Column
+    private String rentalId; // ride the fix was reported during, if any
+
+    @Column
+    private String bikeId; // bike whose tracker reported the fix
 }
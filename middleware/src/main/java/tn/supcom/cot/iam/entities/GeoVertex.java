@@ -0,0 +1,24 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Embeddable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One corner of a Zone polygon
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class GeoVertex {
+
+    @Column
+    private Float latitude;
+
+    @Column
+    private Float longitude;
+}
@@ -0,0 +1,55 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A ride entering or leaving a zone, at the first GPS fix seen on the other side of its border
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class GeofenceEvent {
+
+    @Id
+    private String eventId;
+
+    @Column
+    private String rentalId;
+
+    @Column
+    private String zoneId;
+
+    @Column
+    private String zoneName;
+
+    @Column
+    private String zoneType;
+
+    @Column
+    private String eventType; // ENTER or EXIT
+
+    @Column
+    private Float latitude;
+
+    @Column
+    private Float longitude;
+
+    @Column
+    private LocalDateTime timestamp;
+
+    //Id Generation
+    public void generateId() {
+        if (this.eventId == null || this.eventId.isEmpty()) {
+            this.eventId = "GEOFENCE-" + UUID.randomUUID().toString();
+        }
+    }
+}
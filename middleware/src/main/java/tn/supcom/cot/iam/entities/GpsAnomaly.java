@@ -0,0 +1,52 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Suspicious GPS behaviour of a bike, raised by GpsAnomalyManager for the operations team
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class GpsAnomaly {
+
+    @Id
+    private String anomalyId;
+
+    @Column
+    private String bikeId;
+
+    @Column
+    private String rentalId;
+
+    @Column
+    private String anomalyType; // see GpsAnomalyType
+
+    @Column
+    private String detail;
+
+    @Column
+    private Float latitude;
+
+    @Column
+    private Float longitude;
+
+    @Column
+    private LocalDateTime detectedAt;
+
+    //Id Generation
+    public void generateId() {
+        if (this.anomalyId == null || this.anomalyId.isEmpty()) {
+            this.anomalyId = "ANOMALY-" + UUID.randomUUID().toString();
+        }
+    }
+}
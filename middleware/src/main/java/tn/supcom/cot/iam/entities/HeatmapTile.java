@@ -0,0 +1,50 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Ride-point counts of one map tile, keyed by its quadkey
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class HeatmapTile {
+
+    @Id
+    private String quadkey;
+
+    @Column
+    private Integer zoom;
+
+    @Column
+    private Integer x;
+
+    @Column
+    private Integer y;
+
+    @Column
+    private Integer bins;
+
+    @Column
+    private String counts; // deflated, base64-encoded CountGrid
+
+    @Column
+    private Long total;
+
+    @Column
+    private Integer max;
+
+    @Column
+    private LocalDateTime updatedAt;
+
+    @Column
+    private String revision; // changes on every write, compared by concurrent merges
+}
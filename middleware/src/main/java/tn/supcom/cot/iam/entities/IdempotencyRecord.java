@@ -0,0 +1,32 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outcome of a request made under a client Idempotency-Key, replayed when the same key comes back
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class IdempotencyRecord {
+
+    @Id
+    private String idempotencyKey;
+
+    @Column
+    private String fingerprint; // operation and parameters the key was first used with
+
+    @Column
+    private String resultId;
+
+    @Column
+    private LocalDateTime createdAt;
+}
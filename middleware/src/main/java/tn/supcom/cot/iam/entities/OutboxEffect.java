@@ -0,0 +1,42 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Embeddable;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tn.supcom.cot.iam.controllers.status.OutboxStatus;
+
+// Side effect recorded on a rental in the same write as its state change, executed later by RentalOutboxDispatcher
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class OutboxEffect {
+
+    @Column
+    private String type; // RELEASE_BIKE, RECOUNT_STATIONS, CREATE_PAYMENT
+
+    @Column
+    private String status; // PENDING, DONE, FAILED
+
+    @Column
+    private Integer attempts;
+
+    @Column
+    private String lastError;
+
+    @Column
+    private LocalDateTime nextAttemptAt; // null until the first failure
+
+    @Column
+    private LocalDateTime completedAt;
+
+    public static OutboxEffect pending(String type) {
+        return OutboxEffect.builder().type(type).status(OutboxStatus.PENDING.name()).attempts(0).build();
+    }
+}
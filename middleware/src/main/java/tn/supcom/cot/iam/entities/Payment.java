@@ -38,6 +38,21 @@ public class Payment{
     @Column
     private String pricingId;
 
+    @Column
+    private String userId; // payer, copied from the rental or the payment method
+
+    @Column
+    private String rentalId; // rental paid for, null for standalone payments
+
+    @Column
+    private String settlementStatus; // PENDING, SETTLED, REJECTED
+
+    @Column
+    private String settlementBatchId;
+
+    @Column
+    private LocalDateTime settledAt;
+
 
     public void generateId() {
         if (this.paymentId == null || this.paymentId.isEmpty()) {
@@ -0,0 +1,37 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class PhotoUpload {
+
+    @Id
+    private String uploadKey; // folder + "/" + contentHash, the same bytes are stored once per folder
+
+    @Column
+    private String contentHash; // SHA-256 of the uploaded bytes, hex encoded
+
+    @Column
+    private String url;
+
+    @Column
+    private String folder;
+
+    @Column
+    private Long size;
+
+    @Column
+    private LocalDateTime uploadDate;
+}
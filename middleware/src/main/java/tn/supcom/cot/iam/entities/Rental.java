@@ -6,6 +6,7 @@ import jakarta.nosql.Entity;
 import jakarta.nosql.Id;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -23,6 +24,9 @@ public class Rental{
     @Id
     private String rentalId;
 
+    @Column
+    private LocalDateTime reservationDateTime;
+
     @Column
     private LocalDateTime startDateTime;
 
@@ -62,6 +66,12 @@ public class Rental{
     @Column
     private Float totalPrice;
 
+    @Column
+    private List<OutboxEffect> outbox; // pending side effects of the last transition
+
+    @Column
+    private String outboxStatus; // PENDING while any effect is left, then DONE or FAILED
+
     //ID Generation
     public void generateId() {
         if (this.rentalId == null || this.rentalId.isEmpty()) {
@@ -0,0 +1,49 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Embeddable;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One finished ride as shown in the rider's history, embedded in RiderView
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class RideSummary {
+
+    @Column
+    private String rentalId;
+
+    @Column
+    private String bikeId;
+
+    @Column
+    private String startStationId;
+
+    @Column
+    private String endStationId;
+
+    @Column
+    private LocalDateTime startDateTime;
+
+    @Column
+    private LocalDateTime endDateTime;
+
+    @Column
+    private Integer duration;
+
+    @Column
+    private Float distanceTraveled;
+
+    @Column
+    private Float totalPrice;
+
+    @Column
+    private String paymentId;
+}
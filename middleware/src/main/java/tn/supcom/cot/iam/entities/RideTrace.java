@@ -0,0 +1,42 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Simplified path of one ride for replay; the raw fixes stay in GPSPoint, one document per rental
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class RideTrace {
+
+    @Id
+    private String rentalId;
+
+    @Column
+    private String status; // TraceStatus: OPEN while the ride is going, CLOSED once it ended
+
+    @Column
+    private Long rawPoints;
+
+    @Column
+    private Long outliers;
+
+    @Column
+    private List<TracePoint> points;
+
+    @Column
+    private Double lengthKm;
+
+    @Column
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,67 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Denormalized rider page model (totals, active ride card, recent rides), one document per user
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class RiderView {
+
+    @Id
+    private String userId;
+
+    @Column
+    private Long rideCount;
+
+    @Column
+    private Long totalMinutes;
+
+    @Column
+    private Float totalDistance;
+
+    @Column
+    private Float totalSpent;
+
+    @Column
+    private String activeRentalId;
+
+    @Column
+    private String activeRentalStatus;
+
+    @Column
+    private String activeBikeId;
+
+    @Column
+    private String activeStationId;
+
+    @Column
+    private LocalDateTime activeSince;
+
+    @Column
+    private List<RideSummary> recentRides; // most recent first
+
+    @Column
+    private Map<String, Float> countedPrices; // price counted into totalSpent, per rental id, for every ride
+
+    @Column
+    private Long lastOffset; // last rental event applied
+
+    @Column
+    private Long lastEventTime; // epoch millis of that event
+
+    @Column
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,39 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Progress of a rollup job: everything that ended up to the watermark has been aggregated
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class RollupCheckpoint {
+
+    @Id
+    private String jobName;
+
+    @Column
+    private LocalDateTime watermark;
+
+    @Column
+    private List<String> watermarkRentalIds; // rentals ending exactly at the watermark, already counted
+
+    @Column
+    private Long chunk;
+
+    @Column
+    private Long processedRentals;
+
+    @Column
+    private LocalDateTime updatedAt;
+}
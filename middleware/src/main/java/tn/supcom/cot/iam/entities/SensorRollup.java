@@ -0,0 +1,61 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class SensorRollup {
+
+    @Id
+    private String rollupId; // sensorId + "@" + bucket start (epoch millis)
+
+    @Column
+    private String sensorId;
+
+    @Column
+    private String stationId;
+
+    @Column
+    private String sensorType;
+
+    @Column
+    private LocalDateTime bucketStart;
+
+    @Column
+    private Integer bucketSeconds;
+
+    @Column
+    private Long count;
+
+    @Column
+    private Double min;
+
+    @Column
+    private Double max;
+
+    @Column
+    private Double sum;
+
+    @Column
+    private Double last;
+
+    @Column
+    private Long lastTimestamp; // epoch millis of the last sample
+
+    public void generateId(long bucketStartMillis) {
+        if (this.rollupId == null || this.rollupId.isEmpty()) {
+            this.rollupId = sensorId + "@" + bucketStartMillis;
+        }
+    }
+}
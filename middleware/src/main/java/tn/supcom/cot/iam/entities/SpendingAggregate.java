@@ -0,0 +1,47 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Running payment total for one payment method, user or day; amounts are kept in cents so sums stay exact
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class SpendingAggregate {
+
+    @Id
+    private String aggregateId; // <scope>|<scopeKey>
+
+    @Column
+    private String scope; // METHOD, USER, DAY
+
+    @Column
+    private String scopeKey; // paymentMethodId, userId or ISO date
+
+    @Column
+    private Long totalCents;
+
+    @Column
+    private Long paymentCount;
+
+    @Column
+    private LocalDateTime updatedAt;
+
+    public BigDecimal getTotalAmount() {
+        return BigDecimal.valueOf(totalCents != null ? totalCents : 0L, 2);
+    }
+
+    public static String generateId(String scope, String scopeKey) {
+        return scope + "|" + scopeKey;
+    }
+}
@@ -39,6 +39,9 @@ public class Station{
     @Column
     private Integer availableBikes;
 
+    @Column
+    private Integer parkingRadiusMeters; // bikes must be returned this close; null uses the configured default
+
     //Id Generation
     public void generateId() {
         if (this.stationId == null || this.stationId.isEmpty()) {
@@ -0,0 +1,28 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Embeddable;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One point kept by trajectory simplification, embedded in RideTrace
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class TracePoint {
+
+    @Column
+    private Float latitude;
+
+    @Column
+    private Float longitude;
+
+    @Column
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,56 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Hourly utilization and revenue of one station, one bike or the whole fleet, built from completed rentals
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class UsageRollup {
+
+    @Id
+    private String rollupId; // dimension + "|" + key + "@" + bucket start (epoch millis)
+
+    @Column
+    private String dimension; // STATION, BIKE, FLEET
+
+    @Column
+    private String key; // stationId, bikeId or ALL
+
+    @Column
+    private LocalDateTime bucketStart;
+
+    @Column
+    private Long rides; // rides started in the bucket
+
+    @Column
+    private Long returns; // rides ended in the bucket, stations only
+
+    @Column
+    private Long rideMinutes;
+
+    @Column
+    private Double distance;
+
+    @Column
+    private Long revenueCents;
+
+    @Column
+    private Long appliedChunk; // last rollup chunk added, so a replayed chunk is not counted twice
+
+    public void generateId(long bucketStartMillis) {
+        if (this.rollupId == null || this.rollupId.isEmpty()) {
+            this.rollupId = dimension + "|" + key + "@" + bucketStartMillis;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package tn.supcom.cot.iam.entities;
+
+import jakarta.nosql.Column;
+import jakarta.nosql.Entity;
+import jakarta.nosql.Id;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Geofenced area such as a pedestrian old town or a beach, checked against the GPS fixes of rides
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class Zone {
+
+    @Id
+    private String zoneId;
+
+    @Column
+    private String name;
+
+    @Column
+    private String zoneType; // NO_RIDE, SLOW_RIDE or NO_PARKING
+
+    @Column
+    private List<GeoVertex> vertices; // polygon corners in order, not closed
+
+    @Column
+    private Boolean active;
+
+    @Column
+    private LocalDateTime updatedAt;
+
+    //Id Generation
+    public void generateId() {
+        if (this.zoneId == null || this.zoneId.isEmpty()) {
+            this.zoneId = "ZONE-" + UUID.randomUUID().toString();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package tn.supcom.cot.streaming;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log split into fixed-size segment files named after the offset of their first
+ * record. The active segment is memory-mapped and appended to in place; readers scan segments
+ * sequentially up to the last committed record.
+ *
+ * Record layout: [int length][int crc32][payload]. A zero length marks the end of a segment.
+ */
+public class EventLog implements Closeable {
+
+    static final int HEADER_BYTES = 8;
+    static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+
+    private final List<Long> segmentBases = new ArrayList<>();
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+    private volatile long nextOffset;
+
+    public EventLog(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SUFFIX.length())))
+                    .sorted()
+                    .forEach(segmentBases::add);
+        }
+
+        if (segmentBases.isEmpty()) {
+            openSegment(0L);
+        } else {
+            recover(segmentBases.get(segmentBases.size() - 1));
+        }
+    }
+
+    public synchronized long append(byte[] payload) throws IOException {
+        int required = HEADER_BYTES + payload.length;
+        if (required + Integer.BYTES > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+        }
+        // Keep room for the end-of-segment marker
+        if (activeBuffer.remaining() < required + Integer.BYTES) {
+            roll();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int start = activeBuffer.position();
+        activeBuffer.position(start + Integer.BYTES);
+        activeBuffer.putInt((int) crc.getValue());
+        activeBuffer.put(payload);
+        // The length is written last, a torn write leaves a zero length behind
+        activeBuffer.putInt(start, payload.length);
+
+        long offset = nextOffset;
+        nextOffset = offset + 1;
+        return offset;
+    }
+
+    public synchronized void flush() {
+        activeBuffer.force();
+    }
+
+    // Offset the next appended record will get; readers stop before it
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public EventLogReader reader(long fromOffset) {
+        return new EventLogReader(this, fromOffset);
+    }
+
+    synchronized List<Long> segmentBases() {
+        return new ArrayList<>(segmentBases);
+    }
+
+    Path segmentPath(long baseOffset) {
+        return directory.resolve(String.format("%020d%s", baseOffset, SUFFIX));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (activeBuffer != null) {
+            activeBuffer.force();
+        }
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+    }
+
+    private void roll() throws IOException {
+        activeBuffer.force();
+        activeChannel.close();
+        openSegment(nextOffset);
+    }
+
+    private void openSegment(long baseOffset) throws IOException {
+        activeChannel = FileChannel.open(segmentPath(baseOffset),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        if (segmentBases.isEmpty() || segmentBases.get(segmentBases.size() - 1) != baseOffset) {
+            segmentBases.add(baseOffset);
+        }
+        nextOffset = baseOffset;
+    }
+
+    // Replays the last segment to find where the previous process stopped writing
+    private void recover(long baseOffset) throws IOException {
+        openSegment(baseOffset);
+        long offset = baseOffset;
+        int position = 0;
+        while (position + HEADER_BYTES <= segmentBytes) {
+            int length = activeBuffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > segmentBytes) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            activeBuffer.get(position + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != activeBuffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+            offset++;
+        }
+        // Wipe a possibly torn record so it is never read back
+        if (position + Integer.BYTES <= segmentBytes) {
+            activeBuffer.putInt(position, 0);
+        }
+        activeBuffer.position(position);
+        nextOffset = offset;
+    }
+}
@@ -0,0 +1,129 @@
+package tn.supcom.cot.streaming;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Sequential cursor over an EventLog. Each consumer owns one reader and persists
+ * getPosition() to resume where it stopped. Every record is checked against its CRC; the reader
+ * stops at the first record that is short or does not match and never returns it.
+ */
+public class EventLogReader implements Closeable {
+
+    private final EventLog log;
+    private final ByteBuffer headerBuffer = ByteBuffer.allocate(EventLog.HEADER_BYTES);
+    private FileChannel channel;
+    private long filePosition;
+    private long offset;
+
+    EventLogReader(EventLog log, long fromOffset) {
+        this.log = log;
+        this.offset = fromOffset;
+    }
+
+    // Offset of the next record this reader will return
+    public long getPosition() {
+        return offset;
+    }
+
+    public List<LogRecord> poll(int maxRecords) throws IOException {
+        List<LogRecord> records = new ArrayList<>();
+        // Records below the writer's next offset are complete, nothing past it is read
+        long end = log.getNextOffset();
+        while (records.size() < maxRecords && offset < end) {
+            if (channel == null && !openSegmentFor(offset)) {
+                break;
+            }
+            int length = readHeader();
+            if (length <= 0) {
+                // End of this segment, the record lives in the next one
+                closeChannel();
+                continue;
+            }
+            // A corrupt length must not size the buffer past the end of the segment
+            long available = channel.size() - filePosition - EventLog.HEADER_BYTES;
+            ByteBuffer payload = ByteBuffer.allocate((int) Math.max(0, Math.min(length, available)));
+            if (length > available || !readFully(payload, filePosition + EventLog.HEADER_BYTES)
+                    || !matchesCrc(payload.array())) {
+                if (!records.isEmpty()) {
+                    // Hand out the good records first, the next poll reports the bad one
+                    break;
+                }
+                throw new IOException("Corrupt or truncated record at offset " + offset);
+            }
+            filePosition += EventLog.HEADER_BYTES + length;
+            records.add(new LogRecord(offset++, payload.array()));
+        }
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeChannel();
+    }
+
+    private boolean openSegmentFor(long target) throws IOException {
+        long base = -1;
+        for (long candidate : log.segmentBases()) {
+            if (candidate <= target) {
+                base = candidate;
+            }
+        }
+        if (base < 0) {
+            return false;
+        }
+        channel = FileChannel.open(log.segmentPath(base), StandardOpenOption.READ);
+        filePosition = 0;
+
+        // Skip the records that precede the target inside this segment
+        for (long current = base; current < target; current++) {
+            int length = readHeader();
+            if (length <= 0) {
+                break;
+            }
+            filePosition += EventLog.HEADER_BYTES + length;
+        }
+        return true;
+    }
+
+    // Length of the record at filePosition, 0 at the end-of-segment marker or the end of the file
+    private int readHeader() throws IOException {
+        headerBuffer.clear();
+        boolean complete = readFully(headerBuffer, filePosition);
+        int length = headerBuffer.position() >= Integer.BYTES ? headerBuffer.getInt(0) : 0;
+        if (!complete && length > 0) {
+            throw new IOException("Truncated record header at offset " + offset);
+        }
+        return length;
+    }
+
+    private boolean matchesCrc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == headerBuffer.getInt(Integer.BYTES);
+    }
+
+    // FileChannel.read may return fewer bytes than asked for; false when the file ends first
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package tn.supcom.cot.streaming;
+
+// One entry of the event log: its position (offset) and the raw payload
+public record LogRecord(long offset, byte[] payload) {
+}